@@ -0,0 +1,46 @@
+package com.example.bpt.benchmark;
+
+import com.example.bpt.util.AccountUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Account number normalization: current single-pass implementation vs the previous regex-based one.
+ * Run with {@code -prof gc} to compare allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountUtilsBenchmark {
+
+    @Param({"205-1234567-68", "205-0000001234567-68", "205-12x4567-68"})
+    public String accountNumber;
+
+    @Benchmark
+    public String current() {
+        return AccountUtils.normalizeAccountNumber(accountNumber);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return LegacyAccountUtils.normalizeAccountNumber(accountNumber);
+    }
+
+    @Benchmark
+    public String currentValidating() {
+        return AccountUtils.parseAccountNumber(accountNumber).normalized();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bpt.benchmark;
+
+import com.example.bpt.BptApplication;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.model.User;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.UserRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the real application against an in-memory H2 database, with no web server (unless asked for) and no Kafka traffic:
+ * the outbox relay is disabled, so {@code TransferEventProducer} is never called and events simply
+ * accumulate in the outbox table.
+ */
+final class BenchmarkApplication {
+
+    static final Money OPENING_BALANCE = Money.parse("1000000000.00");
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> overrides) {
+        return start(WebApplicationType.NONE, overrides);
+    }
+
+    @SafeVarargs
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, Map<String, Object> overrides,
+                                                ApplicationContextInitializer<ConfigurableApplicationContext>... initializers) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:bpt-bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.kafka.listener.auto-startup", "false");
+        properties.put("bpt.outbox.relay-enabled", "false");
+        properties.put("bpt.transfer.logging.sample-rate", "0");
+        properties.put("bpt.rate-limit.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.putAll(overrides);
+
+        // Passed as command-line arguments so they take precedence over application.properties
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(BptApplication.class)
+                .web(webApplicationType)
+                .initializers(initializers)
+                .logStartupInfo(false)
+                .run(args);
+    }
+
+    /**
+     * Creates {@code count} accounts with a large opening balance.
+     *
+     * @return their account numbers, in creation order
+     */
+    static List<String> seedAccounts(ConfigurableApplicationContext context, int count) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+
+        User owner = userRepository.save(User.builder().username("bench").email("bench@example.com").build());
+        List<String> accountNumbers = new ArrayList<>(count);
+        List<Account> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String accountNumber = String.format("205-%013d-68", i + 1);
+            accountNumbers.add(accountNumber);
+            accounts.add(Account.builder()
+                    .accountNumber(accountNumber)
+                    .balance(OPENING_BALANCE)
+                    .owner(owner)
+                    .build());
+        }
+        accountRepository.saveAll(accounts);
+        return accountNumbers;
+    }
+}
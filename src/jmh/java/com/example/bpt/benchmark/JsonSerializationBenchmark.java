@@ -0,0 +1,118 @@
+package com.example.bpt.benchmark;
+
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.event.TransferCompletedEvent;
+import com.example.bpt.kafka.TransferEventBinaryFormat;
+import com.example.bpt.model.Money;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialization of the transfer DTOs and Kafka event, with an ObjectMapper configured the way
+ * Spring Boot configures the application's one; the event also in {@link TransferEventBinaryFormat}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, 11, 3, 8, 57, 47, 245_586_500);
+
+    private ObjectWriter requestWriter;
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private ObjectReader responseReader;
+    private ObjectWriter eventWriter;
+    private ObjectReader eventReader;
+
+    private TransferRequest request;
+    private TransferResponse response;
+    private TransferCompletedEvent event;
+    private byte[] requestJson;
+    private byte[] responseJson;
+    private byte[] eventJson;
+    private byte[] eventBinary;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        requestWriter = objectMapper.writerFor(TransferRequest.class);
+        requestReader = objectMapper.readerFor(TransferRequest.class);
+        responseWriter = objectMapper.writerFor(TransferResponse.class);
+        responseReader = objectMapper.readerFor(TransferResponse.class);
+        eventWriter = objectMapper.writerFor(TransferCompletedEvent.class);
+        eventReader = objectMapper.readerFor(TransferCompletedEvent.class);
+
+        request = new TransferRequest("205-0000001234567-68", "205-0000007654321-68", Money.parse("500.00"));
+        response = new TransferResponse(10L, "205-0000001234567-68", "205-0000007654321-68",
+                Money.parse("500.00"), "SUCCESS", TIMESTAMP);
+        event = new TransferCompletedEvent(10L, "205-0000001234567-68", "205-0000007654321-68",
+                new BigDecimal("500.00"), TIMESTAMP);
+
+        requestJson = requestWriter.writeValueAsBytes(request);
+        responseJson = responseWriter.writeValueAsBytes(response);
+        eventJson = eventWriter.writeValueAsBytes(event);
+        eventBinary = TransferEventBinaryFormat.encode(event);
+    }
+
+    @Benchmark
+    public TransferRequest readRequest() throws Exception {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws Exception {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public TransferResponse readResponse() throws Exception {
+        return responseReader.readValue(responseJson);
+    }
+
+    @Benchmark
+    public byte[] writeEvent() throws Exception {
+        return eventWriter.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public TransferCompletedEvent readEvent() throws Exception {
+        return eventReader.readValue(eventJson);
+    }
+
+    @Benchmark
+    public byte[] writeEventBinary() {
+        return TransferEventBinaryFormat.encode(event);
+    }
+
+    @Benchmark
+    public TransferCompletedEvent readEventBinary() {
+        return TransferEventBinaryFormat.decode(eventBinary);
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws Exception {
+        return requestWriter.writeValueAsBytes(request);
+    }
+}
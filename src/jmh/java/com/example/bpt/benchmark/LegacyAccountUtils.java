@@ -0,0 +1,34 @@
+package com.example.bpt.benchmark;
+
+/**
+ * The regex/split/String.format implementation of account number normalization that
+ * {@link com.example.bpt.util.AccountUtils} replaced, kept as the benchmark baseline.
+ */
+final class LegacyAccountUtils {
+
+    private LegacyAccountUtils() {
+    }
+
+    static String normalizeAccountNumber(String accountNumber) {
+        if (accountNumber == null || !accountNumber.contains("-")) {
+            return accountNumber;
+        }
+
+        String[] parts = accountNumber.split("-");
+        if (parts.length != 3) {
+            return accountNumber;
+        }
+
+        String bankCode = parts[0];
+        String middlePart = parts[1];
+        String controlDigits = parts[2];
+
+        if (!bankCode.matches("\\d{3}") || !middlePart.matches("\\d+") || !controlDigits.matches("\\d{2}")) {
+            return accountNumber;
+        }
+
+        String paddedMiddle = String.format("%013d", Long.parseLong(middlePart));
+
+        return bankCode + "-" + paddedMiddle + "-" + controlDigits;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.bpt.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of {@code POST /api/transfers} through Tomcat, platform threads vs virtual threads
+ * ({@code spring.threads.virtual.enabled}).
+ * <p>
+ * Each invocation fires {@code concurrency} requests at once and waits for all of them; the primary score is
+ * bursts per second, {@code requests} and {@code failures} are reported per second. Needs several cores to
+ * say anything: on a single core both modes are CPU bound. H2 answers in microseconds, so {@code dbLatencyMs} adds a
+ * sleep to every commit to stand in for the MySQL round trip during which the request thread is blocked.
+ * Runs with {@code -Djdk.tracePinnedThreads=short}, so any carrier-thread pinning is printed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Djdk.tracePinnedThreads=short", "-Djdk.httpclient.keepalive.timeout=60"})
+public class ThreadingModeBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"1000"})
+    public int concurrency;
+
+    @Param({"5"})
+    public int dbLatencyMs;
+
+    @Param({"1000"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private URI transfersUri;
+    private List<String> accountNumbers;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int latency = dbLatencyMs;
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET,
+                Map.of("server.port", "0",
+                        "spring.threads.virtual.enabled", String.valueOf(virtualThreads),
+                        "spring.datasource.hikari.maximum-pool-size", "20",
+                        "spring.datasource.hikari.connection-timeout", "30000"),
+                ctx -> ctx.getBeanFactory().addBeanPostProcessor(new CommitLatency(latency)));
+        accountNumbers = BenchmarkApplication.seedAccounts(context, accounts);
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        transfersUri = URI.create("http://localhost:" + port + "/api/transfers");
+        // The client side always uses virtual threads, so it is never the bottleneck
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.close();
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Requests {
+        public long requests;
+        public long failures;
+    }
+
+    @Benchmark
+    public void burst(Requests counters) {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            responses[i] = client.sendAsync(nextRequest(), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, ex) -> ex == null && response.statusCode() == 200);
+        }
+        CompletableFuture.allOf(responses).join();
+        for (CompletableFuture<?> response : responses) {
+            if (Boolean.TRUE.equals(response.join())) {
+                counters.requests++;
+            } else {
+                counters.failures++;
+            }
+        }
+    }
+
+    private HttpRequest nextRequest() {
+        int source = random.nextInt(accountNumbers.size());
+        int destination = (source + 1 + random.nextInt(accountNumbers.size() - 1)) % accountNumbers.size();
+        String body = "{\"sourceAccount\":\"" + accountNumbers.get(source)
+                + "\",\"destinationAccount\":\"" + accountNumbers.get(destination)
+                + "\",\"amount\":1.00}";
+        return HttpRequest.newBuilder(transfersUri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Wraps the DataSource so every {@link Connection#commit()} sleeps first, like a network round trip would.
+     */
+    private record CommitLatency(int latencyMs) implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (latencyMs <= 0 || !(bean instanceof DataSource)) {
+                return bean;
+            }
+            ProxyFactory dataSource = new ProxyFactory(bean);
+            dataSource.addAdvice((org.aopalliance.intercept.MethodInterceptor) invocation -> {
+                Object result = invocation.proceed();
+                return result instanceof Connection connection ? delayCommits(connection) : result;
+            });
+            return dataSource.getProxy();
+        }
+
+        private Connection delayCommits(Connection connection) {
+            ProxyFactory proxy = new ProxyFactory(connection);
+            proxy.addInterface(Connection.class);
+            proxy.addAdvice((org.aopalliance.intercept.MethodInterceptor) invocation -> {
+                Method method = invocation.getMethod();
+                if (method.getName().equals("commit")) {
+                    Thread.sleep(latencyMs);
+                }
+                return invocation.proceed();
+            });
+            return (Connection) proxy.getProxy();
+        }
+    }
+}
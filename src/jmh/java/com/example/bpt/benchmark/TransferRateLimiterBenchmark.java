@@ -0,0 +1,83 @@
+package com.example.bpt.benchmark;
+
+import com.example.bpt.config.AccountCacheProperties;
+import com.example.bpt.config.RateLimitProperties;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.projection.AccountKey;
+import com.example.bpt.service.impl.AccountCache;
+import com.example.bpt.service.impl.TransferRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link TransferRateLimiter} check with warm account keys and limits high enough that nothing is
+ * rejected; {@code accounts} sets how many source accounts (and as many users) the checks spread over, 1 being
+ * every thread on the same counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TransferRateLimiterBenchmark {
+
+    private static final String DESTINATION = "205-0000009999999-68";
+
+    @Param({"1", "10000"})
+    public int accounts;
+
+    private TransferRateLimiter limiter;
+    private TransferRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties.Limit unlimited = new RateLimitProperties.Limit();
+        unlimited.setMaxTransfers(Long.MAX_VALUE);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getTiers().put(properties.getDefaultTier(), unlimited);
+        properties.setUser(unlimited);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AccountCache accountCache = new AccountCache(new AccountCacheProperties(), meterRegistry);
+        // Keys are preloaded below, so the repository is never called
+        AccountRepository accountRepository = (AccountRepository) Proxy.newProxyInstance(
+                AccountRepository.class.getClassLoader(), new Class<?>[]{AccountRepository.class},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        limiter = new TransferRateLimiter(properties, accountCache, accountRepository, meterRegistry);
+
+        requests = new TransferRequest[accounts];
+        for (int i = 0; i < accounts; i++) {
+            String number = "205-%013d-68".formatted(i + 1);
+            long id = i + 1;
+            accountCache.key(number, key -> Optional.of(new AccountKey(id, number, id)));
+            requests[i] = new TransferRequest(number, DESTINATION, Money.parse("10.00"));
+        }
+    }
+
+    @Benchmark
+    public TransferRateLimiter.Permit acquire() {
+        return limiter.acquire(requests[ThreadLocalRandom.current().nextInt(accounts)]);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bpt.benchmark;
+
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.model.Money;
+import com.example.bpt.service.TransferService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end {@link TransferService#transferFunds} throughput on embedded H2 (no MySQL, no Kafka).
+ * <p>
+ * {@code skew} is the probability that a transfer moves money between the two hottest accounts
+ * (in either direction) instead of a uniformly random pair; 0 means no contention, 1 means every
+ * thread fights over the same two rows. {@code uncontended} runs on one thread, {@code contended}
+ * on 8 by default; override the thread count with {@code -t}.
+ * <p>
+ * {@code engine=in-memory} runs the same load on the in-memory ledger, with its write-ahead log in a
+ * temporary directory ({@code concurrencyMode} does not apply to it): {@code -p engine=in-memory -p concurrencyMode=PESSIMISTIC}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransferServiceBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double skew;
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC"})
+    public String concurrencyMode;
+
+    @Param({"database"})
+    public String engine;
+
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+    private List<String> accountNumbers;
+    private Path walDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        try {
+            walDirectory = Files.createTempDirectory("bpt-wal");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        context = BenchmarkApplication.start(Map.of(
+                "bpt.transfer.concurrency-mode", concurrencyMode,
+                "bpt.transfer.engine", engine,
+                "bpt.engine.wal-directory", walDirectory.toString()));
+        transferService = context.getBean(TransferService.class);
+        accountNumbers = BenchmarkApplication.seedAccounts(context, accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(walDirectory);
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        // Fixed seed per thread so every run (and every commit) replays the same transfer sequence
+        private final SplittableRandom random = new SplittableRandom(42 + Thread.currentThread().getId());
+        private final Money amount = Money.parse("1.00");
+
+        TransferRequest next(TransferServiceBenchmark benchmark) {
+            List<String> numbers = benchmark.accountNumbers;
+            int source;
+            int destination;
+            if (random.nextDouble() < benchmark.skew) {
+                source = random.nextInt(2);
+                destination = 1 - source;
+            } else {
+                source = random.nextInt(numbers.size());
+                destination = (source + 1 + random.nextInt(numbers.size() - 1)) % numbers.size();
+            }
+            return new TransferRequest(numbers.get(source), numbers.get(destination), amount);
+        }
+    }
+
+    /**
+     * Transfers that still failed after retries (lock timeouts, exhausted optimistic retries).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Failures {
+        public long failed;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransferResponse uncontended(Picker picker, Failures failures) {
+        return transfer(picker, failures);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public TransferResponse contended(Picker picker, Failures failures) {
+        return transfer(picker, failures);
+    }
+
+    private TransferResponse transfer(Picker picker, Failures failures) {
+        try {
+            return transferService.transferFunds(picker.next(this));
+        } catch (RuntimeException e) {
+            failures.failed++;
+            return null;
+        }
+    }
+}
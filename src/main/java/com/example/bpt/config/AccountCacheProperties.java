@@ -0,0 +1,31 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * In-process account caches, bound from {@code bpt.account-cache.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.account-cache")
+public class AccountCacheProperties {
+
+    /** Maximum number of account keys (id, number, owner id) kept in memory. */
+    private long keysMaximumSize = 100_000;
+
+    /** How long an account key is kept; keys never change, this only bounds memory for idle accounts. */
+    private Duration keysTtl = Duration.ofHours(1);
+
+    /** Maximum number of cached balances. */
+    private long balancesMaximumSize = 100_000;
+
+    /**
+     * How long a cached balance is served. Transfers evict balances on commit; the TTL only bounds staleness
+     * after changes made outside this application (or another instance).
+     */
+    private Duration balancesTtl = Duration.ofSeconds(30);
+}
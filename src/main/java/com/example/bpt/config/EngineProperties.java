@@ -0,0 +1,38 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * In-memory transfer engine settings ({@code bpt.transfer.engine=in-memory}), bound from {@code bpt.engine.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.engine")
+public class EngineProperties {
+
+    /** Directory of the write-ahead log segments. Must survive restarts (not a tmpfs). */
+    private Path walDirectory = Path.of("data", "wal");
+
+    /** Size of one memory-mapped WAL segment file. */
+    private DataSize walSegmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Force every group commit to disk before acknowledging its transfers. Turning it off trades the
+     * last few milliseconds of transfers on a power loss (not a process crash) for throughput.
+     */
+    private boolean walSync = true;
+
+    /** Transfers waiting for the sequencer; callers block when it is full. */
+    private int queueCapacity = 65_536;
+
+    /** Most commands applied per group commit (one WAL force). */
+    private int maxGroupCommit = 4_096;
+
+    /** Most WAL records written to the database per snapshot flush transaction. */
+    private int flushBatchSize = 10_000;
+}
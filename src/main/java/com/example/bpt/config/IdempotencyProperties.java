@@ -0,0 +1,28 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Idempotency-Key handling, bound from {@code bpt.idempotency.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.idempotency")
+public class IdempotencyProperties {
+
+    /** How long a key (and its stored response) is honoured. */
+    private Duration ttl = Duration.ofHours(24);
+
+    /** Maximum number of completed responses kept in the in-process cache. */
+    private long cacheMaximumSize = 100_000;
+
+    /** How long a completed response stays in the in-process cache. */
+    private Duration cacheTtl = Duration.ofMinutes(10);
+
+    /** How long a duplicate request waits for the in-flight original on the same instance. */
+    private Duration waitTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,72 @@
+package com.example.bpt.config;
+
+import com.example.bpt.exception.InvalidTransferEventException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Error handling for the batch {@code @KafkaListener}s (picked up by Boot's listener container factory).
+ * <ul>
+ *     <li>Poison records ({@link InvalidTransferEventException}, undeserializable payloads) are not retried
+ *     and are published as-is to {@code <topic>.DLT}, same partition.</li>
+ *     <li>Everything else (database down, lock timeouts) redelivers the batch with exponential backoff,
+ *     indefinitely: a ledger must not skip events because of an outage.</li>
+ * </ul>
+ * Dead-lettered records are counted in {@code bpt.ledger.dead.letters}.
+ */
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(KafkaTemplate<Object, Object> kafkaTemplate,
+                                                 KafkaProperties kafkaProperties,
+                                                 LedgerProperties ledgerProperties,
+                                                 MeterRegistry meterRegistry) {
+        // Undeserializable values reach the recoverer as the original bytes, which need a byte[] serializer
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                kafkaProperties.buildProducerProperties(null), new StringSerializer(), new ByteArraySerializer())));
+        templates.put(Object.class, kafkaTemplate);
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(templates,
+                (record, ex) -> new TopicPartition(record.topic() + ".DLT", record.partition()));
+
+        ExponentialBackOff backOff = new ExponentialBackOff(ledgerProperties.getRetryInitialInterval().toMillis(), 2.0);
+        backOff.setMaxInterval(ledgerProperties.getRetryMaxInterval().toMillis());
+
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, backOff);
+        errorHandler.addNotRetryableExceptions(InvalidTransferEventException.class, DeserializationException.class);
+
+        Counter deadLetters = Counter.builder("bpt.ledger.dead.letters")
+                .description("Records sent to a dead-letter topic")
+                .register(meterRegistry);
+        errorHandler.setRetryListeners(new RetryListener() {
+            @Override
+            public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+            }
+
+            @Override
+            public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+                deadLetters.increment();
+            }
+        });
+        return errorHandler;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Ledger projection consumer settings, bound from {@code bpt.ledger.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.ledger")
+public class LedgerProperties {
+
+    /**
+     * Records of one poll are split into this many groups by key and written concurrently, one transaction
+     * per group. Each group holds a DB connection while it writes.
+     */
+    private int parallelism = 4;
+
+    /** First delay before a failed batch is redelivered (database errors); doubles up to {@link #retryMaxInterval}. */
+    private Duration retryInitialInterval = Duration.ofMillis(500);
+
+    /** Longest delay between redeliveries. Failed batches are retried until they succeed. */
+    private Duration retryMaxInterval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,40 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Transactional outbox relay settings, bound from {@code bpt.outbox.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.outbox")
+public class OutboxProperties {
+
+    /** Whether this instance relays outbox rows to Kafka. */
+    private boolean relayEnabled = true;
+
+    /** Rows claimed and sent per relay round trip. */
+    private int batchSize = 200;
+
+    /** Upper bound on batches drained per poll, so one poll cannot run forever under load. */
+    private int maxBatchesPerPoll = 20;
+
+    /** How long the relay waits for broker acknowledgements of one batch. */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+
+    /** Delay before the first retry of a failed send; doubles with every further failure. */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /** Upper bound on the retry delay. */
+    private Duration maxRetryBackoff = Duration.ofMinutes(5);
+
+    /** Failed sends after which a row is parked and no longer relayed. */
+    private int maxAttempts = 20;
+
+    /** Published rows older than this are deleted. */
+    private Duration retention = Duration.ofDays(1);
+}
@@ -0,0 +1,52 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Transfer velocity limits, bound from {@code bpt.rate-limit.*}. Source accounts are limited by their tier,
+ * the users owning them by {@code user.*}; a limit of 0 (or no amount) means unlimited.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.rate-limit")
+public class RateLimitProperties {
+
+    /** Reject transfers over a limit with 429 before they reach the database. */
+    private boolean enabled = true;
+
+    /** Length of the sliding window the limits apply to. */
+    private Duration window = Duration.ofMinutes(1);
+
+    /** Upper bound on tracked accounts and users each; the least recently used are dropped beyond this. */
+    private long maxTrackedKeys = 100_000;
+
+    /** Tier of accounts not listed in {@code account-tiers}. */
+    private String defaultTier = "standard";
+
+    /** Limits per tier name. */
+    private Map<String, Limit> tiers = new HashMap<>();
+
+    /** Tier name by normalized account number. */
+    private Map<String, String> accountTiers = new HashMap<>();
+
+    /** Limit per user, across all accounts the user owns. */
+    private Limit user = new Limit();
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        /** Transfers per window. */
+        private long maxTransfers;
+
+        /** Total amount per window. */
+        private BigDecimal maxAmount;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bpt.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Read/write split ({@code bpt.datasource.replica.enabled=true}). The application's {@link DataSource} hands out
+ * lazy connections that pick their pool on first use:
+ * <ul>
+ *     <li>read-only connections (those of {@code @Transactional(readOnly = true)} work, including Spring Data's
+ *     read methods outside a transaction) go to the replica pool while {@link ReplicaLagMonitor} reports it
+ *     available, and to the primary otherwise;</li>
+ *     <li>everything else goes to the primary pool ({@code spring.datasource.*}).</li>
+ * </ul>
+ * Replica reads can be up to {@code max-lag} stale; code that must read its own writes runs in a read-write
+ * transaction.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bpt.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("bpt.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(ReplicaProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .driverClassName(properties.getDriverClassName())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               ReplicaProperties properties, MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, properties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        ReplicaFallbackDataSource reads = new ReplicaFallbackDataSource(replicaLagMonitor);
+        reads.setTargetDataSources(Map.of(true, replicaDataSource, false, primaryDataSource));
+        reads.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(reads);
+        return dataSource;
+    }
+
+    /**
+     * The replica while it is available, else the primary.
+     */
+    private static final class ReplicaFallbackDataSource extends AbstractRoutingDataSource {
+
+        private final ReplicaLagMonitor monitor;
+
+        ReplicaFallbackDataSource(ReplicaLagMonitor monitor) {
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return monitor.isReplicaAvailable();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Balance reconciliation against the transfer log, bound from {@code bpt.reconciliation.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.reconciliation")
+public class ReconciliationProperties {
+
+    /** Run on the {@code cron} schedule; runs can still be started through the admin endpoint when off. */
+    private boolean enabled = true;
+
+    /** When the scheduled run starts (Spring cron, server time zone). */
+    private String cron = "0 30 2 * * *";
+
+    /** Chunks reconciled at the same time, i.e. database connections the job holds at most. */
+    private int parallelism = 4;
+
+    /** Accounts per chunk; each chunk is read in one consistent snapshot. */
+    private int chunkSize = 500;
+
+    /**
+     * Transfers newer than this are left for the next run. Must exceed the longest transfer transaction (and the
+     * in-memory engine's flush interval), so every transfer up to the cutoff has committed when a run reads it.
+     */
+    private Duration settle = Duration.ofMinutes(1);
+}
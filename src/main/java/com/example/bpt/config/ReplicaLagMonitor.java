@@ -0,0 +1,89 @@
+package com.example.bpt.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Decides whether read-only transactions may use the replica.
+ * <p>
+ * Every check stamps the {@code replica_heartbeat} row on the primary and reads it back from the replica; the
+ * difference is the replication lag (an upper bound, accurate to one check interval). The replica is used
+ * while the lag is within {@code bpt.datasource.replica.max-lag}, and not at all until the first successful
+ * check or while it cannot be reached.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final int HEARTBEAT_ID = 1;
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+
+    private volatile boolean replicaAvailable;
+    private volatile long lagMillis = -1;
+
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource, ReplicaProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLag = properties.getMaxLag();
+
+        Gauge.builder("bpt.datasource.replica.lag", this, monitor -> monitor.lagMillis < 0 ? Double.NaN : monitor.lagMillis / 1000.0)
+                .description("Replication lag of the read replica as of the last check")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("bpt.datasource.replica.available", this, monitor -> monitor.replicaAvailable ? 1 : 0)
+                .description("1 while read-only transactions go to the replica, 0 while they fall back to the primary")
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    @Scheduled(fixedDelayString = "${bpt.datasource.replica.check-interval-ms:1000}")
+    public void check() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            beat(now);
+            LocalDateTime replicated = replica.queryForObject(
+                    "select beat_at from replica_heartbeat where id = ?", LocalDateTime.class, HEARTBEAT_ID);
+            lagMillis = Math.max(0, Duration.between(replicated, now).toMillis());
+            update(lagMillis <= maxLag.toMillis(), "replication lag is " + lagMillis + " ms");
+        } catch (DataAccessException e) {
+            lagMillis = -1;
+            update(false, "replica heartbeat could not be checked: " + e.getMessage());
+        }
+    }
+
+    private void beat(LocalDateTime now) {
+        if (primary.update("update replica_heartbeat set beat_at = ? where id = ?", now, HEARTBEAT_ID) == 0) {
+            try {
+                primary.update("insert into replica_heartbeat (id, beat_at) values (?, ?)", HEARTBEAT_ID, now);
+            } catch (DuplicateKeyException e) {
+                // Another instance created the row first
+            }
+        }
+    }
+
+    private void update(boolean available, String reason) {
+        if (available != replicaAvailable) {
+            if (available) {
+                log.info("Read replica available, {}", reason);
+            } else {
+                log.warn("Read replica unavailable, reads fall back to the primary: {}", reason);
+            }
+        }
+        replicaAvailable = available;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Read replica for read-only transactions, bound from {@code bpt.datasource.replica.*}; pool settings go under
+ * {@code bpt.datasource.replica.hikari.*}, like {@code spring.datasource.hikari.*} for the primary.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.datasource.replica")
+public class ReplicaProperties {
+
+    /** Route {@code @Transactional(readOnly = true)} work to the replica; everything else stays on the primary. */
+    private boolean enabled = false;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private String driverClassName;
+
+    /** Replication lag above which reads fall back to the primary until the replica catches up. */
+    private Duration maxLag = Duration.ofSeconds(5);
+}
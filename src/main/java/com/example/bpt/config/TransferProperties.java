@@ -0,0 +1,223 @@
+package com.example.bpt.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for the transfer path, bound from {@code bpt.transfer.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bpt.transfer")
+public class TransferProperties {
+
+    /**
+     * How concurrent balance updates are isolated by default.
+     */
+    private ConcurrencyMode concurrencyMode = ConcurrencyMode.PESSIMISTIC;
+
+    /**
+     * Which {@code TransferService} executes transfers; selects the bean, see {@code bpt.engine.*}.
+     */
+    private Engine engine = Engine.DATABASE;
+
+    /**
+     * How the database engine writes balances.
+     */
+    private WritePath writePath = WritePath.ENTITY;
+
+    private final Contention contention = new Contention();
+
+    private final Striping striping = new Striping();
+
+    private final Batch batch = new Batch();
+
+    private final Logging logging = new Logging();
+
+    private final History history = new History();
+
+    private final Export export = new Export();
+
+    private final Async async = new Async();
+
+    private final Archive archive = new Archive();
+
+    public enum ConcurrencyMode {
+        /** Lock both account rows (SELECT ... FOR UPDATE) before touching balances. */
+        PESSIMISTIC,
+        /** Read without locks and rely on the account version column; conflicts are retried. */
+        OPTIMISTIC
+    }
+
+    public enum Engine {
+        /** Row updates in MySQL per transfer. */
+        DATABASE,
+        /** Single-writer in-memory ledger with a write-ahead log, flushed to MySQL asynchronously. */
+        IN_MEMORY
+    }
+
+    public enum WritePath {
+        /** Load (and lock) both account entities, check funds in memory and let Hibernate flush the changes. */
+        ENTITY,
+        /**
+         * No account entities: a conditional UPDATE debits only if funds suffice, a second UPDATE credits.
+         * Transfers involving striped accounts still take the entity path.
+         */
+        CONDITIONAL_UPDATE
+    }
+
+    /**
+     * Per-account conflict tracking used in OPTIMISTIC mode to fall back to row locks for hot accounts.
+     */
+    @Getter
+    @Setter
+    public static class Contention {
+
+        /** Conflict ratio (conflicts / attempts) above which an account is treated as hot. */
+        private double conflictRateThreshold = 0.2;
+
+        /** Minimum attempts in a window before the conflict ratio is trusted. */
+        private int minSamples = 20;
+
+        /** Length of the measuring window. */
+        private Duration window = Duration.ofSeconds(30);
+
+        /** How long a hot account stays on pessimistic locking before it is measured again. */
+        private Duration coolDown = Duration.ofMinutes(2);
+
+        /** Upper bound on tracked accounts; idle entries are pruned beyond this. */
+        private int maxTrackedAccounts = 10_000;
+    }
+
+    /**
+     * Balance striping for high fan-in accounts (accounts with {@code balance_shards > 0}).
+     */
+    @Getter
+    @Setter
+    public static class Striping {
+
+        /** Master switch; when off, striped accounts are credited on their main row like any other. */
+        private boolean enabled = false;
+
+        /** How a credit picks its shard. */
+        private ShardSelection shardSelection = ShardSelection.HASH;
+
+        public enum ShardSelection {
+            /** Hash of the source account, so one payer always hits the same shard. */
+            HASH,
+            /** Rotate through shards for the most even spread. */
+            ROUND_ROBIN
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /** Largest number of transfers accepted in one batch request. */
+        private int maxSize = 500;
+    }
+
+    /**
+     * Account transfer history ({@code GET /api/accounts/{number}/transfers}).
+     */
+    @Getter
+    @Setter
+    public static class History {
+
+        /** Page size when the request does not specify one. */
+        private int defaultPageSize = 50;
+
+        /** Largest page size a request may ask for. */
+        private int maxPageSize = 500;
+    }
+
+    /**
+     * Statement export ({@code GET /api/accounts/{number}/transfers/export}).
+     */
+    @Getter
+    @Setter
+    public static class Export {
+
+        /**
+         * JDBC fetch size for the export query. {@code Integer.MIN_VALUE} makes MySQL Connector/J stream rows
+         * one by one instead of buffering the whole result set; other drivers need a positive value.
+         */
+        private int fetchSize = 1000;
+    }
+
+    /**
+     * Asynchronous submission ({@code POST /api/transfers/async}): a bounded queue drained in micro-batches.
+     */
+    @Getter
+    @Setter
+    public static class Async {
+
+        /** Worker threads; each drains its own lane of the queue, chosen by source account. */
+        private int workers = 4;
+
+        /** Transfers that may wait across all lanes; beyond this submissions are rejected with 429. */
+        private int queueCapacity = 10_000;
+
+        /** Largest micro-batch a worker executes in one transaction (capped at {@code batch.max-size}). */
+        private int maxBatchSize = 200;
+
+        /** Delay suggested to rejected clients in the Retry-After header. */
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        /** How long the status of a submitted transfer can be queried. */
+        private Duration statusTtl = Duration.ofMinutes(15);
+
+        /** Upper bound on retained statuses; the oldest are dropped first beyond this. */
+        private long maxStatuses = 100_000;
+    }
+
+    /**
+     * Archival of cold history: whole months older than {@code hot-months} move from {@code transfer} to
+     * {@code transfer_archive}, so the hot table (and its indexes) stays the same size however long the
+     * history grows.
+     */
+    @Getter
+    @Setter
+    public static class Archive {
+
+        /** Run on the {@code cron} schedule. */
+        private boolean enabled = true;
+
+        /** When the archival job starts (Spring cron, server time zone). */
+        private String cron = "0 0 3 * * *";
+
+        /** Complete months kept in {@code transfer} besides the current one; older months are archived. */
+        private int hotMonths = 12;
+
+        /**
+         * {@code transfer} is range-partitioned by month (MySQL, partitions named {@code pYYYYMM} plus a
+         * {@code pmax} catch-all): archived months are dropped as whole partitions and partitions for the coming
+         * months are split off {@code pmax} ahead of time. Otherwise archived rows are deleted in batches.
+         */
+        private boolean partitioned = false;
+
+        /** Months after the current one that get their partition ahead of time. */
+        private int premadeMonths = 3;
+
+        /** Rows per delete statement when the table is not partitioned. */
+        private int deleteBatchSize = 10_000;
+    }
+
+    /**
+     * Per-transfer log events (one structured event per transfer attempt).
+     */
+    @Getter
+    @Setter
+    public static class Logging {
+
+        /** Fraction (0.0 - 1.0) of successful transfers that are logged. */
+        private double sampleRate = 1.0;
+
+        /** Fraction (0.0 - 1.0) of failed transfers that are logged. */
+        private double failureSampleRate = 1.0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.bpt.controller;
+
+import com.example.bpt.dto.AccountBalanceResponse;
+import com.example.bpt.dto.StatementFormat;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferHistoryResponse;
+import com.example.bpt.service.AccountService;
+import com.example.bpt.util.AccountUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+
+@RestController
+@RequestMapping("/api/accounts")
+@Tag(name = "Account API", description = "Read operations on accounts")
+public class AccountController {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Operation(
+            summary = "Get the balance of an account",
+            description = "Returns the current balance. Served from an in-process cache that is refreshed "
+                    + "after every committed transfer on the account.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Balance found",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = AccountBalanceResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Malformed account number", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Account not found", content = @Content)
+            }
+    )
+    @GetMapping("/{number}/balance")
+    public ResponseEntity<AccountBalanceResponse> getBalance(@PathVariable("number") String number) {
+        return ResponseEntity.ok(accountService.getBalance(number));
+    }
+
+    @Operation(
+            summary = "List the transfers of an account",
+            description = "Newest first, one page at a time. Pass the returned nextCursor as cursor to get the next "
+                    + "page; every page costs the same no matter how deep it is.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Page of transfers",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = TransferHistoryResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Malformed account number, cursor or limit",
+                            content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Account not found", content = @Content)
+            }
+    )
+    @GetMapping("/{number}/transfers")
+    public ResponseEntity<TransferHistoryResponse> getTransfers(
+            @PathVariable("number") String number,
+            @Parameter(description = "INCOMING, OUTGOING or ALL")
+            @RequestParam(value = "direction", defaultValue = "ALL") TransferDirection direction,
+            @Parameter(description = "Oldest timestamp to include (inclusive), ISO-8601")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Newest timestamp to include (exclusive), ISO-8601")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size")
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(accountService.getTransfers(number, direction, from, to, cursor, limit));
+    }
+
+    @Operation(
+            summary = "Export the full statement of an account",
+            description = "Streams every transfer in the range as CSV or NDJSON, newest first, without holding "
+                    + "the statement in memory. Every row carries a cursor; pass the last one received to resume "
+                    + "an interrupted download.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Statement stream",
+                            content = {@Content(mediaType = "text/csv"), @Content(mediaType = "application/x-ndjson")}),
+                    @ApiResponse(responseCode = "400", description = "Malformed account number or cursor",
+                            content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Account not found", content = @Content)
+            }
+    )
+    @GetMapping("/{number}/transfers/export")
+    public ResponseEntity<StreamingResponseBody> exportTransfers(
+            @PathVariable("number") String number,
+            @Parameter(description = "CSV or NDJSON")
+            @RequestParam(value = "format", defaultValue = "CSV") StatementFormat format,
+            @Parameter(description = "INCOMING, OUTGOING or ALL")
+            @RequestParam(value = "direction", defaultValue = "ALL") TransferDirection direction,
+            @Parameter(description = "Oldest timestamp to include (inclusive), ISO-8601")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Newest timestamp to include (exclusive), ISO-8601")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "cursor of the last row received, to resume")
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        StreamingResponseBody body = accountService.exportTransfers(number, format, direction, from, to, cursor);
+        String filename = "statement-" + AccountUtils.normalizeAccountNumber(number) + "." + format.extension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
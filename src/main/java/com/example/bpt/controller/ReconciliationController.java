@@ -0,0 +1,53 @@
+package com.example.bpt.controller;
+
+import com.example.bpt.dto.ReconciliationReport;
+import com.example.bpt.service.ReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@Tag(name = "Reconciliation API", description = "Balance reconciliation against the transfer log")
+public class ReconciliationController {
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Operation(
+            summary = "Get the latest reconciliation run and all drifting accounts",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Run status, counts and drifting accounts",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ReconciliationReport.class)))
+            }
+    )
+    @GetMapping
+    public ResponseEntity<ReconciliationReport> getReport() {
+        return ResponseEntity.ok(reconciliationService.report());
+    }
+
+    @Operation(
+            summary = "Start a reconciliation run",
+            description = "Runs in the background; poll GET for the outcome. If a run is already in progress, "
+                    + "no second one is started.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Run started (or already running)",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ReconciliationReport.class)))
+            }
+    )
+    @PostMapping
+    public ResponseEntity<ReconciliationReport> startRun() {
+        return ResponseEntity.accepted().body(reconciliationService.start());
+    }
+}
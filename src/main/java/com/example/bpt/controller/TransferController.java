@@ -1,9 +1,17 @@
 package com.example.bpt.controller;
 
+import com.example.bpt.dto.AsyncTransferStatus;
+import com.example.bpt.dto.BatchTransferItemResult;
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
 import com.example.bpt.dto.TransferRequest;
 import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.service.AsyncTransferService;
+import com.example.bpt.service.IdempotencyService;
 import com.example.bpt.service.TransferService;
+import com.example.bpt.service.impl.TransferRateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,6 +19,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 
 @RestController
@@ -21,6 +30,15 @@ public class TransferController {
     @Autowired
     private TransferService transferService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    @Autowired
+    private TransferRateLimiter transferRateLimiter;
+
     @Operation(
             summary = "Execute a fund transfer",
             description = "Transfers funds between two accounts within the same banking platform.",
@@ -30,15 +48,118 @@ public class TransferController {
                                     schema = @Schema(implementation = TransferResponse.class))),
                     @ApiResponse(responseCode = "400", description = "Invalid request or insufficient funds",
                             content = @Content),
-                    @ApiResponse(responseCode = "404", description = "Account not found", content = @Content)
+                    @ApiResponse(responseCode = "404", description = "Account not found", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Idempotency-Key reused with a different request, "
+                            + "or its original request is still in progress", content = @Content),
+                    @ApiResponse(responseCode = "429", description = "Account or user transfer limit reached, "
+                            + "retry after the Retry-After delay", content = @Content)
             }
     )
     @PostMapping
-    public ResponseEntity<TransferResponse> transferFunds(@RequestBody TransferRequest request) {
-        // Delegate transfer logic to service layer
-        TransferResponse response = transferService.transferFunds(request);
+    public ResponseEntity<TransferResponse> transferFunds(
+            @Parameter(description = "Client-generated key; retries with the same key return the original result "
+                    + "instead of moving money again")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody TransferRequest request) {
+        // Delegate transfer logic to service layer (at most once per Idempotency-Key, when one is given).
+        // Only a transfer that actually runs is counted against the velocity limits: replays are free
+        TransferResponse response = idempotencyKey == null
+                ? limitedTransfer(request)
+                : idempotencyService.execute(idempotencyKey, request, () -> limitedTransfer(request));
 
         // Return a successful response containing transfer details
         return ResponseEntity.ok(response);
     }
+
+    @Operation(
+            summary = "Execute a batch of fund transfers",
+            description = "Executes all transfers in one pass. By default each item succeeds or fails on its own; "
+                    + "with atomic=true any failing item rolls back the whole batch.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = BatchTransferResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid batch, or an item failed in atomic mode",
+                            content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Account not found (atomic mode)", content = @Content),
+                    @ApiResponse(responseCode = "429", description = "The batch would exceed an account or user "
+                            + "transfer limit; nothing was executed", content = @Content)
+            }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@RequestBody BatchTransferRequest request) {
+        TransferRateLimiter.Permit permit = transferRateLimiter.acquire(request.transfers());
+        BatchTransferResponse response;
+        try {
+            response = transferService.transferBatch(request);
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+        // Failed items moved no money, so they do not count against the velocity limits
+        for (BatchTransferItemResult result : response.results()) {
+            if (result.transfer() == null) {
+                permit.release(request.transfers().get(result.index()));
+            }
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Submit a fund transfer for asynchronous execution",
+            description = "Queues the transfer and returns at once; poll the returned Location for the outcome. "
+                    + "Queued transfers are executed in micro-batches. When the queue is full the request is "
+                    + "rejected with 429 and a Retry-After header.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Transfer queued",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = AsyncTransferStatus.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content),
+                    @ApiResponse(responseCode = "429", description = "Queue full or transfer limit reached, retry "
+                            + "after the Retry-After delay", content = @Content)
+            }
+    )
+    @PostMapping("/async")
+    public ResponseEntity<AsyncTransferStatus> submitTransfer(@RequestBody TransferRequest request) {
+        TransferRateLimiter.Permit permit = transferRateLimiter.acquire(request);
+        AsyncTransferStatus status;
+        try {
+            status = asyncTransferService.submit(request);
+        } catch (RuntimeException e) {
+            // Rejected (queue full, stopping, invalid): it never runs, so it does not count
+            permit.release();
+            throw e;
+        }
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(status.id()).toUri())
+                .body(status);
+    }
+
+    @Operation(
+            summary = "Get the status of an asynchronously submitted transfer",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "PENDING, SUCCESS with the transfer, or FAILED with the error",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = AsyncTransferStatus.class))),
+                    @ApiResponse(responseCode = "404", description = "Unknown or expired id", content = @Content)
+            }
+    )
+    @GetMapping("/async/{id}")
+    public ResponseEntity<AsyncTransferStatus> getTransferStatus(@PathVariable String id) {
+        return ResponseEntity.ok(asyncTransferService.status(id));
+    }
+
+    /**
+     * Turns away transfers over a velocity limit before they reach the database, then executes the transfer.
+     * A transfer that fails is given back to the limits.
+     */
+    private TransferResponse limitedTransfer(TransferRequest request) {
+        TransferRateLimiter.Permit permit = transferRateLimiter.acquire(request);
+        try {
+            return transferService.transferFunds(request);
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
 }
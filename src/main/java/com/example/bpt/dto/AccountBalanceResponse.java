@@ -0,0 +1,8 @@
+package com.example.bpt.dto;
+
+import com.example.bpt.model.Money;
+
+public record AccountBalanceResponse(
+        String accountNumber,
+        Money balance
+) {}
@@ -0,0 +1,17 @@
+package com.example.bpt.dto;
+
+import com.example.bpt.model.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * An account whose balance does not match its transfers: {@code drift} is actual minus expected balance,
+ * checked at {@code checkedAt}; the account last reconciled at {@code checkpointAsOf} (null if never).
+ */
+public record AccountDrift(
+        String accountNumber,
+        Money drift,
+        Money checkpointBalance,
+        LocalDateTime checkpointAsOf,
+        LocalDateTime checkedAt
+) {}
@@ -0,0 +1,29 @@
+package com.example.bpt.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of a transfer submitted through {@code POST /api/transfers/async}: {@code PENDING} until a worker has
+ * executed it, then {@code SUCCESS} with the {@code transfer} or {@code FAILED} with the {@code error}.
+ */
+public record AsyncTransferStatus(
+        String id,
+        String status,
+        TransferResponse transfer,
+        String error,
+        LocalDateTime submittedAt,
+        LocalDateTime completedAt
+) {
+
+    public static AsyncTransferStatus pending(String id, LocalDateTime submittedAt) {
+        return new AsyncTransferStatus(id, "PENDING", null, null, submittedAt, null);
+    }
+
+    public AsyncTransferStatus success(TransferResponse transfer) {
+        return new AsyncTransferStatus(id, "SUCCESS", transfer, null, submittedAt, LocalDateTime.now());
+    }
+
+    public AsyncTransferStatus failure(String error) {
+        return new AsyncTransferStatus(id, "FAILED", null, error, submittedAt, LocalDateTime.now());
+    }
+}
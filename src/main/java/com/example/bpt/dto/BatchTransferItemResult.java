@@ -0,0 +1,20 @@
+package com.example.bpt.dto;
+
+/**
+ * Outcome of one item of a batch; exactly one of {@code transfer} and {@code error} is set.
+ */
+public record BatchTransferItemResult(
+        int index,
+        String status,
+        TransferResponse transfer,
+        String error
+) {
+
+    public static BatchTransferItemResult success(int index, TransferResponse transfer) {
+        return new BatchTransferItemResult(index, "SUCCESS", transfer, null);
+    }
+
+    public static BatchTransferItemResult failure(int index, String error) {
+        return new BatchTransferItemResult(index, "FAILED", null, error);
+    }
+}
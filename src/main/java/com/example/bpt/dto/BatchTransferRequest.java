@@ -0,0 +1,19 @@
+package com.example.bpt.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * A list of transfers executed in one pass.
+ *
+ * @param transfers the transfers, applied in list order
+ * @param atomic    if true, any failing item rolls back the whole batch; otherwise failures are reported per item
+ */
+public record BatchTransferRequest(
+        @NotEmpty List<@Valid TransferRequest> transfers,
+        boolean atomic
+) {
+
+}
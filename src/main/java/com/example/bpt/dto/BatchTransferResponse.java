@@ -0,0 +1,9 @@
+package com.example.bpt.dto;
+
+import java.util.List;
+
+public record BatchTransferResponse(
+        int succeeded,
+        int failed,
+        List<BatchTransferItemResult> results
+) {}
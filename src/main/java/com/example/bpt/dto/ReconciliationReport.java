@@ -0,0 +1,20 @@
+package com.example.bpt.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Latest reconciliation run ({@code IDLE} before the first one, then {@code RUNNING}, {@code COMPLETED} or
+ * {@code FAILED}) and every account currently drifting, whichever run found it.
+ */
+public record ReconciliationReport(
+        String status,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        LocalDateTime cutoff,
+        long accountsChecked,
+        long transfersVerified,
+        long chainBreaks,
+        String error,
+        List<AccountDrift> drifts
+) {}
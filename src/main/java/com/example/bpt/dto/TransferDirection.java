@@ -0,0 +1,13 @@
+package com.example.bpt.dto;
+
+/**
+ * Which side of a transfer an account is on, seen from that account.
+ */
+public enum TransferDirection {
+    /** The account is the destination. */
+    INCOMING,
+    /** The account is the source. */
+    OUTGOING,
+    /** Both. */
+    ALL
+}
@@ -0,0 +1,21 @@
+package com.example.bpt.dto;
+
+import com.example.bpt.model.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of an account statement.
+ *
+ * @param counterpartyAccount the other account of the transfer
+ * @param balanceAfter        balance of this account right after the transfer; null for striped accounts, whose
+ *                            transfers record no balance
+ */
+public record TransferHistoryItem(
+        Long transferId,
+        TransferDirection direction,
+        String counterpartyAccount,
+        Money amount,
+        Money balanceAfter,
+        LocalDateTime timestamp
+) {}
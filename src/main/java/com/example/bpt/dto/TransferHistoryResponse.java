@@ -0,0 +1,11 @@
+package com.example.bpt.dto;
+
+import java.util.List;
+
+/**
+ * @param nextCursor pass as {@code cursor} to get the next (older) page; null on the last page
+ */
+public record TransferHistoryResponse(
+        List<TransferHistoryItem> items,
+        String nextCursor
+) {}
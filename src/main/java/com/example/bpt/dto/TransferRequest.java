@@ -1,15 +1,13 @@
 package com.example.bpt.dto;
 
-import jakarta.validation.constraints.DecimalMin;
+import com.example.bpt.model.Money;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import java.math.BigDecimal;
 
 public record TransferRequest(
         @NotBlank String sourceAccount,
         @NotBlank String destinationAccount,
-        @NotNull @DecimalMin(value = "0.01", message = "Transfer amount must be positive")
-        BigDecimal amount
+        @NotNull Money amount
 ) {
 
 }
@@ -1,13 +1,14 @@
 package com.example.bpt.dto;
 
-import java.math.BigDecimal;
+import com.example.bpt.model.Money;
+
 import java.time.LocalDateTime;
 
 public record TransferResponse(
         Long transferId,
         String sourceAccount,
         String destinationAccount,
-        BigDecimal amount,
+        Money amount,
         String status,
         LocalDateTime timestamp
 ) {}
@@ -0,0 +1,142 @@
+package com.example.bpt.engine;
+
+import java.util.Arrays;
+
+/**
+ * Account balances held in memory as scaled longs (minor units), in parallel primitive arrays indexed by
+ * slot, with an open-addressing hash index from the packed account number to the slot.
+ * <p>
+ * Not thread-safe: only the sequencer thread reads or writes it once the engine runs.
+ */
+final class AccountStore {
+
+    private static final long EMPTY = -1L;
+
+    // Slot data
+    private long[] ids = new long[1024];
+    private long[] ownerIds = new long[1024];
+    private long[] balances = new long[1024];
+    private String[] numbers = new String[1024];
+    private int size;
+
+    // Index: packed number -> slot, linear probing, power-of-two capacity
+    private long[] keys = newKeys(2048);
+    private int[] slots = new int[2048];
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot of the account, or -1
+     */
+    int find(long packedNumber) {
+        int mask = keys.length - 1;
+        for (int i = mix(packedNumber) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == packedNumber) {
+                return slots[i];
+            }
+            if (keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Adds an account, unless it is already present.
+     *
+     * @return its slot
+     */
+    int add(String number, long id, long ownerId, long balance) {
+        long packed = pack(number);
+        int existing = find(packed);
+        if (existing >= 0) {
+            return existing;
+        }
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            ownerIds = Arrays.copyOf(ownerIds, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        int slot = size++;
+        ids[slot] = id;
+        ownerIds[slot] = ownerId;
+        balances[slot] = balance;
+        numbers[slot] = number;
+
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        insert(keys, slots, packed, slot);
+        return slot;
+    }
+
+    /**
+     * Packs the 18 digits of a normalized account number ({@code ddd-ddddddddddddd-dd}) into a long.
+     */
+    static long pack(String normalizedNumber) {
+        long packed = 0;
+        for (int i = 0; i < normalizedNumber.length(); i++) {
+            char c = normalizedNumber.charAt(i);
+            if (c != '-') {
+                packed = packed * 10 + (c - '0');
+            }
+        }
+        return packed;
+    }
+
+    long balance(int slot) {
+        return balances[slot];
+    }
+
+    void setBalance(int slot, long balance) {
+        balances[slot] = balance;
+    }
+
+    long id(int slot) {
+        return ids[slot];
+    }
+
+    long ownerId(int slot) {
+        return ownerIds[slot];
+    }
+
+    String number(int slot) {
+        return numbers[slot];
+    }
+
+    private void rehash(int capacity) {
+        long[] newKeys = newKeys(capacity);
+        int[] newSlots = new int[capacity];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                insert(newKeys, newSlots, keys[i], slots[i]);
+            }
+        }
+        keys = newKeys;
+        slots = newSlots;
+    }
+
+    private static void insert(long[] keys, int[] slots, long key, int slot) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        slots[i] = slot;
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.bpt.engine;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.BatchTransferItemResult;
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.exception.ResourceNotFoundException;
+import com.example.bpt.model.Money;
+import com.example.bpt.service.TransferService;
+import com.example.bpt.service.impl.TransferLog;
+import com.example.bpt.service.impl.TransferMetrics;
+import com.example.bpt.util.AccountUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link TransferService} on the in-memory ledger ({@code bpt.transfer.engine=in-memory}): balances live in
+ * the {@link TransferSequencer}, transfers are durable once in its write-ahead log, and the database is
+ * brought up to date asynchronously by the {@link SnapshotFlusher}.
+ * <p>
+ * Database reads (balances, history, statements) therefore trail the engine by up to
+ * {@code bpt.engine.flush-interval-ms}. The engine must be the only writer of account balances while it runs.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "bpt.transfer.engine", havingValue = "in-memory")
+public class InMemoryTransferService implements TransferService {
+
+    @Autowired
+    private TransferSequencer sequencer;
+    @Autowired
+    private TransferProperties transferProperties;
+    @Autowired
+    private TransferMetrics transferMetrics;
+    @Autowired
+    private TransferLog transferLog;
+
+    @Override
+    public TransferResponse transferFunds(TransferRequest request) {
+        TransferMetrics.Attempt attempt = transferMetrics.begin();
+        try {
+            // Step 1: Validate and normalize
+            attempt.stage(TransferMetrics.Stage.VALIDATION);
+            validateRequest(request);
+            String sourceNumber = AccountUtils.parseAccountNumber(request.sourceAccount()).orElseThrow();
+            String destinationNumber = AccountUtils.parseAccountNumber(request.destinationAccount()).orElseThrow();
+            if (sourceNumber.equals(destinationNumber)) {
+                throw new IllegalArgumentException("Source and destination accounts cannot be the same");
+            }
+            long amount = request.amount().minorUnits();
+
+            // Step 2: Apply it on the sequencer; returns once the transfer is in the write-ahead log
+            attempt.stage(TransferMetrics.Stage.BALANCE_UPDATE);
+            TransferRecord record;
+            try {
+                record = sequencer.transfer(sourceNumber, destinationNumber, amount);
+            } catch (UnknownAccountException e) {
+                // First transfer of one of the accounts since startup: load both and try again
+                attempt.stage(TransferMetrics.Stage.ACCOUNT_LOOKUP);
+                sequencer.load(List.of(sourceNumber, destinationNumber));
+                attempt.stage(TransferMetrics.Stage.BALANCE_UPDATE);
+                record = transferOrNotFound(sourceNumber, destinationNumber, amount);
+            }
+
+            attempt.success();
+            TransferResponse response = mapToResponse(record);
+            transferLog.completed(response, attempt.elapsedNanos());
+            return response;
+        } catch (RuntimeException e) {
+            attempt.failure(e);
+            transferLog.failed(request, e, attempt.elapsedNanos());
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchTransferResponse transferBatch(BatchTransferRequest request) {
+        List<TransferRequest> items = request.transfers() == null ? List.of() : request.transfers();
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one transfer");
+        }
+        if (items.size() > transferProperties.getBatch().getMaxSize()) {
+            throw new IllegalArgumentException("Batch exceeds the maximum of "
+                    + transferProperties.getBatch().getMaxSize() + " transfers");
+        }
+
+        // Step 1: Validate and normalize every item before anything is applied
+        BatchTransferItemResult[] results = new BatchTransferItemResult[items.size()];
+        List<TransferSequencer.Item> pending = new ArrayList<>(items.size());
+        List<Integer> pendingIndexes = new ArrayList<>(items.size());
+        Set<String> numbers = new LinkedHashSet<>();
+        for (int index = 0; index < items.size(); index++) {
+            TransferRequest item = items.get(index);
+            try {
+                validateRequest(item);
+                String sourceNumber = AccountUtils.parseAccountNumber(item.sourceAccount()).orElseThrow();
+                String destinationNumber = AccountUtils.parseAccountNumber(item.destinationAccount()).orElseThrow();
+                if (sourceNumber.equals(destinationNumber)) {
+                    throw new IllegalArgumentException("Source and destination accounts cannot be the same");
+                }
+                pending.add(new TransferSequencer.Item(sourceNumber, destinationNumber, item.amount().minorUnits()));
+                pendingIndexes.add(index);
+                numbers.add(sourceNumber);
+                numbers.add(destinationNumber);
+            } catch (RuntimeException e) {
+                results[index] = failBatchItem(index, e, request.atomic());
+            }
+        }
+
+        // Step 2: Load the accounts the engine does not hold yet, then apply all items as one command
+        sequencer.load(numbers);
+        Object[] outcomes = sequencer.transferBatch(pending, request.atomic());
+
+        // Step 3: Map the per-item outcomes back to request order
+        int succeeded = 0;
+        for (int i = 0; i < outcomes.length; i++) {
+            int index = pendingIndexes.get(i);
+            if (outcomes[i] instanceof TransferRecord record) {
+                results[index] = BatchTransferItemResult.success(index, mapToResponse(record));
+                succeeded++;
+            } else if (outcomes[i] instanceof RuntimeException e) {
+                results[index] = failBatchItem(index, notFoundIfUnknown(e), request.atomic());
+            }
+        }
+        log.info("Batch completed: {} succeeded, {} failed", succeeded, items.size() - succeeded);
+        return new BatchTransferResponse(succeeded, items.size() - succeeded, Arrays.asList(results));
+    }
+
+    private TransferRecord transferOrNotFound(String sourceNumber, String destinationNumber, long amount) {
+        try {
+            return sequencer.transfer(sourceNumber, destinationNumber, amount);
+        } catch (UnknownAccountException e) {
+            throw notFoundIfUnknown(e);
+        }
+    }
+
+    /**
+     * After {@link TransferSequencer#load}, an account the engine still does not know does not exist.
+     */
+    private static RuntimeException notFoundIfUnknown(RuntimeException e) {
+        return e instanceof UnknownAccountException ? new ResourceNotFoundException(e.getMessage()) : e;
+    }
+
+    private BatchTransferItemResult failBatchItem(int index, RuntimeException e, boolean atomic) {
+        if (atomic) {
+            // All-or-nothing: nothing of the batch has been applied (or it has been undone)
+            if (e instanceof ResourceNotFoundException) {
+                throw new ResourceNotFoundException("Batch item " + index + ": " + e.getMessage());
+            }
+            throw new IllegalArgumentException("Batch item " + index + ": " + e.getMessage(), e);
+        }
+        return BatchTransferItemResult.failure(index, e.getMessage());
+    }
+
+    private static TransferResponse mapToResponse(TransferRecord record) {
+        return new TransferResponse(
+                record.id(),
+                record.sourceNumber(),
+                record.destinationNumber(),
+                Money.ofMinor(record.amount()),
+                "SUCCESS",
+                record.timestamp()
+        );
+    }
+
+    private void validateRequest(TransferRequest request) {
+        if (request.sourceAccount() == null || request.destinationAccount() == null) {
+            throw new IllegalArgumentException("Source and destination account are required");
+        }
+        if (request.sourceAccount().equals(request.destinationAccount())) {
+            throw new IllegalArgumentException("Source and destination accounts cannot be the same");
+        }
+        if (request.amount() == null) {
+            throw new IllegalArgumentException("Transfer amount is required");
+        }
+        if (request.amount().signum() <= 0) {
+            throw new IllegalArgumentException("Transfer amount must be greater than zero");
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.bpt.engine;
+
+import com.example.bpt.config.EngineProperties;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.model.Transfer;
+import com.example.bpt.service.impl.AccountCache;
+import com.example.bpt.service.impl.TransferOutboxWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes transfers committed by the {@link TransferSequencer} to the database, so that history, statements,
+ * balances and the outbox keep working on the usual tables. Per flush transaction (up to
+ * {@code bpt.engine.flush-batch-size} transfers):
+ * <ul>
+ *     <li>{@code transfer} rows are batch-inserted with the engine's ids;</li>
+ *     <li>each touched account gets one {@code UPDATE} with its latest balance, and its balance shards are
+ *     zeroed, since the engine's balance already includes them;</li>
+ *     <li>the transfer events go to the outbox.</li>
+ * </ul>
+ * A failed flush is retried with the same transfers on the next run; nothing is dropped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bpt.transfer.engine", havingValue = "in-memory")
+public class SnapshotFlusher {
+
+    private static final String INSERT_TRANSFER = "insert into transfer (id, source_account_id, destination_account_id, "
+            + "amount, source_old_balance, source_new_balance, destination_old_balance, destination_new_balance, "
+            + "timestamp, performed_by) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_BALANCE = "update account set balance = ?, version = version + 1 where id = ?";
+    private static final String CLEAR_SHARDS = "update account_balance_shard set balance = 0 where account_id = ? and balance <> 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferOutboxWriter transferOutboxWriter;
+    private final AccountCache accountCache;
+    private final int batchSize;
+
+    private final LinkedBlockingQueue<TransferRecord> pending = new LinkedBlockingQueue<>();
+    /**
+     * Serializes flushes (scheduled and on stop). A lock rather than {@code synchronized}: flushes run JDBC on
+     * virtual threads, which must not be pinned to their carrier while they wait on the database.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    /** Transfers of a flush that failed, written first next time; guarded by {@link #flushLock}. */
+    private final List<TransferRecord> chunk = new ArrayList<>();
+
+    private final Timer flushTimer;
+
+    public SnapshotFlusher(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           TransferOutboxWriter transferOutboxWriter,
+                           AccountCache accountCache,
+                           EngineProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transferOutboxWriter = transferOutboxWriter;
+        this.accountCache = accountCache;
+        this.batchSize = properties.getFlushBatchSize();
+
+        this.flushTimer = Timer.builder("bpt.engine.flush")
+                .description("Time to write one batch of engine transfers to the database")
+                .register(meterRegistry);
+        Gauge.builder("bpt.engine.flush.backlog", pending, Collection::size)
+                .description("Committed transfers not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    void enqueue(Collection<TransferRecord> records) {
+        pending.addAll(records);
+    }
+
+    /**
+     * Writes everything queued so far.
+     *
+     * @return the id of the last transfer now in the database, or 0 if none was written
+     */
+    long flush() {
+        flushLock.lock();
+        try {
+            return flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private long flushLocked() {
+        long flushedUpTo = 0;
+        while (true) {
+            if (chunk.isEmpty()) {
+                pending.drainTo(chunk, batchSize);
+                if (chunk.isEmpty()) {
+                    return flushedUpTo;
+                }
+            }
+            try {
+                flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> write(chunk)));
+            } catch (DataAccessException e) {
+                log.warn("Flushing {} transfers failed, retrying on the next run: {}", chunk.size(), e.getMessage());
+                return flushedUpTo;
+            }
+            flushedUpTo = chunk.getLast().id();
+            chunk.clear();
+        }
+    }
+
+    private void write(List<TransferRecord> records) {
+        jdbcTemplate.batchUpdate(INSERT_TRANSFER, records, records.size(), (ps, record) -> {
+            ps.setLong(1, record.id());
+            ps.setLong(2, record.sourceId());
+            ps.setLong(3, record.destinationId());
+            ps.setBigDecimal(4, TransferRecord.toDecimal(record.amount()));
+            ps.setBigDecimal(5, TransferRecord.toDecimal(record.sourceBalance() + record.amount()));
+            ps.setBigDecimal(6, TransferRecord.toDecimal(record.sourceBalance()));
+            ps.setBigDecimal(7, TransferRecord.toDecimal(record.destinationBalance() - record.amount()));
+            ps.setBigDecimal(8, TransferRecord.toDecimal(record.destinationBalance()));
+            ps.setObject(9, record.timestamp());
+            ps.setLong(10, record.performedBy());
+        });
+
+        // Records are in commit order, so the last balance seen per account is its current one
+        Map<Long, Long> balances = new LinkedHashMap<>();
+        for (TransferRecord record : records) {
+            balances.put(record.sourceId(), record.sourceBalance());
+            balances.put(record.destinationId(), record.destinationBalance());
+        }
+        List<Map.Entry<Long, Long>> accounts = new ArrayList<>(balances.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE, accounts, accounts.size(), (ps, account) -> {
+            ps.setBigDecimal(1, TransferRecord.toDecimal(account.getValue()));
+            ps.setLong(2, account.getKey());
+        });
+        jdbcTemplate.batchUpdate(CLEAR_SHARDS, accounts, accounts.size(),
+                (ps, account) -> ps.setLong(1, account.getKey()));
+
+        List<Transfer> transfers = new ArrayList<>(records.size());
+        for (TransferRecord record : records) {
+            transfers.add(Transfer.builder()
+                    .id(record.id())
+                    .sourceAccount(Account.builder().accountNumber(record.sourceNumber()).build())
+                    .destinationAccount(Account.builder().accountNumber(record.destinationNumber()).build())
+                    .amount(Money.ofMinor(record.amount()))
+                    .timestamp(record.timestamp())
+                    .build());
+        }
+        transferOutboxWriter.appendAll(transfers);
+
+        // Balance cache entries are versioned, so evict with the versions just written
+        String placeholders = String.join(", ", Collections.nCopies(accounts.size(), "?"));
+        List<Account> updated = jdbcTemplate.query("select id, version from account where id in (" + placeholders + ")",
+                (rs, rowNum) -> Account.builder().id(rs.getLong(1)).version(rs.getLong(2)).build(),
+                balances.keySet().toArray());
+        accountCache.evictBalancesAfterCommit(updated);
+    }
+}
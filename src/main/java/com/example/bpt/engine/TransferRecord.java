@@ -0,0 +1,45 @@
+package com.example.bpt.engine;
+
+import com.example.bpt.model.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * One applied transfer. Amounts and balances are in minor units (cents); balances are the values right
+ * after the transfer, so replaying a record is idempotent.
+ *
+ * @param sourceNumber      not written to the WAL; filled in from the account store
+ * @param destinationNumber not written to the WAL; filled in from the account store
+ * @param performedBy       owner of the source account; not written to the WAL
+ */
+record TransferRecord(long id,
+                      long sourceId,
+                      long destinationId,
+                      long amount,
+                      long timestampMicros,
+                      long sourceBalance,
+                      long destinationBalance,
+                      String sourceNumber,
+                      String destinationNumber,
+                      long performedBy) {
+
+    TransferRecord withAccounts(String sourceNumber, String destinationNumber, long performedBy) {
+        return new TransferRecord(id, sourceId, destinationId, amount, timestampMicros, sourceBalance,
+                destinationBalance, sourceNumber, destinationNumber, performedBy);
+    }
+
+    LocalDateTime timestamp() {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(timestampMicros, 1_000_000L),
+                (int) Math.floorMod(timestampMicros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, Money.SCALE);
+    }
+}
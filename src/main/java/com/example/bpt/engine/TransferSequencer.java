@@ -0,0 +1,417 @@
+package com.example.bpt.engine;
+
+import com.example.bpt.config.EngineProperties;
+import com.example.bpt.exception.InsufficientFundsException;
+import com.example.bpt.model.Money;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Single writer of the in-memory ledger. Every command (transfer, batch, account registration) is queued and
+ * applied by one thread, in queue order, so balances need no locks.
+ * <ul>
+ *     <li>Group commit: the thread drains up to {@code bpt.engine.max-group-commit} commands, applies them,
+ *     appends their transfers to the write-ahead log and forces it once, and only then completes the callers'
+ *     futures. A transfer is acknowledged only once it is durable.</li>
+ *     <li>Committed transfers are handed to the {@link SnapshotFlusher}, which writes them to the
+ *     {@code transfer} and {@code account} tables in the background; WAL segments are deleted once flushed.</li>
+ *     <li>Recovery: balances come from the {@code account} table (the last snapshot); WAL records newer than
+ *     the highest flushed transfer id are replayed on top of it and flushed again.</li>
+ * </ul>
+ * Accounts are loaded on first use. If the WAL cannot be written the engine halts and rejects all further
+ * commands: its memory would otherwise run ahead of what a restart can recover.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bpt.transfer.engine", havingValue = "in-memory")
+public class TransferSequencer implements SmartLifecycle {
+
+    private static final String ACCOUNT_COLUMNS = "select a.id, a.account_number, a.user_id, a.balance + coalesce("
+            + "(select sum(s.balance) from account_balance_shard s where s.account_id = a.id), 0) from account a ";
+
+    private final EngineProperties properties;
+    private final SnapshotFlusher flusher;
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Command<?>> queue;
+
+    private final DistributionSummary groupSize;
+    private final Timer groupCommitTimer;
+
+    // Owned by the sequencer thread once it runs
+    private final AccountStore store = new AccountStore();
+    private final List<TransferRecord> applied = new ArrayList<>();
+    private long nextId;
+
+    private WriteAheadLog wal;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private volatile RuntimeException failure;
+
+    public TransferSequencer(EngineProperties properties, SnapshotFlusher flusher, DataSource dataSource,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.flusher = flusher;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        this.groupSize = DistributionSummary.builder("bpt.engine.group.size")
+                .description("Commands applied per group commit")
+                .register(meterRegistry);
+        this.groupCommitTimer = Timer.builder("bpt.engine.group.commit")
+                .description("Time to apply one group of commands and force it to the write-ahead log")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Applies one transfer.
+     *
+     * @throws UnknownAccountException if an account has not been loaded, see {@link #load}
+     */
+    TransferRecord transfer(String sourceNumber, String destinationNumber, long amount) {
+        long source = AccountStore.pack(sourceNumber);
+        long destination = AccountStore.pack(destinationNumber);
+        return submit(() -> {
+            TransferRecord record = apply(source, sourceNumber, destination, destinationNumber, amount);
+            applied.add(record);
+            return record;
+        });
+    }
+
+    /**
+     * Applies the items in order, as one command.
+     *
+     * @return per item, its {@link TransferRecord} or the exception it failed with. An atomic batch stops at its
+     * first failure and undoes the items before it, so the result then holds that failure and nothing else
+     */
+    Object[] transferBatch(List<Item> items, boolean atomic) {
+        return submit(() -> {
+            Object[] results = new Object[items.size()];
+            List<TransferRecord> records = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.get(i);
+                try {
+                    TransferRecord record = apply(AccountStore.pack(item.sourceNumber()), item.sourceNumber(),
+                            AccountStore.pack(item.destinationNumber()), item.destinationNumber(), item.amount());
+                    records.add(record);
+                    results[i] = record;
+                } catch (RuntimeException e) {
+                    results[i] = e;
+                    if (atomic) {
+                        undo(records);
+                        Object[] failed = new Object[items.size()];
+                        failed[i] = e;
+                        return failed;
+                    }
+                }
+            }
+            applied.addAll(records);
+            return results;
+        });
+    }
+
+    /**
+     * Loads the accounts the engine does not hold yet from the database. Unknown numbers are skipped.
+     */
+    void load(Collection<String> accountNumbers) {
+        List<String> missing = submit(() -> {
+            List<String> numbers = new ArrayList<>();
+            for (String number : accountNumbers) {
+                if (store.find(AccountStore.pack(number)) < 0) {
+                    numbers.add(number);
+                }
+            }
+            return numbers;
+        });
+        if (missing.isEmpty()) {
+            return;
+        }
+        // Read outside the sequencer thread. An account that is not in the store has no unflushed transfers,
+        // so its row is current; if another caller registers it first, this copy is ignored
+        List<AccountRow> rows = queryAccounts("where a.account_number in ", missing);
+        submit(() -> {
+            rows.forEach(row -> store.add(row.number(), row.id(), row.ownerId(), row.balance()));
+            return null;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${bpt.engine.flush-interval-ms:200}")
+    public void flush() {
+        long flushedUpTo = flusher.flush();
+        if (flushedUpTo > 0 && wal != null) {
+            wal.releaseUpTo(flushedUpTo);
+        }
+    }
+
+    @Override
+    public void start() {
+        wal = new WriteAheadLog(properties.getWalDirectory(), properties.getWalSegmentSize().toBytes(),
+                properties.isWalSync());
+        recover();
+        running = true;
+        thread = Thread.ofPlatform().name("transfer-sequencer").start(this::run);
+    }
+
+    /**
+     * Stops taking commands, applies the ones already queued, and writes everything to the database.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        wal.close();
+        flush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the web server, so no request finds the engine down.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void recover() {
+        // Archived transfers have left transfer, so the highest flushed id may only be in the archive
+        long flushedId = jdbcTemplate.queryForObject("select greatest(coalesce((select max(id) from transfer), 0), "
+                + "coalesce((select max(id) from transfer_archive), 0))", Long.class);
+        List<TransferRecord> tail = new ArrayList<>();
+        long walId = wal.recover(record -> {
+            if (record.id() > flushedId) {
+                tail.add(record);
+            }
+        });
+        nextId = Math.max(flushedId, walId) + 1;
+        if (tail.isEmpty()) {
+            return;
+        }
+
+        List<Long> accountIds = new ArrayList<>();
+        for (TransferRecord record : tail) {
+            accountIds.add(record.sourceId());
+            accountIds.add(record.destinationId());
+        }
+        Map<Long, Integer> slots = new HashMap<>();
+        for (AccountRow row : queryAccounts("where a.id in ", accountIds.stream().distinct().toList())) {
+            slots.put(row.id(), store.add(row.number(), row.id(), row.ownerId(), row.balance()));
+        }
+
+        // Balances in the records are absolute, so the last record per account wins
+        List<TransferRecord> replayed = new ArrayList<>(tail.size());
+        for (TransferRecord record : tail) {
+            Integer source = slots.get(record.sourceId());
+            Integer destination = slots.get(record.destinationId());
+            if (source == null || destination == null) {
+                throw new IllegalStateException("Write-ahead log references a missing account in transfer " + record.id());
+            }
+            store.setBalance(source, record.sourceBalance());
+            store.setBalance(destination, record.destinationBalance());
+            replayed.add(record.withAccounts(store.number(source), store.number(destination), store.ownerId(source)));
+        }
+        flusher.enqueue(replayed);
+        log.info("Replayed {} unflushed transfers ({} to {}) from the write-ahead log",
+                replayed.size(), tail.getFirst().id(), tail.getLast().id());
+    }
+
+    private void run() {
+        try {
+            loop();
+        } finally {
+            stopped = true;
+            rejectQueued();
+        }
+    }
+
+    private void loop() {
+        List<Command<?>> group = new ArrayList<>(properties.getMaxGroupCommit());
+        while (running || !queue.isEmpty()) {
+            try {
+                Command<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(group, properties.getMaxGroupCommit() - 1);
+
+            long started = System.nanoTime();
+            group.forEach(Command::run);
+            try {
+                applied.forEach(wal::append);
+                wal.sync();
+            } catch (RuntimeException e) {
+                halt(e, group);
+                return;
+            }
+            flusher.enqueue(applied);
+            group.forEach(Command::complete);
+            groupCommitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            groupSize.record(group.size());
+
+            applied.clear();
+            group.clear();
+        }
+    }
+
+    private void halt(RuntimeException cause, List<Command<?>> group) {
+        log.error("Write-ahead log failed, the transfer engine stops accepting transfers", cause);
+        failure = new IllegalStateException("Transfer engine halted: write-ahead log failed", cause);
+        running = false;
+        group.forEach(command -> command.future.completeExceptionally(failure));
+    }
+
+    private void rejectQueued() {
+        RuntimeException rejection = failure != null ? failure : new IllegalStateException("Transfer engine is not running");
+        for (Command<?> command = queue.poll(); command != null; command = queue.poll()) {
+            command.future.completeExceptionally(rejection);
+        }
+    }
+
+    private TransferRecord apply(long source, String sourceNumber, long destination, String destinationNumber, long amount) {
+        int sourceSlot = store.find(source);
+        if (sourceSlot < 0) {
+            throw new UnknownAccountException("source", sourceNumber);
+        }
+        int destinationSlot = store.find(destination);
+        if (destinationSlot < 0) {
+            throw new UnknownAccountException("destination", destinationNumber);
+        }
+        long sourceBalance = store.balance(sourceSlot);
+        if (sourceBalance < amount) {
+            throw new InsufficientFundsException("Insufficient funds on source account");
+        }
+        sourceBalance -= amount;
+        long destinationBalance = Math.addExact(store.balance(destinationSlot), amount);
+        store.setBalance(sourceSlot, sourceBalance);
+        store.setBalance(destinationSlot, destinationBalance);
+
+        return new TransferRecord(nextId++, store.id(sourceSlot), store.id(destinationSlot), amount,
+                TransferRecord.toMicros(LocalDateTime.now()), sourceBalance, destinationBalance,
+                store.number(sourceSlot), store.number(destinationSlot), store.ownerId(sourceSlot));
+    }
+
+    private void undo(List<TransferRecord> records) {
+        for (TransferRecord record : records.reversed()) {
+            int source = store.find(AccountStore.pack(record.sourceNumber()));
+            int destination = store.find(AccountStore.pack(record.destinationNumber()));
+            store.setBalance(source, record.sourceBalance() + record.amount());
+            store.setBalance(destination, record.destinationBalance() - record.amount());
+        }
+        nextId -= records.size();
+    }
+
+    private <T> T submit(Supplier<T> operation) {
+        if (failure != null) {
+            throw failure;
+        }
+        if (!running) {
+            throw new IllegalStateException("Transfer engine is not running");
+        }
+        Command<T> command = new Command<>(operation);
+        try {
+            // Blocks while the queue is full: backpressure on the callers instead of unbounded memory
+            queue.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a transfer", e);
+        }
+        if (stopped) {
+            // The thread exited while this command was being queued
+            rejectQueued();
+        }
+        try {
+            return command.future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private List<AccountRow> queryAccounts(String where, List<?> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(keys.size(), "?"));
+        return jdbcTemplate.query(ACCOUNT_COLUMNS + where + "(" + placeholders + ")",
+                (rs, rowNum) -> new AccountRow(
+                        rs.getLong(1),
+                        rs.getString(2),
+                        rs.getLong(3),
+                        Money.of(rs.getBigDecimal(4)).minorUnits()),
+                keys.toArray());
+    }
+
+    /**
+     * A validated transfer of a batch, in minor units.
+     */
+    record Item(String sourceNumber, String destinationNumber, long amount) {}
+
+    /**
+     * @param balance account row plus balance shards, in minor units
+     */
+    private record AccountRow(long id, String number, long ownerId, long balance) {}
+
+    /**
+     * An operation run on the sequencer thread; its caller is released once the operation's group is durable.
+     */
+    private static final class Command<T> {
+
+        private final Supplier<T> operation;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private RuntimeException error;
+
+        Command(Supplier<T> operation) {
+            this.operation = operation;
+        }
+
+        void run() {
+            try {
+                result = operation.get();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.bpt.engine;
+
+/**
+ * An account the engine has not loaded yet (or that does not exist).
+ */
+class UnknownAccountException extends RuntimeException {
+
+    private final String accountNumber;
+
+    UnknownAccountException(String type, String accountNumber) {
+        super(type + " account not found: " + accountNumber, null, false, false);
+        this.accountNumber = accountNumber;
+    }
+
+    String accountNumber() {
+        return accountNumber;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.bpt.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of applied transfers in memory-mapped segment files ({@code wal-<first transfer id>.log}).
+ * <pre>
+ * record (64 bytes): transferId | sourceId | destinationId | amount | timestamp (micros) | source balance
+ *                    | destination balance (7 longs) | CRC32C of those 56 bytes (int) | padding (int)
+ * </pre>
+ * Segments are preallocated (zero-filled), so the end of the log is the first record whose checksum does
+ * not match: either never written or torn by a crash. Appends only touch the mapping; {@link #sync()}
+ * forces the range written since the previous call, so a whole group of transfers costs one flush.
+ * <p>
+ * Appends and syncs come from the sequencer thread only; {@link #releaseUpTo} may be called from another.
+ */
+@Slf4j
+final class WriteAheadLog implements AutoCloseable {
+
+    static final int RECORD_SIZE = 64;
+    private static final int BODY_SIZE = 56;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean sync;
+
+    /** Segments no longer appended to, oldest first; guarded by itself. */
+    private final List<Segment> closed = new ArrayList<>();
+    private volatile Segment current;
+    private int dirtyFrom;
+
+    WriteAheadLog(Path directory, long segmentSize, boolean sync) {
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE - RECORD_SIZE, segmentSize) / RECORD_SIZE * RECORD_SIZE;
+        this.sync = sync;
+        if (this.segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("WAL segment size must hold at least one record");
+        }
+    }
+
+    /**
+     * Reads every intact record, oldest first, and registers the existing segments for release. Appends go
+     * to a fresh segment afterwards, so nothing is ever written behind a torn tail.
+     *
+     * @return the highest transfer id in the log, or 0 if it is empty
+     */
+    long recover(Consumer<TransferRecord> consumer) {
+        long lastId = 0;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(WriteAheadLog::isSegment)
+                        .sorted((a, b) -> Long.compare(firstIdOf(a), firstIdOf(b)))
+                        .toList();
+            }
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    buffer.order(ByteOrder.LITTLE_ENDIAN);
+                    for (int position = 0; position + RECORD_SIZE <= buffer.limit(); position += RECORD_SIZE) {
+                        TransferRecord record = read(buffer, position);
+                        if (record == null) {
+                            break;
+                        }
+                        lastId = record.id();
+                        consumer.accept(record);
+                    }
+                }
+                synchronized (closed) {
+                    closed.add(new Segment(file, firstIdOf(file), null, null));
+                }
+            }
+            log.info("Recovered write-ahead log from {} segment(s) in {}, last transfer id {}", files.size(), directory, lastId);
+            return lastId;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read write-ahead log in " + directory, e);
+        }
+    }
+
+    void append(TransferRecord record) {
+        if (current == null || current.buffer.position() == segmentSize) {
+            roll(record.id());
+        }
+        MappedByteBuffer buffer = current.buffer;
+        int start = buffer.position();
+        buffer.putLong(record.id())
+                .putLong(record.sourceId())
+                .putLong(record.destinationId())
+                .putLong(record.amount())
+                .putLong(record.timestampMicros())
+                .putLong(record.sourceBalance())
+                .putLong(record.destinationBalance());
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start, BODY_SIZE));
+        buffer.putInt((int) crc.getValue()).putInt(0);
+    }
+
+    /**
+     * Makes everything appended so far durable (a no-op with {@code bpt.engine.wal-sync=false}).
+     */
+    void sync() {
+        if (current == null) {
+            return;
+        }
+        int position = current.buffer.position();
+        if (sync && position > dirtyFrom) {
+            current.buffer.force(dirtyFrom, position - dirtyFrom);
+        }
+        dirtyFrom = position;
+    }
+
+    /**
+     * Deletes the segments whose records are all at or below {@code transferId}, i.e. already in the database.
+     */
+    void releaseUpTo(long transferId) {
+        List<Segment> released = new ArrayList<>();
+        synchronized (closed) {
+            // A closed segment ends where the next one (closed or current) begins
+            while (!closed.isEmpty()) {
+                long nextFirstId = closed.size() > 1 ? closed.get(1).firstId()
+                        : current != null ? current.firstId() : Long.MAX_VALUE;
+                if (nextFirstId - 1 > transferId) {
+                    break;
+                }
+                released.add(closed.remove(0));
+            }
+        }
+        for (Segment segment : released) {
+            try {
+                Files.deleteIfExists(segment.file());
+            } catch (IOException e) {
+                log.warn("Cannot delete write-ahead log segment {}: {}", segment.file(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (current != null) {
+            sync();
+            closeChannel(current);
+        }
+    }
+
+    private void roll(long firstId) {
+        if (current != null) {
+            sync();
+            closeChannel(current);
+        }
+        Path file = directory.resolve(String.format("wal-%020d.log", firstId));
+        try {
+            Files.createDirectories(directory);
+            // A segment of that name can only exist if none of its records survived; it is rewritten
+            synchronized (closed) {
+                closed.removeIf(segment -> segment.file().equals(file));
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            Segment previous = current;
+            current = new Segment(file, firstId, channel, buffer);
+            if (previous != null) {
+                synchronized (closed) {
+                    closed.add(previous);
+                }
+            }
+            dirtyFrom = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create write-ahead log segment " + file, e);
+        }
+    }
+
+    private static void closeChannel(Segment segment) {
+        try {
+            segment.channel().close();
+        } catch (IOException e) {
+            log.warn("Cannot close write-ahead log segment {}: {}", segment.file(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the record at {@code position}, or null at the end of the log
+     */
+    private static TransferRecord read(MappedByteBuffer buffer, int position) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position, BODY_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(position + BODY_SIZE) || buffer.getLong(position) == 0) {
+            return null;
+        }
+        return new TransferRecord(
+                buffer.getLong(position),
+                buffer.getLong(position + 8),
+                buffer.getLong(position + 16),
+                buffer.getLong(position + 24),
+                buffer.getLong(position + 32),
+                buffer.getLong(position + 40),
+                buffer.getLong(position + 48),
+                null, null, 0);
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith("wal-") && name.endsWith(".log");
+    }
+
+    private static long firstIdOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("wal-".length(), name.length() - ".log".length()));
+    }
+
+    /**
+     * @param channel null for segments found at recovery (already closed)
+     */
+    private record Segment(Path file, long firstId, FileChannel channel, MappedByteBuffer buffer) {}
+}
@@ -3,9 +3,13 @@ package com.example.bpt.event;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * @param transferId id of the {@code transfer} row; consumers use it to apply each event once
+ */
 public record TransferCompletedEvent(
+        Long transferId,
         String sourceAccount,
         String destinationAccount,
         BigDecimal amount,
         LocalDateTime timestamp
-) {}
\ No newline at end of file
+) {}
@@ -1,12 +1,16 @@
 package com.example.bpt.exception;
 
-import org.apache.kafka.common.errors.ResourceNotFoundException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -19,18 +23,56 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
+    // 400 - Bad Request (query/path parameter of the wrong type, e.g. an unknown enum value)
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<Object> handleTypeMismatch(MethodArgumentTypeMismatchException ex, WebRequest request) {
+        return buildResponse(HttpStatus.BAD_REQUEST, "Invalid value for parameter '" + ex.getName() + "'");
+    }
+
+    // 400 - Bad Request (unreadable body, e.g. an amount with more than two decimals)
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Object> handleNotReadable(HttpMessageNotReadableException ex, WebRequest request) {
+        String detail = ex.getCause() instanceof JsonMappingException mapping ? mapping.getOriginalMessage() : "malformed JSON";
+        return buildResponse(HttpStatus.BAD_REQUEST, "Invalid request body: " + detail);
+    }
+
     // 404 - Not Found
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<Object> handleResourceNotFound(ResourceNotFoundException ex, WebRequest request) {
         return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
+    // 409 - Conflict
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Object> handleIdempotencyConflict(IdempotencyConflictException ex, WebRequest request) {
+        return buildResponse(HttpStatus.CONFLICT, ex.getMessage());
+    }
+
+    // 429 - Too Many Requests (the client should come back after Retry-After seconds)
+    @ExceptionHandler(TransferQueueFullException.class)
+    public ResponseEntity<Object> handleQueueFull(TransferQueueFullException ex, WebRequest request) {
+        return tooManyRequests(ex.getMessage(), ex.getRetryAfter());
+    }
+
+    // 429 - Too Many Requests (an account or user velocity limit)
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Object> handleRateLimitExceeded(RateLimitExceededException ex, WebRequest request) {
+        return tooManyRequests(ex.getMessage(), ex.getRetryAfter());
+    }
+
     // 500 - General server error
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAll(Exception ex, WebRequest request) {
         return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected server error: " + ex.getMessage());
     }
 
+    private ResponseEntity<Object> tooManyRequests(String message, Duration retryAfter) {
+        long retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(buildResponse(HttpStatus.TOO_MANY_REQUESTS, message).getBody());
+    }
+
     private ResponseEntity<Object> buildResponse(HttpStatus status, String message) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("timestamp", LocalDateTime.now());
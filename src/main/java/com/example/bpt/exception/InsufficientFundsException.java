@@ -0,0 +1,12 @@
+package com.example.bpt.exception;
+
+/**
+ * The source account balance does not cover the transfer amount. Still a 400 (it extends
+ * {@link IllegalArgumentException}), but distinguishable for metrics and callers.
+ */
+public class InsufficientFundsException extends IllegalArgumentException {
+
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
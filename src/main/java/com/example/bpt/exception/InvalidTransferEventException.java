@@ -0,0 +1,16 @@
+package com.example.bpt.exception;
+
+/**
+ * A {@code transfer-events} record that can never be projected (unreadable or incomplete payload).
+ * Not retried: the record goes straight to the dead-letter topic.
+ */
+public class InvalidTransferEventException extends RuntimeException {
+
+    public InvalidTransferEventException(String message) {
+        super(message);
+    }
+
+    public InvalidTransferEventException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
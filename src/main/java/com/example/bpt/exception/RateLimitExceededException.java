@@ -0,0 +1,20 @@
+package com.example.bpt.exception;
+
+import java.time.Duration;
+
+/**
+ * A transfer would exceed an account or user velocity limit; answered with 429 and a Retry-After header.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
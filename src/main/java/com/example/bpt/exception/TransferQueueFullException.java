@@ -0,0 +1,20 @@
+package com.example.bpt.exception;
+
+import java.time.Duration;
+
+/**
+ * The asynchronous transfer queue cannot take another transfer; answered with 429 and a Retry-After header.
+ */
+public class TransferQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TransferQueueFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
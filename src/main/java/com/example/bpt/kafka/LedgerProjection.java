@@ -0,0 +1,50 @@
+package com.example.bpt.kafka;
+
+import com.example.bpt.event.TransferCompletedEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes transfer events into the {@code ledger_entry} projection: a debit row for the source account and
+ * a credit row for the destination, per event.
+ * <p>
+ * A group of events is written as one JDBC batch in one transaction. {@code INSERT IGNORE} against the
+ * (transfer_id, account_number) key makes redelivered events (at-least-once relay and consumer) no-ops.
+ */
+@Component
+public class LedgerProjection {
+
+    private static final String INSERT_SQL = "insert ignore into ledger_entry "
+            + "(transfer_id, account_number, counterparty_account, amount, transfer_timestamp, projected_at) "
+            + "values (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public LedgerProjection(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Projects the events in the given order; returns once the rows are committed.
+     */
+    public void project(List<TransferCompletedEvent> events) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(events.size() * 2);
+        for (TransferCompletedEvent event : events) {
+            Timestamp at = Timestamp.valueOf(event.timestamp());
+            rows.add(new Object[]{event.transferId(), event.sourceAccount(), event.destinationAccount(),
+                    event.amount().negate(), at, now});
+            rows.add(new Object[]{event.transferId(), event.destinationAccount(), event.sourceAccount(),
+                    event.amount(), at, now});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+    }
+}
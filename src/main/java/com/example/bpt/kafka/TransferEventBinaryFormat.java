@@ -0,0 +1,228 @@
+package com.example.bpt.kafka;
+
+import com.example.bpt.event.TransferCompletedEvent;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding of {@link TransferCompletedEvent}, roughly a quarter of its JSON size.
+ * <pre>
+ * magic (0xBE) | version (1) | presence bits (1 byte, one per field)
+ * transferId   zig-zag varint
+ * accounts     0 + varint of the 18 digits of a normalized number (ddd-ddddddddddddd-dd), or 1 + length + UTF-8
+ * amount       zig-zag varint scale, then 0 + zig-zag varint unscaled value, or 1 + length + two's complement
+ * timestamp    zig-zag varint epoch second (UTC), varint nano of second
+ * </pre>
+ * The magic byte can never start a JSON document, so readers tell the two formats apart by the first byte.
+ */
+public final class TransferEventBinaryFormat {
+
+    public static final byte MAGIC = (byte) 0xBE;
+    private static final byte VERSION = 1;
+
+    private static final int HAS_TRANSFER_ID = 1;
+    private static final int HAS_SOURCE = 1 << 1;
+    private static final int HAS_DESTINATION = 1 << 2;
+    private static final int HAS_AMOUNT = 1 << 3;
+    private static final int HAS_TIMESTAMP = 1 << 4;
+
+    private static final byte PACKED = 0;
+    private static final byte INLINE = 1;
+
+    private static final int ACCOUNT_LENGTH = 20;
+    private static final int[] ACCOUNT_DIGITS = {0, 1, 2, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 18, 19};
+
+    private TransferEventBinaryFormat() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(TransferCompletedEvent event) {
+        Output out = new Output();
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write((event.transferId() != null ? HAS_TRANSFER_ID : 0)
+                | (event.sourceAccount() != null ? HAS_SOURCE : 0)
+                | (event.destinationAccount() != null ? HAS_DESTINATION : 0)
+                | (event.amount() != null ? HAS_AMOUNT : 0)
+                | (event.timestamp() != null ? HAS_TIMESTAMP : 0));
+
+        if (event.transferId() != null) {
+            out.writeSignedVarLong(event.transferId());
+        }
+        if (event.sourceAccount() != null) {
+            writeAccount(out, event.sourceAccount());
+        }
+        if (event.destinationAccount() != null) {
+            writeAccount(out, event.destinationAccount());
+        }
+        if (event.amount() != null) {
+            BigDecimal amount = event.amount();
+            out.writeSignedVarLong(amount.scale());
+            BigInteger unscaled = amount.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE) {
+                out.write(PACKED);
+                out.writeSignedVarLong(unscaled.longValue());
+            } else {
+                out.write(INLINE);
+                out.writeBytes(unscaled.toByteArray());
+            }
+        }
+        if (event.timestamp() != null) {
+            out.writeSignedVarLong(event.timestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeVarLong(event.timestamp().getNano());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws SerializationException if the data is not a supported version of this format
+     */
+    public static TransferCompletedEvent decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.get() != MAGIC || in.get() != VERSION) {
+                throw new SerializationException("Not a version " + VERSION + " binary transfer event");
+            }
+            int present = in.get();
+            Long transferId = (present & HAS_TRANSFER_ID) != 0 ? readSignedVarLong(in) : null;
+            String source = (present & HAS_SOURCE) != 0 ? readAccount(in) : null;
+            String destination = (present & HAS_DESTINATION) != 0 ? readAccount(in) : null;
+            BigDecimal amount = null;
+            if ((present & HAS_AMOUNT) != 0) {
+                int scale = Math.toIntExact(readSignedVarLong(in));
+                BigInteger unscaled = in.get() == PACKED
+                        ? BigInteger.valueOf(readSignedVarLong(in))
+                        : new BigInteger(readBytes(in));
+                amount = new BigDecimal(unscaled, scale);
+            }
+            LocalDateTime timestamp = null;
+            if ((present & HAS_TIMESTAMP) != 0) {
+                long epochSecond = readSignedVarLong(in);
+                timestamp = LocalDateTime.ofEpochSecond(epochSecond, Math.toIntExact(readVarLong(in)), ZoneOffset.UTC);
+            }
+            return new TransferCompletedEvent(transferId, source, destination, amount, timestamp);
+        } catch (BufferUnderflowException | ArithmeticException | DateTimeException e) {
+            throw new SerializationException("Malformed binary transfer event", e);
+        }
+    }
+
+    private static void writeAccount(Output out, String number) {
+        if (isNormalized(number)) {
+            long packed = 0;
+            for (int index : ACCOUNT_DIGITS) {
+                packed = packed * 10 + (number.charAt(index) - '0');
+            }
+            out.write(PACKED);
+            out.writeVarLong(packed);
+        } else {
+            out.write(INLINE);
+            out.writeBytes(number.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String readAccount(ByteBuffer in) {
+        if (in.get() != PACKED) {
+            return new String(readBytes(in), StandardCharsets.UTF_8);
+        }
+        long packed = readVarLong(in);
+        char[] number = new char[ACCOUNT_LENGTH];
+        number[3] = '-';
+        number[17] = '-';
+        for (int i = ACCOUNT_DIGITS.length - 1; i >= 0; i--) {
+            number[ACCOUNT_DIGITS[i]] = (char) ('0' + packed % 10);
+            packed /= 10;
+        }
+        return new String(number);
+    }
+
+    private static boolean isNormalized(String number) {
+        if (number.length() != ACCOUNT_LENGTH || number.charAt(3) != '-' || number.charAt(17) != '-') {
+            return false;
+        }
+        for (int index : ACCOUNT_DIGITS) {
+            char c = number.charAt(index);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Varint too long");
+    }
+
+    private static long readSignedVarLong(ByteBuffer in) {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = Math.toIntExact(readVarLong(in));
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Growable byte array; a typical event fits the initial capacity.
+     */
+    private static final class Output {
+
+        private byte[] buffer = new byte[48];
+        private int size;
+
+        void write(int b) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            for (byte b : bytes) {
+                write(b);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
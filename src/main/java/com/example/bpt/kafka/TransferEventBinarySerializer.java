@@ -0,0 +1,16 @@
+package com.example.bpt.kafka;
+
+import com.example.bpt.event.TransferCompletedEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Writes {@link TransferCompletedEvent}s in {@link TransferEventBinaryFormat}. Enable with
+ * {@code spring.kafka.producer.value-serializer} once every consumer reads with {@link TransferEventDeserializer}.
+ */
+public class TransferEventBinarySerializer implements Serializer<TransferCompletedEvent> {
+
+    @Override
+    public byte[] serialize(String topic, TransferCompletedEvent event) {
+        return event == null ? null : TransferEventBinaryFormat.encode(event);
+    }
+}
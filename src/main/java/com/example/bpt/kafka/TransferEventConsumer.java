@@ -1,17 +1,150 @@
 package com.example.bpt.kafka;
 
+import com.example.bpt.config.LedgerProperties;
 import com.example.bpt.event.TransferCompletedEvent;
+import com.example.bpt.exception.InvalidTransferEventException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes {@code transfer-events} in batches and feeds them into the ledger projection.
+ * <ul>
+ *     <li>Each poll is split into {@code bpt.ledger.parallelism} groups by record key (the source account;
+ *     events without a key fall back to the event's source account). Groups are written concurrently, and
+ *     records within a group keep their partition order, so per-account order is preserved.</li>
+ *     <li>The listener returns only after every group has committed, and the container commits the batch's
+ *     offsets after that (ack mode BATCH), so an offset is never committed ahead of its ledger rows.</li>
+ *     <li>A record that cannot be projected (unreadable or incomplete) ends the batch at its index: the
+ *     records before it are projected and committed, the poison record goes to {@code transfer-events.DLT},
+ *     and the rest is redelivered. Any other failure redelivers the whole batch; writes are idempotent.</li>
+ * </ul>
+ */
 @Slf4j
 @Service
 public class TransferEventConsumer {
 
-    @KafkaListener(topics = "transfer-events", groupId = "bpt-consumer-group")
-    public void consumeTransferCompletedEvent(TransferCompletedEvent event) {
-        log.info("✅ Kafka message received → Source: {}, Destination: {}, Amount: {}, Timestamp: {}",
-                event.sourceAccount(), event.destinationAccount(), event.amount(), event.timestamp());
+    private static final LogAccessor LOGGER = new LogAccessor(TransferEventConsumer.class);
+
+    private final LedgerProjection ledgerProjection;
+    private final LedgerProperties properties;
+    private final ExecutorService executor;
+
+    private final Counter projectedCounter;
+    private final Timer batchTimer;
+    private final Timer eventLag;
+
+    public TransferEventConsumer(LedgerProjection ledgerProjection,
+                                 LedgerProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.ledgerProjection = ledgerProjection;
+        this.properties = properties;
+        this.executor = Executors.newFixedThreadPool(properties.getParallelism(),
+                Thread.ofVirtual().name("ledger-projection-", 0).factory());
+
+        this.projectedCounter = Counter.builder("bpt.ledger.events")
+                .description("Transfer events projected into the ledger")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("bpt.ledger.batch")
+                .description("Time to project one polled batch of transfer events")
+                .register(meterRegistry);
+        this.eventLag = Timer.builder("bpt.ledger.event.lag")
+                .description("Time from the event being produced to its ledger rows being committed")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = TransferEventProducer.TOPIC, groupId = "bpt-consumer-group")
+    public void consumeTransferCompletedEvents(List<ConsumerRecord<String, TransferCompletedEvent>> records) {
+        batchTimer.record(() -> {
+            // Only the records ahead of the first poison record are projected in this round
+            int poison = firstInvalid(records);
+            List<ConsumerRecord<String, TransferCompletedEvent>> valid = records.subList(0, poison < 0 ? records.size() : poison);
+
+            project(valid);
+
+            long now = System.currentTimeMillis();
+            for (ConsumerRecord<String, TransferCompletedEvent> record : valid) {
+                eventLag.record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+            }
+            projectedCounter.increment(valid.size());
+            log.debug("Projected {} transfer events into the ledger", valid.size());
+
+            if (poison >= 0) {
+                ConsumerRecord<String, TransferCompletedEvent> record = records.get(poison);
+                throw new BatchListenerFailedException("Invalid transfer event at " + record.topic() + "-"
+                        + record.partition() + "@" + record.offset(), invalidCause(record), poison);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void project(List<ConsumerRecord<String, TransferCompletedEvent>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        int parallelism = Math.min(properties.getParallelism(), records.size());
+        List<List<TransferCompletedEvent>> groups = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (ConsumerRecord<String, TransferCompletedEvent> record : records) {
+            String key = record.key() != null ? record.key() : record.value().sourceAccount();
+            groups.get(Math.floorMod(key.hashCode(), parallelism)).add(record.value());
+        }
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>(parallelism);
+        for (List<TransferCompletedEvent> group : groups) {
+            if (!group.isEmpty()) {
+                writes.add(CompletableFuture.runAsync(() -> ledgerProjection.project(group), executor));
+            }
+        }
+        try {
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // Some groups may have committed; the redelivered batch skips their rows
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private static int firstInvalid(List<ConsumerRecord<String, TransferCompletedEvent>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            TransferCompletedEvent event = records.get(i).value();
+            if (event == null || event.transferId() == null || event.sourceAccount() == null
+                    || event.destinationAccount() == null || event.amount() == null || event.timestamp() == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static InvalidTransferEventException invalidCause(ConsumerRecord<String, TransferCompletedEvent> record) {
+        if (record.value() != null) {
+            return new InvalidTransferEventException("Incomplete transfer event: " + record.value());
+        }
+        // ErrorHandlingDeserializer hands unreadable payloads over as null, with the failure in a header
+        DeserializationException failure = SerializationUtils.getExceptionFromHeader(
+                record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOGGER);
+        return new InvalidTransferEventException("Unreadable transfer event", failure);
     }
 }
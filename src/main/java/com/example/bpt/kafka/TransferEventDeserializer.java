@@ -0,0 +1,44 @@
+package com.example.bpt.kafka;
+
+import com.example.bpt.event.TransferCompletedEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Reads {@link TransferCompletedEvent}s in either format, chosen per record by the first byte: the binary
+ * magic byte, or JSON (delegated to {@link JsonDeserializer}, configured from the same {@code spring.json.*}
+ * properties). Lets producers switch formats without coordinating with consumers.
+ */
+public class TransferEventDeserializer implements Deserializer<TransferCompletedEvent> {
+
+    private final JsonDeserializer<TransferCompletedEvent> json = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public TransferCompletedEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public TransferCompletedEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (TransferEventBinaryFormat.isBinary(data)) {
+            return TransferEventBinaryFormat.decode(data);
+        }
+        return headers == null ? json.deserialize(topic, data) : json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -1,21 +1,54 @@
 package com.example.bpt.kafka;
 
 import com.example.bpt.event.TransferCompletedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransferEventProducer {
 
+    public static final String TOPIC = "transfer-events";
+
     private final KafkaTemplate<String, TransferCompletedEvent> kafkaTemplate;
-    private static final String TOPIC = "transfer-events";
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Hands the event to the Kafka producer without waiting for the broker. The record is keyed by source
+     * account, so all events of an account land on one partition, in order.
+     *
+     * Send-to-acknowledgement time is recorded in {@code bpt.kafka.send} (tagged by outcome); failed sends are
+     * also counted in {@code bpt.kafka.send.failures}, tagged with the exception type.
+     *
+     * @return future completed when the broker acknowledges the record
+     */
+    public CompletableFuture<SendResult<String, TransferCompletedEvent>> sendTransferCompletedEvent(TransferCompletedEvent event) {
+        log.debug("Sending Kafka event to topic {} -> {}", TOPIC, event);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return kafkaTemplate.send(TOPIC, event.sourceAccount(), event).whenComplete((result, ex) -> {
+            sample.stop(meterRegistry.timer("bpt.kafka.send", "topic", TOPIC, "outcome", ex == null ? "success" : "failure"));
+            if (ex != null) {
+                meterRegistry.counter("bpt.kafka.send.failures",
+                        "topic", TOPIC,
+                        "exception", rootCause(ex).getClass().getSimpleName()).increment();
+            }
+        });
+    }
 
-    public void sendTransferCompletedEvent(TransferCompletedEvent event) {
-        log.info("Sending Kafka event to topic {} -> {}", TOPIC, event);
-        kafkaTemplate.send(TOPIC, event);
+    private static Throwable rootCause(Throwable ex) {
+        // KafkaTemplate wraps the producer exception in a KafkaProducerException
+        Throwable cause = ex;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
     }
 }
@@ -0,0 +1,209 @@
+package com.example.bpt.kafka;
+
+import com.example.bpt.config.OutboxProperties;
+import com.example.bpt.event.TransferCompletedEvent;
+import com.example.bpt.model.OutboxEvent;
+import com.example.bpt.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes outbox rows to Kafka, at least once.
+ * <p>
+ * Each round trip claims a batch of pending rows (SKIP LOCKED, so relay instances do not block each other),
+ * sends them all without waiting in between, waits for the acknowledgements once, and marks the acknowledged
+ * rows as published in the same transaction. Rows whose send failed stay pending and are retried after an
+ * exponential backoff; after {@code bpt.outbox.max-attempts} failures they are parked (see {@code bpt.outbox.parked})
+ * until an operator clears {@code parked_at}.
+ */
+@Slf4j
+@Component
+public class TransferOutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransferEventProducer transferEventProducer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter parkedCounter;
+    private final Timer batchTimer;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong parked = new AtomicLong();
+
+    public TransferOutboxRelay(OutboxEventRepository outboxEventRepository,
+                               TransferEventProducer transferEventProducer,
+                               ObjectMapper objectMapper,
+                               TransactionTemplate transactionTemplate,
+                               OutboxProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.transferEventProducer = transferEventProducer;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+
+        this.publishedCounter = Counter.builder("bpt.outbox.published")
+                .description("Outbox events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("bpt.outbox.publish.failures")
+                .description("Outbox events whose Kafka send failed and will be retried")
+                .register(meterRegistry);
+        this.parkedCounter = Counter.builder("bpt.outbox.parkings")
+                .description("Outbox events parked after exhausting their send attempts")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("bpt.outbox.relay.batch")
+                .description("Time to claim, send and mark one outbox batch")
+                .register(meterRegistry);
+        Gauge.builder("bpt.outbox.backlog", backlog, AtomicLong::get)
+                .description("Outbox events not yet published")
+                .register(meterRegistry);
+        Gauge.builder("bpt.outbox.lag", lagMillis, value -> value.get() / 1000.0)
+                .description("Age of the oldest unpublished outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("bpt.outbox.parked", parked, AtomicLong::get)
+                .description("Outbox events no longer relayed after too many failed sends")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${bpt.outbox.poll-interval-ms:100}")
+    public void relay() {
+        if (!properties.isRelayEnabled()) {
+            return;
+        }
+        for (int i = 0; i < properties.getMaxBatchesPerPoll(); i++) {
+            Integer relayed = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+            if (relayed == null || relayed < properties.getBatchSize()) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bpt.outbox.metrics-interval-ms:5000}")
+    public void refreshMetrics() {
+        backlog.set(outboxEventRepository.countByPublishedAtIsNullAndParkedAtIsNull());
+        parked.set(outboxEventRepository.countByParkedAtIsNotNull());
+        lagMillis.set(outboxEventRepository.findFirstByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc()
+                .map(event -> Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis())
+                .orElse(0L));
+    }
+
+    @Scheduled(fixedDelayString = "${bpt.outbox.cleanup-interval-ms:600000}")
+    public void purgePublished() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minus(properties.getRetention())));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+
+    /**
+     * @return number of rows claimed in this batch
+     */
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.claimPending(LocalDateTime.now(),
+                Limit.of(properties.getBatchSize()));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Fire all sends first so the producer can batch them, then wait for the acknowledgements once
+        List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            sends.add(send(event));
+        }
+        awaitQuietly(CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)));
+
+        List<Long> published = new ArrayList<>(events.size());
+        List<OutboxEvent> failed = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            CompletableFuture<?> send = sends.get(i);
+            if (send.isDone() && !send.isCompletedExceptionally()) {
+                published.add(events.get(i).getId());
+            } else {
+                failed.add(events.get(i));
+            }
+        }
+
+        if (!published.isEmpty()) {
+            outboxEventRepository.markPublished(published, LocalDateTime.now());
+            publishedCounter.increment(published.size());
+        }
+        if (!failed.isEmpty()) {
+            failedCounter.increment(failed.size());
+            log.warn("Failed to publish {} of {} outbox events; they will be retried", failed.size(), events.size());
+            scheduleRetries(failed);
+        }
+        return events.size();
+    }
+
+    /**
+     * Backs the failed rows off exponentially, or parks them once they ran out of attempts. The claimed
+     * rows are managed entities, so the changes are flushed when the batch transaction commits.
+     */
+    private void scheduleRetries(List<OutboxEvent> failed) {
+        LocalDateTime now = LocalDateTime.now();
+        int parkedNow = 0;
+        for (OutboxEvent event : failed) {
+            event.setAttempts(event.getAttempts() + 1);
+            if (event.getAttempts() >= properties.getMaxAttempts()) {
+                event.setParkedAt(now);
+                parkedNow++;
+            } else {
+                event.setNextAttemptAt(now.plus(backoff(event.getAttempts())));
+            }
+        }
+        if (parkedNow > 0) {
+            parkedCounter.increment(parkedNow);
+            log.error("Parked {} outbox events after {} failed sends; clear parked_at to relay them again",
+                    parkedNow, properties.getMaxAttempts());
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = properties.getRetryBackoff().multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(properties.getMaxRetryBackoff()) > 0 ? properties.getMaxRetryBackoff() : delay;
+    }
+
+    private CompletableFuture<?> send(OutboxEvent event) {
+        try {
+            TransferCompletedEvent payload = objectMapper.readValue(event.getPayload(), TransferCompletedEvent.class);
+            return transferEventProducer.sendTransferCompletedEvent(payload);
+        } catch (JsonProcessingException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void awaitQuietly(CompletableFuture<?> future) {
+        try {
+            future.get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Individual outcomes are inspected per event
+        }
+    }
+}
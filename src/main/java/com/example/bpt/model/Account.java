@@ -3,8 +3,6 @@ package com.example.bpt.model;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "account")
 @Getter
@@ -22,7 +20,20 @@ public class Account {
     private String accountNumber;
 
     @Column(nullable = false, precision = 18, scale = 2)
-    private BigDecimal balance;
+    private Money balance;
+
+    /**
+     * Number of balance shards credits are striped across; 0 means the account is not striped.
+     */
+    @Column(name = "balance_shards", nullable = false)
+    private int balanceShards;
+
+    /**
+     * Optimistic-lock version, bumped on every balance change.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
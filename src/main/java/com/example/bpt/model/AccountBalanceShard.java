@@ -0,0 +1,33 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One stripe of a hot account's balance. Credits to a striped account are spread across its shard rows,
+ * so concurrent credits do not serialize on the single {@code account} row. The account's spendable
+ * balance is {@code account.balance + sum(shard.balance)}.
+ */
+@Entity
+@Table(name = "account_balance_shard",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "shard_index"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalanceShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "shard_index", nullable = false)
+    private int shardIndex;
+
+    @Column(nullable = false, precision = 18, scale = 2)
+    private Money balance;
+}
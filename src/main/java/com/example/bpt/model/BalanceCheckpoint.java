@@ -0,0 +1,39 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last reconciled state of an account: its balance as of {@code asOf}, verified against every transfer up to
+ * that time. The next reconciliation only replays transfers after {@code asOf}. While the account does not
+ * reconcile, the checkpoint stays where it was and {@code drift} holds the difference (actual - expected).
+ */
+@Entity
+@Table(name = "balance_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceCheckpoint {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    /** Null until the account first reconciles; its first transfer's opening balance is the baseline until then. */
+    @Column(precision = 18, scale = 2)
+    private Money balance;
+
+    /** Null together with {@code balance}: nothing verified yet. */
+    @Column(name = "as_of")
+    private LocalDateTime asOf;
+
+    @Column(name = "checked_at", nullable = false)
+    private LocalDateTime checkedAt;
+
+    @Column(nullable = false, precision = 18, scale = 2)
+    private Money drift;
+}
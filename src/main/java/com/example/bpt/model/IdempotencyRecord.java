@@ -0,0 +1,56 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Durable record of a client-supplied Idempotency-Key. The row is inserted (claimed) before the
+ * operation runs, so the primary key doubles as a cross-instance lock, and holds the serialized
+ * response once the operation has completed.
+ */
+@Entity
+@Table(name = "idempotency_key",
+        indexes = @Index(name = "idx_idempotency_key_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String key;
+
+    /**
+     * SHA-256 of the request the key was first used with.
+     */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Lob
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    /**
+     * Also makes Spring Data persist (not merge) a fresh claim, so a duplicate key fails the insert.
+     */
+    @Version
+    private Long version;
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
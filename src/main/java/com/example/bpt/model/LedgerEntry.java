@@ -0,0 +1,48 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One side of a completed transfer in the ledger projection built from {@code transfer-events}: a debit
+ * (negative amount) on the source account and a credit on the destination. Written by
+ * {@link com.example.bpt.kafka.LedgerProjection}; the unique key makes redelivered events no-ops.
+ */
+@Entity
+@Table(name = "ledger_entry",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ledger_entry_transfer_account",
+                columnNames = {"transfer_id", "account_number"}),
+        indexes = @Index(name = "idx_ledger_entry_account", columnList = "account_number, id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transfer_id", nullable = false)
+    private Long transferId;
+
+    @Column(name = "account_number", nullable = false, length = 25)
+    private String accountNumber;
+
+    @Column(name = "counterparty_account", nullable = false, length = 25)
+    private String counterpartyAccount;
+
+    /** Negative for the debit on the source account. */
+    @Column(nullable = false, precision = 18, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "transfer_timestamp", nullable = false)
+    private LocalDateTime transferTimestamp;
+
+    @Column(name = "projected_at", nullable = false)
+    private LocalDateTime projectedAt;
+}
@@ -0,0 +1,127 @@
+package com.example.bpt.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * An amount of money as a count of minor units (cents), the same range and precision as the
+ * {@code DECIMAL(18,2)} columns it is stored in (see {@link MoneyConverter}).
+ * <p>
+ * Arithmetic is plain {@code long} arithmetic: no intermediate objects, and every result is checked against
+ * the column range, so an overflow throws instead of wrapping or failing later at the database.
+ * JSON is read and written as an exact decimal number ({@code 12.50}); input with more than two decimals is rejected.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    /** Largest absolute value a DECIMAL(18,2) column holds, in minor units. */
+    public static final long MAX_MINOR_UNITS = 999_999_999_999_999_999L;
+
+    public static final Money ZERO = new Money(0);
+
+    public Money {
+        if (minorUnits > MAX_MINOR_UNITS || minorUnits < -MAX_MINOR_UNITS) {
+            throw new ArithmeticException("Amount out of range: " + minorUnits + " minor units");
+        }
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @throws ArithmeticException if the value has more than two decimals or is out of range
+     */
+    public static Money of(BigDecimal value) {
+        return ofMinor(value.movePointRight(SCALE).longValueExact());
+    }
+
+    public static Money parse(String value) {
+        return of(new BigDecimal(value));
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * Plain decimal notation with two decimals, e.g. {@code -1234.05}.
+     */
+    @Override
+    public String toString() {
+        long units = Math.abs(minorUnits);
+        long cents = units % 100;
+        return (minorUnits < 0 ? "-" : "") + units / 100 + (cents < 10 ? ".0" : ".") + cents;
+    }
+
+    static final class Serializer extends JsonSerializer<Money> {
+
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(value.toString());
+        }
+    }
+
+    static final class Deserializer extends JsonDeserializer<Money> {
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            BigDecimal value;
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                // Parsed from the number's text, never through a double
+                value = parser.getDecimalValue();
+            } else if (token == JsonToken.VALUE_STRING) {
+                try {
+                    value = new BigDecimal(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw InvalidFormatException.from(parser, "Amount is not a number", parser.getText(), Money.class);
+                }
+            } else {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+            try {
+                return of(value);
+            } catch (ArithmeticException e) {
+                throw InvalidFormatException.from(parser,
+                        "Amount must have at most " + SCALE + " decimal places and fit DECIMAL(18,2): " + value.toPlainString(),
+                        value, Money.class);
+            }
+        }
+    }
+}
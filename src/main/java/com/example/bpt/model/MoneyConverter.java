@@ -0,0 +1,26 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores {@link Money} in the existing {@code DECIMAL(18,2)} columns; applied to every {@code Money} attribute.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    /**
+     * @throws ArithmeticException for a value with more than two decimals, which the column type rules out
+     */
+    @Override
+    public Money convertToEntityAttribute(BigDecimal value) {
+        return value == null ? null : Money.of(value);
+    }
+}
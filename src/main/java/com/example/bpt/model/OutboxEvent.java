@@ -0,0 +1,58 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A pending Kafka message, written in the same transaction as the change it describes and
+ * published later by the outbox relay. Rows with {@code publishedAt == null} are the backlog; rows that
+ * failed too often are parked and left for an operator.
+ */
+@Entity
+@Table(name = "transfer_outbox",
+        indexes = @Index(name = "idx_transfer_outbox_pending", columnList = "published_at, id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfer_outbox_seq")
+    @SequenceGenerator(name = "transfer_outbox_seq", sequenceName = "transfer_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String topic;
+
+    /**
+     * JSON-serialized event payload.
+     */
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * Earliest time of the next send after a failed one; null = as soon as possible.
+     */
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * When the relay gave up on the row after {@code bpt.outbox.max-attempts} failed sends.
+     */
+    @Column(name = "parked_at")
+    private LocalDateTime parkedAt;
+}
@@ -0,0 +1,27 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single row holding the cutoff of the latest reconciliation run that completed for all of its accounts. The next
+ * run looks for accounts with transfers after it; a run that fails part way does not move it, so the accounts of
+ * its failed chunks are picked up again even though other chunks already moved their checkpoints.
+ */
+@Entity
+@Table(name = "reconciliation_watermark")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationWatermark {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "reconciled_before", nullable = false)
+    private LocalDateTime reconciledBefore;
+}
@@ -0,0 +1,26 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single row the primary stamps with the current time; how old the stamp is on the read replica is its
+ * replication lag. Written and read by {@link com.example.bpt.config.ReplicaLagMonitor}.
+ */
+@Entity
+@Table(name = "replica_heartbeat")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplicaHeartbeat {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "beat_at", nullable = false)
+    private LocalDateTime beatAt;
+}
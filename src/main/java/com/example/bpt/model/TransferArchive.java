@@ -0,0 +1,51 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transfer moved out of {@code transfer} once its month passed the retention horizon
+ * ({@code bpt.transfer.archive.*}). Compact: plain ids instead of foreign keys, and no old balances, which
+ * follow from the new ones ({@code old = new + amount} for the source, {@code new - amount} for the destination).
+ * Read-only once written.
+ */
+@Entity
+@Table(name = "transfer_archive", indexes = {
+        @Index(name = "idx_transfer_archive_source_history", columnList = "source_account_id, timestamp, id"),
+        @Index(name = "idx_transfer_archive_destination_history", columnList = "destination_account_id, timestamp, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferArchive {
+
+    /** The id the transfer had in {@code transfer}. */
+    @Id
+    private Long id;
+
+    @Column(name = "source_account_id", nullable = false)
+    private Long sourceAccountId;
+
+    @Column(name = "destination_account_id", nullable = false)
+    private Long destinationAccountId;
+
+    @Column(nullable = false, precision = 18, scale = 2)
+    private Money amount;
+
+    /** Null where {@link Transfer} has none (striped accounts). */
+    @Column(name = "source_new_balance", precision = 18, scale = 2)
+    private Money sourceNewBalance;
+
+    @Column(name = "destination_new_balance", precision = 18, scale = 2)
+    private Money destinationNewBalance;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(name = "performed_by", nullable = false)
+    private Long performedBy;
+}
@@ -0,0 +1,29 @@
+package com.example.bpt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single row holding where the archive ends: transfers before {@code archivedBefore} are read from
+ * {@code transfer_archive}, later ones from {@code transfer}. Moved forward by
+ * {@link com.example.bpt.service.impl.TransferArchiver} only once a month is fully copied, and before the copied
+ * rows leave {@code transfer}, so a reader that takes the watermark and the rows from one snapshot sees every
+ * transfer exactly once.
+ */
+@Entity
+@Table(name = "transfer_archive_watermark")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferArchiveWatermark {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "archived_before", nullable = false)
+    private LocalDateTime archivedBefore;
+}
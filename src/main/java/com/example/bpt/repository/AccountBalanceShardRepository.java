@@ -0,0 +1,36 @@
+package com.example.bpt.repository;
+
+import com.example.bpt.model.AccountBalanceShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceShardRepository extends JpaRepository<AccountBalanceShard, Long> {
+
+    /**
+     * Atomically adds {@code amount} to one shard; only that shard row is locked.
+     *
+     * @return number of updated rows (0 if the shard has not been provisioned yet)
+     */
+    @Modifying
+    @Query(value = "update account_balance_shard set balance = balance + :amount " +
+            "where account_id = :accountId and shard_index = :shardIndex", nativeQuery = true)
+    int credit(@Param("accountId") Long accountId,
+               @Param("shardIndex") int shardIndex,
+               @Param("amount") BigDecimal amount);
+
+    @Query(value = "select coalesce(sum(balance), 0) from account_balance_shard where account_id = :accountId", nativeQuery = true)
+    BigDecimal sumBalance(@Param("accountId") Long accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from AccountBalanceShard s where s.accountId = :accountId order by s.shardIndex")
+    List<AccountBalanceShard> lockByAccountId(@Param("accountId") Long accountId);
+}
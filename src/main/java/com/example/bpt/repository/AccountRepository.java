@@ -1,13 +1,78 @@
 package com.example.bpt.repository;
 
 import com.example.bpt.model.Account;
+import com.example.bpt.repository.projection.AccountBalance;
+import com.example.bpt.repository.projection.AccountBalanceView;
+import com.example.bpt.repository.projection.AccountKey;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
 
     Optional<Account> findByAccountNumber(String accountNumber);
+
+    /**
+     * Loads all accounts with the given numbers in one round trip, without locking.
+     */
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
+    List<Account> findByBalanceShardsGreaterThan(int balanceShards);
+
+    @Query("select new com.example.bpt.repository.projection.AccountKey(a.id, a.accountNumber, a.owner.id) " +
+            "from Account a where a.accountNumber = :accountNumber")
+    Optional<AccountKey> findKeyByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    @Query("select new com.example.bpt.repository.projection.AccountBalanceView(a.balance, a.version, a.balanceShards) " +
+            "from Account a where a.id = :id")
+    Optional<AccountBalanceView> findBalanceById(@Param("id") Long id);
+
+    @Query("select new com.example.bpt.repository.projection.AccountBalance(a.id, a.balance, a.version) " +
+            "from Account a where a.id in :ids")
+    List<AccountBalance> findBalancesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Debits an account row only if it holds at least {@code amount}, in one statement that checks and
+     * updates under the row lock. Returns 0 (and changes nothing) when funds are insufficient.
+     */
+    @Modifying
+    @Query(value = "update account set balance = balance - :amount, version = version + 1 " +
+            "where id = :id and balance >= :amount", nativeQuery = true)
+    int debitIfSufficient(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Credits an account row in place, without loading or locking it first. Bumps the version so
+     * optimistic readers of the same row still detect the change. Native, since JPQL has no arithmetic on
+     * {@code Money} attributes.
+     */
+    @Modifying
+    @Query(value = "update account set balance = balance + :amount, version = version + 1 where id = :id", nativeQuery = true)
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Spendable balance: the account row plus all of its balance shards.
+     */
+    @Query(value = "select a.balance + coalesce((select sum(s.balance) from account_balance_shard s where s.account_id = a.id), 0) " +
+            "from account a where a.id = :id", nativeQuery = true)
+    BigDecimal aggregateBalance(@Param("id") Long id);
+
+    /**
+     * Loads and write-locks (SELECT ... FOR UPDATE) all accounts with the given numbers.
+     * Rows are returned and locked in account number order, so two transactions touching
+     * the same pair of accounts always acquire the locks in the same sequence and cannot deadlock.
+     * Lock waits are bounded by jakarta.persistence.lock.timeout / innodb_lock_wait_timeout.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber in :accountNumbers order by a.accountNumber")
+    List<Account> lockByAccountNumbersOrdered(@Param("accountNumbers") Collection<String> accountNumbers);
 }
@@ -0,0 +1,35 @@
+package com.example.bpt.repository;
+
+import com.example.bpt.dto.AccountDrift;
+import com.example.bpt.model.BalanceCheckpoint;
+import com.example.bpt.model.Money;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+    /**
+     * Cutoff of the latest run that completed for all of its accounts; accounts with transfers after it are what
+     * the next run checks. Empty before the first complete run.
+     */
+    @Query("select w.reconciledBefore from ReconciliationWatermark w")
+    Optional<LocalDateTime> findReconciledBefore();
+
+    /**
+     * Accounts that did not reconcile on their latest check.
+     */
+    default List<AccountDrift> findDrifts() {
+        return findDriftsOtherThan(Money.ZERO);
+    }
+
+    @Query("select new com.example.bpt.dto.AccountDrift(a.accountNumber, c.drift, c.balance, c.asOf, c.checkedAt) " +
+            "from BalanceCheckpoint c, Account a where a.id = c.accountId and c.drift <> :none order by a.accountNumber")
+    List<AccountDrift> findDriftsOtherThan(@Param("none") Money none);
+}
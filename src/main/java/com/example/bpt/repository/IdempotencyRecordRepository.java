@@ -0,0 +1,23 @@
+package com.example.bpt.repository;
+
+import com.example.bpt.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Modifying
+    @Query("update IdempotencyRecord r set r.status = com.example.bpt.model.IdempotencyRecord.Status.COMPLETED, " +
+            "r.response = :response, r.version = r.version + 1 where r.key = :key")
+    int complete(@Param("key") String key, @Param("response") String response);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
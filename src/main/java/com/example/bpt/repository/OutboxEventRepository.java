@@ -0,0 +1,46 @@
+package com.example.bpt.repository;
+
+import com.example.bpt.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Claims the oldest unpublished events that are due at {@code now} and not parked. Rows locked by another
+     * relay instance are skipped (lock timeout -2 = SKIP LOCKED), so several instances can drain the outbox in parallel.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OutboxEvent e where e.publishedAt is null and e.parkedAt is null " +
+            "and (e.nextAttemptAt is null or e.nextAttemptAt <= :now) order by e.id")
+    List<OutboxEvent> claimPending(@Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = :publishedAt where e.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    long countByPublishedAtIsNullAndParkedAtIsNull();
+
+    long countByParkedAtIsNotNull();
+
+    Optional<OutboxEvent> findFirstByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc();
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
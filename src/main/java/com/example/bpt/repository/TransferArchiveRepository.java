@@ -0,0 +1,54 @@
+package com.example.bpt.repository;
+
+import com.example.bpt.dto.TransferHistoryItem;
+import com.example.bpt.model.TransferArchive;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TransferArchiveRepository extends JpaRepository<TransferArchive, Long> {
+
+    /**
+     * Transfers before this time are in the archive (and only there, as far as readers are concerned);
+     * empty while nothing has been archived.
+     */
+    @Query("select w.archivedBefore from TransferArchiveWatermark w")
+    Optional<LocalDateTime> findArchivedBefore();
+
+    /**
+     * Archived counterpart of {@link TransferRepository#findOutgoingPage}, on idx_transfer_archive_source_history.
+     */
+    @Query("select new com.example.bpt.dto.TransferHistoryItem(t.id, com.example.bpt.dto.TransferDirection.OUTGOING, " +
+            "c.accountNumber, t.amount, t.sourceNewBalance, t.timestamp) " +
+            "from TransferArchive t join Account c on c.id = t.destinationAccountId " +
+            "where t.sourceAccountId = :accountId and t.timestamp >= :from " +
+            "and (t.timestamp < :beforeTimestamp or (t.timestamp = :beforeTimestamp and t.id < :beforeId)) " +
+            "order by t.timestamp desc, t.id desc")
+    List<TransferHistoryItem> findOutgoingPage(@Param("accountId") Long accountId,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                               @Param("beforeId") Long beforeId,
+                                               Limit limit);
+
+    /**
+     * Archived counterpart of {@link TransferRepository#findIncomingPage}, on idx_transfer_archive_destination_history.
+     */
+    @Query("select new com.example.bpt.dto.TransferHistoryItem(t.id, com.example.bpt.dto.TransferDirection.INCOMING, " +
+            "c.accountNumber, t.amount, t.destinationNewBalance, t.timestamp) " +
+            "from TransferArchive t join Account c on c.id = t.sourceAccountId " +
+            "where t.destinationAccountId = :accountId and t.timestamp >= :from " +
+            "and (t.timestamp < :beforeTimestamp or (t.timestamp = :beforeTimestamp and t.id < :beforeId)) " +
+            "order by t.timestamp desc, t.id desc")
+    List<TransferHistoryItem> findIncomingPage(@Param("accountId") Long accountId,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                               @Param("beforeId") Long beforeId,
+                                               Limit limit);
+}
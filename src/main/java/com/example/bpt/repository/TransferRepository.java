@@ -1,9 +1,57 @@
 package com.example.bpt.repository;
 
+import com.example.bpt.dto.TransferHistoryItem;
 import com.example.bpt.model.Transfer;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TransferRepository extends JpaRepository<Transfer, Long> {
+
+    /**
+     * A transfer with both accounts in one joined select, for callers that need the account numbers
+     * ({@code findById} leaves them as lazy proxies).
+     */
+    @EntityGraph(attributePaths = {"sourceAccount", "destinationAccount"})
+    Optional<Transfer> findWithAccountsById(Long id);
+
+    /**
+     * Transfers sent by an account, newest first, strictly older than ({@code beforeTimestamp}, {@code beforeId})
+     * and not older than {@code from}. Reads a range of idx_transfer_source_history, so the cost depends on
+     * the page size only, not on how deep the page is.
+     */
+    @Query("select new com.example.bpt.dto.TransferHistoryItem(t.id, com.example.bpt.dto.TransferDirection.OUTGOING, " +
+            "t.destinationAccount.accountNumber, t.amount, t.sourceNewBalance, t.timestamp) " +
+            "from Transfer t " +
+            "where t.sourceAccount.id = :accountId and t.timestamp >= :from " +
+            "and (t.timestamp < :beforeTimestamp or (t.timestamp = :beforeTimestamp and t.id < :beforeId)) " +
+            "order by t.timestamp desc, t.id desc")
+    List<TransferHistoryItem> findOutgoingPage(@Param("accountId") Long accountId,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                               @Param("beforeId") Long beforeId,
+                                               Limit limit);
+
+    /**
+     * Incoming counterpart of {@link #findOutgoingPage}, on idx_transfer_destination_history.
+     */
+    @Query("select new com.example.bpt.dto.TransferHistoryItem(t.id, com.example.bpt.dto.TransferDirection.INCOMING, " +
+            "t.sourceAccount.accountNumber, t.amount, t.destinationNewBalance, t.timestamp) " +
+            "from Transfer t " +
+            "where t.destinationAccount.id = :accountId and t.timestamp >= :from " +
+            "and (t.timestamp < :beforeTimestamp or (t.timestamp = :beforeTimestamp and t.id < :beforeId)) " +
+            "order by t.timestamp desc, t.id desc")
+    List<TransferHistoryItem> findIncomingPage(@Param("accountId") Long accountId,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                               @Param("beforeId") Long beforeId,
+                                               Limit limit);
 }
@@ -3,14 +3,18 @@ package com.example.bpt.repository;
 import com.example.bpt.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    // Read-only, so they are served by the read replica when one is configured
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
 
+    @Transactional(readOnly = true)
     Optional<User> findByEmail(String email);
 
 }
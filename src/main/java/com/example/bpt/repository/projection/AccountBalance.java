@@ -0,0 +1,8 @@
+package com.example.bpt.repository.projection;
+
+import com.example.bpt.model.Money;
+
+/**
+ * An account row's balance and the version it was read at.
+ */
+public record AccountBalance(Long id, Money balance, Long version) {}
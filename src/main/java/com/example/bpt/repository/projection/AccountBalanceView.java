@@ -0,0 +1,8 @@
+package com.example.bpt.repository.projection;
+
+import com.example.bpt.model.Money;
+
+/**
+ * Balance columns of one account row, read without loading the entity.
+ */
+public record AccountBalanceView(Money balance, Long version, int balanceShards) {}
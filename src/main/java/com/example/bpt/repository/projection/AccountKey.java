@@ -0,0 +1,6 @@
+package com.example.bpt.repository.projection;
+
+/**
+ * The parts of an account that never change once it exists.
+ */
+public record AccountKey(Long id, String accountNumber, Long ownerId) {}
@@ -0,0 +1,50 @@
+package com.example.bpt.service;
+
+import com.example.bpt.dto.AccountBalanceResponse;
+import com.example.bpt.dto.StatementFormat;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferHistoryResponse;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+public interface AccountService {
+
+    /**
+     * Returns the current balance of an account, served from the in-process cache when possible.
+     *
+     * @param accountNumber Account number, normalized before lookup
+     * @return Account number (normalized) and balance
+     */
+    AccountBalanceResponse getBalance(String accountNumber);
+
+    /**
+     * Returns one page of an account's transfers, newest first, using keyset (cursor) pagination.
+     *
+     * @param accountNumber Account number, normalized before lookup
+     * @param direction     Incoming, outgoing or both
+     * @param from          Oldest timestamp to include (inclusive), or null
+     * @param to            Newest timestamp to include (exclusive), or null
+     * @param cursor        {@code nextCursor} of the previous page, or null for the first page
+     * @param limit         Page size, or null for the default
+     * @return The page and the cursor of the next one
+     */
+    TransferHistoryResponse getTransfers(String accountNumber, TransferDirection direction,
+                                         LocalDateTime from, LocalDateTime to, String cursor, Integer limit);
+
+    /**
+     * Prepares a full statement export of an account's transfers, newest first. The account, range and cursor
+     * are validated here; rows are only read while the returned body is written to the response.
+     *
+     * @param accountNumber Account number, normalized before lookup
+     * @param format        CSV or NDJSON
+     * @param direction     Incoming, outgoing or both
+     * @param from          Oldest timestamp to include (inclusive), or null
+     * @param to            Newest timestamp to include (exclusive), or null
+     * @param cursor        Cursor of the last row already received, to resume an interrupted export, or null
+     * @return Body that streams the statement
+     */
+    StreamingResponseBody exportTransfers(String accountNumber, StatementFormat format, TransferDirection direction,
+                                          LocalDateTime from, LocalDateTime to, String cursor);
+}
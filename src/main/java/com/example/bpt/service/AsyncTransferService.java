@@ -0,0 +1,22 @@
+package com.example.bpt.service;
+
+import com.example.bpt.dto.AsyncTransferStatus;
+import com.example.bpt.dto.TransferRequest;
+
+public interface AsyncTransferService {
+
+    /**
+     * Queues a transfer for execution and returns without waiting for it.
+     *
+     * @return the {@code PENDING} status, whose id can be polled with {@link #status(String)}
+     * @throws IllegalArgumentException if the request is invalid on its face (missing fields, malformed account
+     *                                  numbers, non-positive amount); balance and existence checks happen later
+     * @throws com.example.bpt.exception.TransferQueueFullException if the queue is full
+     */
+    AsyncTransferStatus submit(TransferRequest request);
+
+    /**
+     * @throws com.example.bpt.exception.ResourceNotFoundException if the id is unknown or its status has expired
+     */
+    AsyncTransferStatus status(String id);
+}
@@ -0,0 +1,21 @@
+package com.example.bpt.service;
+
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    /**
+     * Runs {@code operation} at most once per idempotency key.
+     * The first request for a key executes and its response is stored; concurrent duplicates wait for
+     * that result and later duplicates receive the stored response.
+     *
+     * @param key       client-supplied Idempotency-Key
+     * @param request   the request, used to reject reuse of a key with different parameters
+     * @param operation the transfer to execute
+     * @return the response of the first successful execution for this key
+     */
+    TransferResponse execute(String key, TransferRequest request, Supplier<TransferResponse> operation);
+}
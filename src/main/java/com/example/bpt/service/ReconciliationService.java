@@ -0,0 +1,21 @@
+package com.example.bpt.service;
+
+import com.example.bpt.dto.ReconciliationReport;
+
+public interface ReconciliationService {
+
+    /**
+     * Reconciles every account with transfers since the previous run (or still drifting) and returns when done.
+     * Does nothing and returns the current report if a run is already in progress.
+     */
+    ReconciliationReport run();
+
+    /**
+     * Starts {@link #run()} in the background, unless a run is already in progress.
+     *
+     * @return the report of the started (or already running) run
+     */
+    ReconciliationReport start();
+
+    ReconciliationReport report();
+}
@@ -1,5 +1,7 @@
 package com.example.bpt.service;
 
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
 import com.example.bpt.dto.TransferRequest;
 import com.example.bpt.dto.TransferResponse;
 
@@ -12,4 +14,12 @@ public interface TransferService {
      * @return Response with transfer status and info
      */
     TransferResponse transferFunds(TransferRequest request);
+
+    /**
+     * Processes a list of fund transfers in one pass (one account load, one transaction).
+     *
+     * @param request Transfers to execute and whether the batch is all-or-nothing
+     * @return Per-item results, in request order
+     */
+    BatchTransferResponse transferBatch(BatchTransferRequest request);
 }
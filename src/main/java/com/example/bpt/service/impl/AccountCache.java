@@ -0,0 +1,106 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.AccountCacheProperties;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.projection.AccountKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process caches for account reads.
+ * <ul>
+ *     <li>Keys: normalized number to id and owner id. These never change, so entries are only evicted by size/TTL.</li>
+ *     <li>Balances by account id, tagged with the row version they were read at. A committed transfer replaces
+ *     the entry with a tombstone carrying the new version, and a balance read before that commit (older version)
+ *     can no longer be put back by a slow reader.</li>
+ * </ul>
+ * Hit/miss/eviction counts are published as {@code cache.*} metrics ({@code cache=bpt.account.keys|bpt.account.balances}).
+ */
+@Component
+public class AccountCache {
+
+    private final Cache<String, AccountKey> keys;
+    private final Cache<Long, CachedBalance> balances;
+
+    public AccountCache(AccountCacheProperties properties, MeterRegistry meterRegistry) {
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(properties.getKeysMaximumSize())
+                .expireAfterWrite(properties.getKeysTtl())
+                .recordStats()
+                .build();
+        this.balances = Caffeine.newBuilder()
+                .maximumSize(properties.getBalancesMaximumSize())
+                .expireAfterWrite(properties.getBalancesTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, keys, "bpt.account.keys");
+        CaffeineCacheMetrics.monitor(meterRegistry, balances, "bpt.account.balances");
+    }
+
+    /**
+     * @param loader looks the key up on a miss; an empty result is not cached
+     */
+    public Optional<AccountKey> key(String accountNumber, Function<String, Optional<AccountKey>> loader) {
+        AccountKey cached = keys.getIfPresent(accountNumber);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return Optional.ofNullable(keys.get(accountNumber, number -> loader.apply(number).orElse(null)));
+    }
+
+    public Optional<Money> balance(Long accountId) {
+        CachedBalance cached = balances.getIfPresent(accountId);
+        return cached == null || cached.balance() == null ? Optional.empty() : Optional.of(cached.balance());
+    }
+
+    /**
+     * Caches a balance read at {@code version}, unless a newer version is already known for the account.
+     */
+    public void putBalance(Long accountId, Money balance, long version) {
+        balances.asMap().merge(accountId, new CachedBalance(balance, version), AccountCache::newer);
+    }
+
+    /**
+     * Evicts the balances of the given accounts once the current transaction commits (immediately when there
+     * is no transaction). Versions are read after commit, when they reflect the committed rows.
+     */
+    public void evictBalancesAfterCommit(Collection<Account> accounts) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accounts.forEach(this::evictBalance);
+            return;
+        }
+        List<Account> changed = new ArrayList<>(accounts);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changed.forEach(AccountCache.this::evictBalance);
+            }
+        });
+    }
+
+    private void evictBalance(Account account) {
+        long version = account.getVersion() == null ? 0 : account.getVersion();
+        balances.asMap().merge(account.getId(), new CachedBalance(null, version), AccountCache::newer);
+    }
+
+    private static CachedBalance newer(CachedBalance current, CachedBalance candidate) {
+        return candidate.version() >= current.version() ? candidate : current;
+    }
+
+    /**
+     * @param balance null for a tombstone left by an eviction
+     */
+    private record CachedBalance(Money balance, long version) {}
+}
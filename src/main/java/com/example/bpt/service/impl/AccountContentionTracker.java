@@ -0,0 +1,99 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks optimistic-lock conflicts per account and flags accounts whose conflict rate is too high.
+ * <p>
+ * Only accounts that have produced at least one conflict are tracked, so cold accounts cost nothing.
+ * A flagged (hot) account is served with pessimistic locking for the configured cool-down and is then
+ * measured again.
+ */
+@Slf4j
+@Component
+public class AccountContentionTracker {
+
+    private final TransferProperties.Contention settings;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public AccountContentionTracker(TransferProperties properties) {
+        this.settings = properties.getContention();
+    }
+
+    /**
+     * @return true if the account is currently considered hot and should be locked pessimistically
+     */
+    public boolean isContended(String accountNumber) {
+        Window window = windows.get(accountNumber);
+        return window != null && window.hotUntil - System.nanoTime() > 0;
+    }
+
+    public void recordSuccess(String accountNumber) {
+        // Accounts without a prior conflict are not tracked at all
+        Window window = windows.get(accountNumber);
+        if (window != null) {
+            record(accountNumber, window, false);
+        }
+    }
+
+    public void recordConflict(String accountNumber) {
+        if (windows.size() >= settings.getMaxTrackedAccounts()) {
+            pruneIdle();
+        }
+        Window window = windows.computeIfAbsent(accountNumber, key -> new Window(System.nanoTime()));
+        record(accountNumber, window, true);
+    }
+
+    private void record(String accountNumber, Window window, boolean conflict) {
+        long now = System.nanoTime();
+        long started = window.startedAt.get();
+        if (now - started > settings.getWindow().toNanos() && window.startedAt.compareAndSet(started, now)) {
+            window.reset();
+        }
+
+        window.attempts.increment();
+        if (conflict) {
+            window.conflicts.increment();
+        }
+
+        long attempts = window.attempts.sum();
+        if (attempts >= settings.getMinSamples()
+                && (double) window.conflicts.sum() / attempts > settings.getConflictRateThreshold()
+                && window.hotUntil - now <= 0) {
+            window.hotUntil = now + settings.getCoolDown().toNanos();
+            window.reset();
+            log.warn("Account {} switched to pessimistic locking after {} attempts with high conflict rate",
+                    accountNumber, attempts);
+        }
+    }
+
+    private void pruneIdle() {
+        long now = System.nanoTime();
+        long idleAfter = settings.getWindow().toNanos() * 2;
+        windows.entrySet().removeIf(entry -> entry.getValue().hotUntil - now <= 0
+                && now - entry.getValue().startedAt.get() > idleAfter);
+    }
+
+    private static final class Window {
+        private final AtomicLong startedAt;
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private volatile long hotUntil;
+
+        private Window(long startedAt) {
+            this.startedAt = new AtomicLong(startedAt);
+            this.hotUntil = startedAt;
+        }
+
+        private void reset() {
+            attempts.reset();
+            conflicts.reset();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.AccountBalanceResponse;
+import com.example.bpt.dto.StatementFormat;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferHistoryItem;
+import com.example.bpt.dto.TransferHistoryResponse;
+import com.example.bpt.exception.ResourceNotFoundException;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.TransferArchiveRepository;
+import com.example.bpt.repository.TransferRepository;
+import com.example.bpt.repository.projection.AccountBalanceView;
+import com.example.bpt.repository.projection.AccountKey;
+import com.example.bpt.service.AccountService;
+import com.example.bpt.util.AccountUtils;
+import com.example.bpt.util.TransferCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class AccountServiceImpl implements AccountService {
+
+    /** Bounds used when the request leaves a side of the date range open (MySQL DATETIME range). */
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    /** History order: newest first, ties broken by id. */
+    private static final Comparator<TransferHistoryItem> NEWEST_FIRST = Comparator
+            .comparing(TransferHistoryItem::timestamp)
+            .thenComparing(TransferHistoryItem::transferId)
+            .reversed();
+
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountCache accountCache;
+    @Autowired
+    private BalanceShardService balanceShardService;
+    @Autowired
+    private TransferRepository transferRepository;
+    @Autowired
+    private TransferArchiveRepository transferArchiveRepository;
+    @Autowired
+    private TransferProperties transferProperties;
+    @Autowired
+    private TransferStatementExporter transferStatementExporter;
+
+    @Override
+    @Transactional(readOnly = true)
+    public AccountBalanceResponse getBalance(String accountNumber) {
+        String number = AccountUtils.parseAccountNumber(accountNumber).orElseThrow();
+        AccountKey key = resolve(number);
+
+        // Hot path: balance cached since the last committed transfer on this account
+        Optional<Money> cached = accountCache.balance(key.id());
+        if (cached.isPresent()) {
+            return new AccountBalanceResponse(number, cached.get());
+        }
+
+        AccountBalanceView row = accountRepository.findBalanceById(key.id())
+                .orElseThrow(() -> new ResourceNotFoundException("Account not found: " + number));
+        if (row.balanceShards() > 0 || balanceShardService.isStriped(number)) {
+            // Shard credits do not bump the account version, so striped balances are never cached
+            return new AccountBalanceResponse(number, Money.of(accountRepository.aggregateBalance(key.id())));
+        }
+        accountCache.putBalance(key.id(), row.balance(), row.version());
+        return new AccountBalanceResponse(number, row.balance());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TransferHistoryResponse getTransfers(String accountNumber, TransferDirection direction,
+                                                LocalDateTime from, LocalDateTime to, String cursor, Integer limit) {
+        TransferProperties.History settings = transferProperties.getHistory();
+        int pageSize = limit == null ? settings.getDefaultPageSize() : limit;
+        if (pageSize < 1 || pageSize > settings.getMaxPageSize()) {
+            throw new IllegalArgumentException("limit must be between 1 and " + settings.getMaxPageSize());
+        }
+        String number = AccountUtils.parseAccountNumber(accountNumber).orElseThrow();
+        AccountKey key = resolve(number);
+
+        TransferCursor before = startingPoint(to, cursor);
+        LocalDateTime since = from == null ? EARLIEST : from;
+
+        // One more row than asked for tells whether there is a next page
+        TransferDirection which = direction == null ? TransferDirection.ALL : direction;
+        List<TransferHistoryItem> rows = page(transferRepository::findOutgoingPage, transferRepository::findIncomingPage,
+                which, key.id(), since, before, pageSize + 1);
+
+        // A short page has reached the end of the hot table: the rest comes from the archive
+        if (rows.size() <= pageSize) {
+            rows = withArchived(rows, which, key.id(), since, before, pageSize + 1);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new TransferHistoryResponse(rows, null);
+        }
+        List<TransferHistoryItem> page = rows.subList(0, pageSize);
+        TransferHistoryItem last = page.get(pageSize - 1);
+        return new TransferHistoryResponse(List.copyOf(page), new TransferCursor(last.timestamp(), last.transferId()).encode());
+    }
+
+    @Override
+    public StreamingResponseBody exportTransfers(String accountNumber, StatementFormat format,
+                                                 TransferDirection direction, LocalDateTime from,
+                                                 LocalDateTime to, String cursor) {
+        // Fail before the response is committed: afterwards errors can only cut the stream short
+        String number = AccountUtils.parseAccountNumber(accountNumber).orElseThrow();
+        AccountKey key = resolve(number);
+        TransferCursor before = startingPoint(to, cursor);
+        LocalDateTime since = from == null ? EARLIEST : from;
+        TransferDirection which = direction == null ? TransferDirection.ALL : direction;
+        StatementFormat as = format == null ? StatementFormat.CSV : format;
+
+        return out -> transferStatementExporter.export(key.id(), which, since, before, as, out);
+    }
+
+    /**
+     * Rows below the archive watermark are taken from the archive only: the hot table may still hold copies of
+     * them until the archiver has removed them. The watermark is read in the same transaction (snapshot) as the
+     * rows, and every archived transfer is older than every hot one, so the archive's rows simply follow.
+     */
+    private List<TransferHistoryItem> withArchived(List<TransferHistoryItem> hot, TransferDirection direction,
+                                                   Long accountId, LocalDateTime since, TransferCursor before, int max) {
+        Optional<LocalDateTime> archivedBefore = transferArchiveRepository.findArchivedBefore();
+        if (archivedBefore.isEmpty() || !since.isBefore(archivedBefore.get())) {
+            return hot;
+        }
+        LocalDateTime boundary = archivedBefore.get();
+        List<TransferHistoryItem> rows = new ArrayList<>(hot.size());
+        for (TransferHistoryItem item : hot) {
+            if (!item.timestamp().isBefore(boundary)) {
+                rows.add(item);
+            }
+        }
+        TransferCursor archiveBefore = before.timestamp().isBefore(boundary)
+                ? before : new TransferCursor(boundary, Long.MIN_VALUE);
+        rows.addAll(page(transferArchiveRepository::findOutgoingPage, transferArchiveRepository::findIncomingPage,
+                direction, accountId, since, archiveBefore, max - rows.size()));
+        return rows;
+    }
+
+    /**
+     * One page of up to {@code max} rows from either the hot or the archive table.
+     */
+    private static List<TransferHistoryItem> page(PageQuery outgoing, PageQuery incoming, TransferDirection direction,
+                                                  Long accountId, LocalDateTime since, TransferCursor before, int max) {
+        Limit fetch = Limit.of(max);
+        return switch (direction) {
+            case OUTGOING -> outgoing.find(accountId, since, before.timestamp(), before.id(), fetch);
+            case INCOMING -> incoming.find(accountId, since, before.timestamp(), before.id(), fetch);
+            // Two index range scans merged here, instead of an OR over both columns that MySQL would have to sort
+            case ALL -> merge(
+                    outgoing.find(accountId, since, before.timestamp(), before.id(), fetch),
+                    incoming.find(accountId, since, before.timestamp(), before.id(), fetch),
+                    max);
+        };
+    }
+
+    /**
+     * Start right after the cursor, or at the end of the range; an id below every real id makes "to" exclusive.
+     */
+    private static TransferCursor startingPoint(LocalDateTime to, String cursor) {
+        TransferCursor before = new TransferCursor(to == null ? LATEST : to, Long.MIN_VALUE);
+        if (cursor != null) {
+            TransferCursor position = TransferCursor.decode(cursor);
+            if (position.timestamp().isBefore(before.timestamp())) {
+                before = position;
+            }
+        }
+        return before;
+    }
+
+    private AccountKey resolve(String number) {
+        return accountCache.key(number, accountRepository::findKeyByAccountNumber)
+                .orElseThrow(() -> new ResourceNotFoundException("Account not found: " + number));
+    }
+
+    /**
+     * Merges two lists that are each sorted newest first, keeping at most {@code max} rows.
+     */
+    private static List<TransferHistoryItem> merge(List<TransferHistoryItem> a, List<TransferHistoryItem> b, int max) {
+        List<TransferHistoryItem> merged = new ArrayList<>(Math.min(max, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < max && (i < a.size() || j < b.size())) {
+            if (j >= b.size() || (i < a.size() && NEWEST_FIRST.compare(a.get(i), b.get(j)) <= 0)) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * {@code findOutgoingPage} / {@code findIncomingPage} of the hot or the archive repository.
+     */
+    @FunctionalInterface
+    private interface PageQuery {
+
+        List<TransferHistoryItem> find(Long accountId, LocalDateTime from, LocalDateTime beforeTimestamp,
+                                       Long beforeId, Limit limit);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.AsyncTransferStatus;
+import com.example.bpt.dto.BatchTransferItemResult;
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.exception.ResourceNotFoundException;
+import com.example.bpt.exception.TransferQueueFullException;
+import com.example.bpt.service.AsyncTransferService;
+import com.example.bpt.service.TransferService;
+import com.example.bpt.util.AccountUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes submitted transfers in the background, in micro-batches.
+ * <p>
+ * The queue is split into one bounded lane per worker, chosen by source account, so transfers of one payer run
+ * in submission order and meet in the same batch. A worker takes whatever its lane holds (up to
+ * {@code max-batch-size}) and executes it as one non-atomic {@link TransferService#transferBatch}: all accounts
+ * of the batch are locked in one query and all rows written in one transaction, instead of one round trip per
+ * transfer. A full lane rejects the submission right away, so a burst cannot pile up request threads or memory.
+ */
+@Slf4j
+@Service
+public class AsyncTransferServiceImpl implements AsyncTransferService, SmartLifecycle {
+
+    private final TransferService transferService;
+    private final TransferProperties.Async properties;
+    private final int maxBatchSize;
+    private final List<BlockingQueue<Submission>> lanes;
+    private final Cache<String, AsyncTransferStatus> statuses;
+
+    private final Counter rejectedCounter;
+    private final DistributionSummary batchSize;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public AsyncTransferServiceImpl(TransferService transferService, TransferProperties transferProperties,
+                                    MeterRegistry meterRegistry) {
+        this.transferService = transferService;
+        this.properties = transferProperties.getAsync();
+        this.maxBatchSize = Math.min(properties.getMaxBatchSize(), transferProperties.getBatch().getMaxSize());
+
+        int laneCapacity = Math.max(1, properties.getQueueCapacity() / properties.getWorkers());
+        this.lanes = new ArrayList<>(properties.getWorkers());
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            lanes.add(new ArrayBlockingQueue<>(laneCapacity));
+        }
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxStatuses())
+                .expireAfterWrite(properties.getStatusTtl())
+                .build();
+
+        this.rejectedCounter = Counter.builder("bpt.transfer.async.rejected")
+                .description("Submissions rejected because the queue was full")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("bpt.transfer.async.batch.size")
+                .description("Transfers executed per micro-batch")
+                .register(meterRegistry);
+        Gauge.builder("bpt.transfer.async.queue", lanes, queues -> queues.stream().mapToInt(BlockingQueue::size).sum())
+                .description("Submitted transfers waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public AsyncTransferStatus submit(TransferRequest request) {
+        // Step 1: Reject what can be rejected without the database, so the client learns it now
+        String sourceNumber = validateRequest(request);
+
+        // Step 2: Record the status before queueing, so a fast worker cannot complete it first
+        AsyncTransferStatus pending = AsyncTransferStatus.pending(UUID.randomUUID().toString(), LocalDateTime.now());
+        statuses.put(pending.id(), pending);
+
+        // Step 3: Queue it on the lane of its source account, or shed it when that lane is full
+        BlockingQueue<Submission> lane = lanes.get(Math.floorMod(sourceNumber.hashCode(), lanes.size()));
+        Submission submission = new Submission(pending, request);
+        if (!running || !lane.offer(submission)) {
+            throw reject(pending, "Transfer queue is full, retry later");
+        }
+        // Stopped meanwhile: the workers may have exited already. Take it back unless a worker or stop() has it
+        if (!running && lane.remove(submission)) {
+            throw reject(pending, "Transfer service is stopping, retry later");
+        }
+        return pending;
+    }
+
+    @Override
+    public AsyncTransferStatus status(String id) {
+        AsyncTransferStatus status = statuses.getIfPresent(id);
+        if (status == null) {
+            throw new ResourceNotFoundException("Async transfer not found: " + id);
+        }
+        return status;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < lanes.size(); i++) {
+            BlockingQueue<Submission> lane = lanes.get(i);
+            workers.add(Thread.ofPlatform().name("async-transfer-" + i).start(() -> drain(lane)));
+        }
+    }
+
+    /**
+     * Stops taking submissions and executes the ones already queued. Submissions that slipped in while the
+     * workers were exiting are marked failed, so none stays pending forever.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        workers.clear();
+
+        List<Submission> abandoned = new ArrayList<>();
+        lanes.forEach(lane -> lane.drainTo(abandoned));
+        for (Submission submission : abandoned) {
+            complete(submission.status().failure("Transfer service stopped before the transfer was executed"));
+        }
+        if (!abandoned.isEmpty()) {
+            log.warn("Failed {} async transfers submitted while stopping", abandoned.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stopped after the web server, so no submission is accepted that will not run, and before the transfer
+     * engine, which the queued transfers still need.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 3072;
+    }
+
+    private void drain(BlockingQueue<Submission> lane) {
+        List<Submission> batch = new ArrayList<>(maxBatchSize);
+        while (running || !lane.isEmpty()) {
+            try {
+                Submission first = lane.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            lane.drainTo(batch, maxBatchSize - 1);
+            execute(batch);
+            batch.clear();
+        }
+    }
+
+    private void execute(List<Submission> batch) {
+        batchSize.record(batch.size());
+        List<TransferRequest> requests = new ArrayList<>(batch.size());
+        for (Submission submission : batch) {
+            requests.add(submission.request());
+        }
+
+        BatchTransferResponse response;
+        try {
+            response = transferService.transferBatch(new BatchTransferRequest(requests, false));
+        } catch (RuntimeException e) {
+            // The batch failed as a whole (e.g. lock retries exhausted) and was rolled back: run its transfers
+            // one by one, so one bad transfer cannot fail the others
+            log.warn("Async batch of {} transfers failed, executing them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::executeSingle);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Submission submission = batch.get(i);
+            BatchTransferItemResult result = response.results().get(i);
+            complete(result.transfer() != null
+                    ? submission.status().success(result.transfer())
+                    : submission.status().failure(result.error()));
+        }
+    }
+
+    private void executeSingle(Submission submission) {
+        try {
+            complete(submission.status().success(transferService.transferFunds(submission.request())));
+        } catch (RuntimeException e) {
+            complete(submission.status().failure(e.getMessage()));
+        }
+    }
+
+    private void complete(AsyncTransferStatus status) {
+        statuses.put(status.id(), status);
+    }
+
+    private TransferQueueFullException reject(AsyncTransferStatus pending, String message) {
+        statuses.invalidate(pending.id());
+        rejectedCounter.increment();
+        return new TransferQueueFullException(message, properties.getRetryAfter());
+    }
+
+    /**
+     * @return the normalized source account number
+     */
+    private static String validateRequest(TransferRequest request) {
+        if (request.sourceAccount() == null || request.destinationAccount() == null) {
+            throw new IllegalArgumentException("Source and destination account are required");
+        }
+        if (request.amount() == null) {
+            throw new IllegalArgumentException("Transfer amount is required");
+        }
+        if (request.amount().signum() <= 0) {
+            throw new IllegalArgumentException("Transfer amount must be greater than zero");
+        }
+        String sourceNumber = AccountUtils.parseAccountNumber(request.sourceAccount()).orElseThrow();
+        String destinationNumber = AccountUtils.parseAccountNumber(request.destinationAccount()).orElseThrow();
+        if (sourceNumber.equals(destinationNumber)) {
+            throw new IllegalArgumentException("Source and destination accounts cannot be the same");
+        }
+        return sourceNumber;
+    }
+
+    private record Submission(AsyncTransferStatus status, TransferRequest request) {}
+}
@@ -0,0 +1,36 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background job that keeps striped accounts healthy: refreshes the striped-account snapshot,
+ * provisions shard rows and folds accumulated shard credits back into each account row.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BalanceShardRebalancer {
+
+    private final BalanceShardService balanceShardService;
+    private final TransferProperties transferProperties;
+
+    @Scheduled(fixedDelayString = "${bpt.transfer.striping.rebalance-interval-ms:5000}")
+    public void rebalance() {
+        if (!transferProperties.getStriping().isEnabled()) {
+            return;
+        }
+        for (String accountNumber : balanceShardService.refreshStripedAccounts()) {
+            try {
+                balanceShardService.rebalance(accountNumber);
+            } catch (DataAccessException e) {
+                // Lock conflicts with in-flight transfers are expected; the next run picks the account up again
+                log.debug("Skipped rebalancing account {}: {}", accountNumber, e.getMessage());
+            }
+        }
+    }
+}
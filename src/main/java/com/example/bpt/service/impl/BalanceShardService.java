@@ -0,0 +1,131 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.AccountBalanceShard;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountBalanceShardRepository;
+import com.example.bpt.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Balance striping for high fan-in accounts.
+ * <p>
+ * Credits to a striped account go to one of its {@code account_balance_shard} rows instead of the
+ * {@code account} row, debits are served from the account row and pull in shard balances only when
+ * it runs short, and {@link BalanceShardRebalancer} periodically folds shards back into the account row.
+ * Shard locks are always taken after the account row lock, never before.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceShardService {
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceShardRepository shardRepository;
+    private final TransferProperties transferProperties;
+
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private volatile Set<String> stripedAccountNumbers = Set.of();
+
+    /**
+     * Cheap pre-check used before any row is touched: is this account known to be striped?
+     * Backed by a snapshot refreshed by the rebalancer, so it can briefly lag a flag change.
+     */
+    public boolean isStriped(String accountNumber) {
+        return transferProperties.getStriping().isEnabled() && stripedAccountNumbers.contains(accountNumber);
+    }
+
+    public boolean isStriped(Account account) {
+        return transferProperties.getStriping().isEnabled() && account.getBalanceShards() > 0;
+    }
+
+    /**
+     * Credits {@code amount} without touching the account row when possible. Accounts that are not
+     * (or not yet) provisioned with shards are credited in place with a single atomic UPDATE.
+     * <p>
+     * Call it after inserting anything that references the account: the foreign key check share-locks the
+     * account row, which must not come after the shard lock.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void credit(Account account, Money amount, String sourceAccountNumber) {
+        if (isStriped(account)) {
+            int shard = selectShard(account.getBalanceShards(), sourceAccountNumber);
+            if (shardRepository.credit(account.getId(), shard, amount.toBigDecimal()) > 0) {
+                return;
+            }
+        }
+        accountRepository.credit(account.getId(), amount.toBigDecimal());
+    }
+
+    /**
+     * Moves all shard balances into the (already locked or version-checked) account row, so the
+     * account row alone reflects the full spendable balance.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sweepInto(Account account) {
+        List<AccountBalanceShard> shards = shardRepository.lockByAccountId(account.getId());
+        Money total = Money.ZERO;
+        for (AccountBalanceShard shard : shards) {
+            total = total.plus(shard.getBalance());
+            shard.setBalance(Money.ZERO);
+        }
+        if (total.signum() != 0) {
+            account.setBalance(account.getBalance().plus(total));
+        }
+    }
+
+    /**
+     * Provisions missing shard rows for a striped account and folds the shard balances into its account row.
+     */
+    @Transactional
+    public void rebalance(String accountNumber) {
+        List<Account> locked = accountRepository.lockByAccountNumbersOrdered(List.of(accountNumber));
+        if (locked.isEmpty()) {
+            return;
+        }
+        Account account = locked.get(0);
+
+        List<AccountBalanceShard> shards = shardRepository.lockByAccountId(account.getId());
+        Set<Integer> existing = shards.stream().map(AccountBalanceShard::getShardIndex).collect(Collectors.toSet());
+        for (int index = 0; index < account.getBalanceShards(); index++) {
+            if (!existing.contains(index)) {
+                shardRepository.save(AccountBalanceShard.builder()
+                        .accountId(account.getId())
+                        .shardIndex(index)
+                        .balance(Money.ZERO)
+                        .build());
+            }
+        }
+
+        sweepInto(account);
+    }
+
+    /**
+     * Reloads the set of striped account numbers.
+     *
+     * @return the striped account numbers now in effect
+     */
+    public Set<String> refreshStripedAccounts() {
+        stripedAccountNumbers = accountRepository.findByBalanceShardsGreaterThan(0).stream()
+                .map(Account::getAccountNumber)
+                .collect(Collectors.toUnmodifiableSet());
+        return stripedAccountNumbers;
+    }
+
+    private int selectShard(int shardCount, String sourceAccountNumber) {
+        if (transferProperties.getStriping().getShardSelection() == TransferProperties.Striping.ShardSelection.ROUND_ROBIN) {
+            return Math.floorMod(roundRobin.getAndIncrement(), shardCount);
+        }
+        return Math.floorMod(sourceAccountNumber.hashCode(), shardCount);
+    }
+}
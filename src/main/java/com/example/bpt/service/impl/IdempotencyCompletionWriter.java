@@ -0,0 +1,87 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Marks an Idempotency-Key claim as completed with its stored response. Called from inside the transfer
+ * transaction, so the key cannot stay IN_PROGRESS once the transfer has committed: both commit or neither does.
+ * <p>
+ * {@link IdempotencyServiceImpl} binds the claim to the calling thread before running the transfer;
+ * without a bound claim (no Idempotency-Key) {@link #complete(TransferResponse)} does nothing.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyCompletionWriter {
+
+    private static final ThreadLocal<Pending> PENDING = new ThreadLocal<>();
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Completes the claim bound to this thread, if any, in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void complete(TransferResponse response) {
+        Pending pending = PENDING.get();
+        if (pending == null) {
+            return;
+        }
+        write(pending.key, response);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.committed = true;
+            }
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void write(String key, TransferResponse response) {
+        repository.complete(key, serialize(response));
+    }
+
+    Pending bind(String key) {
+        Pending pending = new Pending(key);
+        PENDING.set(pending);
+        return pending;
+    }
+
+    void unbind() {
+        PENDING.remove();
+    }
+
+    private String serialize(TransferResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize transfer response", e);
+        }
+    }
+
+    /**
+     * The claim of the request running on this thread; {@code committed} once its completion committed.
+     */
+    static final class Pending {
+
+        private final String key;
+        private boolean committed;
+
+        private Pending(String key) {
+            this.key = key;
+        }
+
+        boolean isCommitted() {
+            return committed;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.IdempotencyProperties;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.exception.IdempotencyConflictException;
+import com.example.bpt.model.IdempotencyRecord;
+import com.example.bpt.repository.IdempotencyRecordRepository;
+import com.example.bpt.service.IdempotencyService;
+import com.example.bpt.util.AccountNumberResult;
+import com.example.bpt.util.AccountUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Two-level idempotency: a bounded in-process cache of completed responses in front of the
+ * {@code idempotency_key} table.
+ * <ul>
+ *     <li>Cache hit: the stored response is returned without touching the database.</li>
+ *     <li>Duplicate while the original is running on this instance: waits for its result.</li>
+ *     <li>Otherwise the key is claimed with a unique insert; losing the insert means the key was used
+ *     before (stored response is returned) or is running on another instance (409).</li>
+ * </ul>
+ * A failed operation releases its claim, so the client may retry with the same key. The transfer completes
+ * its claim in its own transaction through {@link IdempotencyCompletionWriter}; operations that run without
+ * a database transaction (the in-memory engine) have it completed right after they return.
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyCompletionWriter completionWriter;
+    private final TransactionTemplate requiresNew;
+    private final IdempotencyProperties properties;
+
+    private final Cache<String, StoredResponse> completed;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository repository,
+                                  ObjectMapper objectMapper,
+                                  IdempotencyCompletionWriter completionWriter,
+                                  PlatformTransactionManager transactionManager,
+                                  IdempotencyProperties properties) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.completionWriter = completionWriter;
+        this.properties = properties;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaximumSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+    }
+
+    @Override
+    public TransferResponse execute(String key, TransferRequest request, Supplier<TransferResponse> operation) {
+        if (key.isBlank() || key.length() > 100) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and 100 characters");
+        }
+        String requestHash = hash(request);
+
+        // Hot path: a completed response for this key is already cached in-process
+        StoredResponse stored = completed.getIfPresent(key);
+        if (stored != null) {
+            return stored.responseFor(requestHash);
+        }
+
+        // Duplicates arriving while the original runs on this instance wait for its result
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            if (!running.requestHash().equals(requestHash)) {
+                throw mismatch();
+            }
+            return await(running.result());
+        }
+
+        try {
+            TransferResponse response = executeOnce(key, requestHash, operation);
+            completed.put(key, new StoredResponse(requestHash, response));
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bpt.idempotency.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        Integer deleted = requiresNew.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private TransferResponse executeOnce(String key, String requestHash, Supplier<TransferResponse> operation) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord claim = IdempotencyRecord.builder()
+                .key(key)
+                .requestHash(requestHash)
+                .status(IdempotencyRecord.Status.IN_PROGRESS)
+                .createdAt(now)
+                .expiresAt(now.plus(properties.getTtl()))
+                .build();
+        try {
+            requiresNew.executeWithoutResult(status -> repository.saveAndFlush(claim));
+        } catch (DataIntegrityViolationException e) {
+            return storedResponse(key, requestHash);
+        }
+
+        TransferResponse response;
+        IdempotencyCompletionWriter.Pending pending = completionWriter.bind(key);
+        try {
+            response = operation.get();
+        } catch (RuntimeException e) {
+            // Release the claim so the client can retry the failed request with the same key
+            requiresNew.executeWithoutResult(status -> repository.deleteById(key));
+            throw e;
+        } finally {
+            completionWriter.unbind();
+        }
+
+        if (!pending.isCommitted()) {
+            requiresNew.executeWithoutResult(status -> completionWriter.write(key, response));
+        }
+        return response;
+    }
+
+    private TransferResponse storedResponse(String key, String requestHash) {
+        // Read-write transaction, so it is read on the primary: a replica may not have the claim yet
+        IdempotencyRecord record = requiresNew.execute(status -> repository.findById(key))
+                .orElseThrow(() -> new IdempotencyConflictException(
+                        "A request with this Idempotency-Key is still being processed"));
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw mismatch();
+        }
+        if (record.getStatus() != IdempotencyRecord.Status.COMPLETED) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+        }
+        TransferResponse response = deserialize(record.getResponse());
+        completed.put(key, new StoredResponse(requestHash, response));
+        return response;
+    }
+
+    private TransferResponse await(CompletableFuture<TransferResponse> result) {
+        try {
+            return result.get(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        }
+    }
+
+    private TransferResponse deserialize(String response) {
+        try {
+            return objectMapper.readValue(response, TransferResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot deserialize stored transfer response", e);
+        }
+    }
+
+    /**
+     * Hash of the request as the transfer service sees it: normalized account numbers and the amount in minor
+     * units, so a retry that only formats them differently is recognized as the same request.
+     */
+    private static String hash(TransferRequest request) {
+        String canonical = canonicalAccount(request.sourceAccount()) + '|'
+                + canonicalAccount(request.destinationAccount()) + '|'
+                + (request.amount() == null ? "" : request.amount().minorUnits());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String canonicalAccount(String accountNumber) {
+        // Malformed numbers are hashed as given; the transfer service rejects them anyway
+        AccountNumberResult result = AccountUtils.parseAccountNumber(accountNumber);
+        return result.isValid() ? result.normalized() : String.valueOf(accountNumber);
+    }
+
+    private static IdempotencyConflictException mismatch() {
+        return new IdempotencyConflictException("Idempotency-Key was already used with a different request");
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<TransferResponse> result) {}
+
+    private record StoredResponse(String requestHash, TransferResponse response) {
+
+        TransferResponse responseFor(String hash) {
+            if (!requestHash.equals(hash)) {
+                throw mismatch();
+            }
+            return response;
+        }
+    }
+}
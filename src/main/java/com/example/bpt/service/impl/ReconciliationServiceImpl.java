@@ -0,0 +1,401 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.ReconciliationProperties;
+import com.example.bpt.dto.AccountDrift;
+import com.example.bpt.dto.ReconciliationReport;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.BalanceCheckpointRepository;
+import com.example.bpt.repository.TransferArchiveRepository;
+import com.example.bpt.service.ReconciliationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Incremental reconciliation of account balances against the transfer log.
+ * <p>
+ * Every account has a checkpoint ({@code balance_checkpoint}): its balance as of the cutoff of the last run it
+ * reconciled in. A run only looks at accounts with transfers after the last completed run's cutoff
+ * ({@code reconciliation_watermark}, found through {@code idx_transfer_timestamp}) and only replays each account's
+ * transfers after its own checkpoint, so its cost follows the day's volume rather than the size of the history. For each
+ * account it
+ * <ul>
+ *     <li>walks the transfers up to the cutoff in (timestamp, id) order and checks the balance chain: every
+ *     transfer's old balance on the account's side must be the previous transfer's new balance (skipped for
+ *     striped accounts, whose concurrent shard credits record aggregates out of order);</li>
+ *     <li>compares checkpoint + transfers with the actual balance as of the cutoff (the current balance, account
+ *     row plus shards, minus the transfers after the cutoff), read in the same snapshot.</li>
+ * </ul>
+ * Accounts that reconcile move their checkpoint to the cutoff; drifting ones keep it, record the drift and are
+ * checked again on every run until they reconcile.
+ * <p>
+ * Accounts are processed in chunks of {@code chunk-size}, {@code parallelism} chunks at a time. Chunks are read
+ * in read-only REPEATABLE READ transactions (on the read replica when one is configured) and checkpoints are
+ * written in one batch per chunk. The watermark only moves to the cutoff once every chunk has succeeded.
+ * <p>
+ * Transfers before the archive watermark are read from {@code transfer_archive} (taken in the same snapshot, so each
+ * transfer is seen once), where the old balances are derived from the new ones. Accounts idle for longer than
+ * {@code bpt.transfer.archive.hot-months} are therefore still replayed from their full history.
+ */
+@Slf4j
+@Service
+public class ReconciliationServiceImpl implements ReconciliationService {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int WATERMARK_ID = 1;
+
+    /**
+     * Accounts with transfers since the given time (range scan on idx_transfer_timestamp), or still drifting. The
+     * archive is only scanned between that time and the archive watermark, i.e. when reconciliation lags archiving.
+     */
+    private static final String CANDIDATES_SQL = "select source_account_id from transfer where timestamp > ? "
+            + "union select destination_account_id from transfer where timestamp > ? "
+            + "union select source_account_id from transfer_archive where timestamp > ? and timestamp < ? "
+            + "union select destination_account_id from transfer_archive where timestamp > ? and timestamp < ? "
+            + "union select account_id from balance_checkpoint where drift <> 0";
+
+    private static final String ACCOUNTS_SQL = "select a.id, a.account_number, a.balance_shards, "
+            + "a.balance + coalesce((select sum(s.balance) from account_balance_shard s where s.account_id = a.id), 0), "
+            + "c.balance, c.as_of from account a left join balance_checkpoint c on c.account_id = a.id "
+            + "where a.id in (%s)";
+
+    /** Range scans on idx_transfer_source_history / idx_transfer_destination_history, from the archive watermark. */
+    private static final String TRANSFERS_SQL = "select id, timestamp, amount, %1$s_old_balance, %1$s_new_balance "
+            + "from transfer where %1$s_account_id = ? and timestamp > ? and timestamp >= ?";
+
+    /** Range scans on idx_transfer_archive_source_history / idx_transfer_archive_destination_history. */
+    private static final String ARCHIVED_TRANSFERS_SQL = "select id, timestamp, amount, null, %1$s_new_balance "
+            + "from transfer_archive where %1$s_account_id = ? and timestamp > ? and timestamp < ?";
+
+    private static final String UPSERT_SQL = "insert into balance_checkpoint (account_id, balance, as_of, checked_at, drift) "
+            + "values (?, ?, ?, ?, ?) on duplicate key update balance = values(balance), as_of = values(as_of), "
+            + "checked_at = values(checked_at), drift = values(drift)";
+
+    private static final Comparator<Entry> CHAIN_ORDER = Comparator.comparing(Entry::timestamp).thenComparing(Entry::transferId);
+
+    private final ReconciliationProperties properties;
+    private final BalanceCheckpointRepository checkpointRepository;
+    private final TransferArchiveRepository archiveRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshot;
+    private final TransactionTemplate writes;
+
+    private final Counter consistentAccounts;
+    private final Counter driftingAccounts;
+    private final Counter verifiedTransfers;
+    private final Counter chainBreaks;
+    private final Timer runTimer;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile RunState state = new RunState("IDLE", null, null, null, 0, 0, 0, null);
+    private volatile int driftCount;
+    private volatile double driftAmount;
+
+    public ReconciliationServiceImpl(ReconciliationProperties properties, BalanceCheckpointRepository checkpointRepository,
+                                     TransferArchiveRepository archiveRepository, DataSource dataSource, PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.checkpointRepository = checkpointRepository;
+        this.archiveRepository = archiveRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.writes = new TransactionTemplate(transactionManager);
+
+        this.consistentAccounts = Counter.builder("bpt.reconciliation.accounts")
+                .description("Accounts reconciled, by outcome")
+                .tag("outcome", "consistent")
+                .register(meterRegistry);
+        this.driftingAccounts = Counter.builder("bpt.reconciliation.accounts")
+                .description("Accounts reconciled, by outcome")
+                .tag("outcome", "drift")
+                .register(meterRegistry);
+        this.verifiedTransfers = Counter.builder("bpt.reconciliation.transfers")
+                .description("Transfers replayed by reconciliation")
+                .register(meterRegistry);
+        this.chainBreaks = Counter.builder("bpt.reconciliation.chain.breaks")
+                .description("Transfers whose recorded balances do not continue the account's balance chain")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("bpt.reconciliation.run")
+                .description("Duration of reconciliation runs")
+                .register(meterRegistry);
+        Gauge.builder("bpt.reconciliation.drift.accounts", this, service -> service.driftCount)
+                .description("Accounts whose balance did not match their transfers on the latest check")
+                .register(meterRegistry);
+        Gauge.builder("bpt.reconciliation.drift.amount", this, service -> service.driftAmount)
+                .description("Sum of the absolute drift of all drifting accounts")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${bpt.reconciliation.cron:0 30 2 * * *}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            run();
+        }
+    }
+
+    @Override
+    public ReconciliationReport run() {
+        if (running.compareAndSet(false, true)) {
+            execute();
+        }
+        return report();
+    }
+
+    @Override
+    public ReconciliationReport start() {
+        if (running.compareAndSet(false, true)) {
+            state = new RunState("RUNNING", LocalDateTime.now(), null, null, 0, 0, 0, null);
+            Thread.ofPlatform().name("reconciliation").start(this::execute);
+        }
+        return report();
+    }
+
+    @Override
+    public ReconciliationReport report() {
+        RunState current = state;
+        return new ReconciliationReport(current.status(), current.startedAt(), current.finishedAt(), current.cutoff(),
+                current.accountsChecked(), current.transfersVerified(), current.chainBreaks(), current.error(),
+                checkpointRepository.findDrifts());
+    }
+
+    /**
+     * Runs with {@link #running} held and releases it.
+     */
+    private void execute() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        // Truncated to the column precision, so the stored as_of is exactly the cutoff used for the split
+        LocalDateTime cutoff = startedAt.minus(properties.getSettle()).truncatedTo(ChronoUnit.MICROS);
+        state = new RunState("RUNNING", startedAt, null, cutoff, 0, 0, 0, null);
+        Totals totals = new Totals();
+        long started = System.nanoTime();
+        try {
+            // Step 1: Find the accounts with transfers since the last completed run's cutoff, or still drifting
+            List<Long> accountIds = snapshot.execute(status -> {
+                LocalDateTime since = checkpointRepository.findReconciledBefore().orElse(BEGINNING);
+                LocalDateTime archivedBefore = archiveRepository.findArchivedBefore().orElse(BEGINNING);
+                return jdbcTemplate.queryForList(CANDIDATES_SQL, Long.class, since, since,
+                        since, archivedBefore, since, archivedBefore);
+            });
+
+            // Step 2: Reconcile them chunk by chunk, a bounded number of chunks at a time
+            List<List<Long>> chunks = new ArrayList<>();
+            for (int from = 0; from < accountIds.size(); from += properties.getChunkSize()) {
+                chunks.add(accountIds.subList(from, Math.min(from + properties.getChunkSize(), accountIds.size())));
+            }
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()),
+                    Thread.ofPlatform().name("reconciliation-", 0).factory())) {
+                List<Future<?>> results = new ArrayList<>(chunks.size());
+                for (List<Long> chunk : chunks) {
+                    results.add(executor.submit(() -> reconcileChunk(chunk, cutoff, totals)));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            }
+            writes.executeWithoutResult(status -> setWatermark(cutoff));
+
+            // Step 3: Publish the outcome
+            List<AccountDrift> drifts = checkpointRepository.findDrifts();
+            driftCount = drifts.size();
+            driftAmount = drifts.stream().mapToDouble(drift -> drift.drift().toBigDecimal().abs().doubleValue()).sum();
+            state = totals.state("COMPLETED", startedAt, cutoff, null);
+            log.info("Reconciliation completed: {} accounts, {} transfers, {} chain breaks, {} accounts drifting",
+                    totals.accounts.sum(), totals.transfers.sum(), totals.chainBreaks.sum(), drifts.size());
+        } catch (ExecutionException e) {
+            fail(totals, startedAt, cutoff, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(totals, startedAt, cutoff, e);
+        } catch (RuntimeException e) {
+            fail(totals, startedAt, cutoff, e);
+        } finally {
+            runTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    /**
+     * Moves the watermark forward (never back, should runs on two instances overlap).
+     */
+    private void setWatermark(LocalDateTime reconciledBefore) {
+        if (jdbcTemplate.update("update reconciliation_watermark set reconciled_before = ? where id = ? "
+                + "and reconciled_before < ?", reconciledBefore, WATERMARK_ID, reconciledBefore) == 0) {
+            try {
+                jdbcTemplate.update("insert into reconciliation_watermark (id, reconciled_before) values (?, ?)",
+                        WATERMARK_ID, reconciledBefore);
+            } catch (DuplicateKeyException e) {
+                // Exists with a later cutoff already
+            }
+        }
+    }
+
+    private void fail(Totals totals, LocalDateTime startedAt, LocalDateTime cutoff, Throwable e) {
+        log.error("Reconciliation failed", e);
+        state = totals.state("FAILED", startedAt, cutoff, e.getMessage());
+    }
+
+    private void reconcileChunk(List<Long> accountIds, LocalDateTime cutoff, Totals totals) {
+        LocalDateTime checkedAt = LocalDateTime.now();
+        List<Object[]> checkpoints = snapshot.execute(status -> {
+            // Balances, checkpoints and transfers all come from the same snapshot
+            List<AccountState> accounts = new ArrayList<>(accountIds.size());
+            String placeholders = String.join(", ", Collections.nCopies(accountIds.size(), "?"));
+            jdbcTemplate.query(ACCOUNTS_SQL.formatted(placeholders), (RowCallbackHandler) rs -> accounts.add(new AccountState(
+                    rs.getLong(1), rs.getString(2), rs.getInt(3) > 0, Money.of(rs.getBigDecimal(4)),
+                    money(rs.getBigDecimal(5)), rs.getObject(6, LocalDateTime.class))), accountIds.toArray());
+
+            LocalDateTime archivedBefore = archiveRepository.findArchivedBefore().orElse(BEGINNING);
+            List<Object[]> rows = new ArrayList<>(accounts.size());
+            for (AccountState account : accounts) {
+                List<Entry> entries = new ArrayList<>();
+                LocalDateTime since = account.asOf() == null ? BEGINNING : account.asOf();
+                if (since.isBefore(archivedBefore)) {
+                    // Part of the history since the checkpoint has been archived
+                    jdbcTemplate.query(ARCHIVED_TRANSFERS_SQL.formatted("source"), (RowCallbackHandler) rs -> entries.add(
+                            entry(rs, true)), account.id(), since, archivedBefore);
+                    jdbcTemplate.query(ARCHIVED_TRANSFERS_SQL.formatted("destination"), (RowCallbackHandler) rs -> entries.add(
+                            entry(rs, false)), account.id(), since, archivedBefore);
+                }
+                jdbcTemplate.query(TRANSFERS_SQL.formatted("source"), (RowCallbackHandler) rs -> entries.add(
+                        entry(rs, true)), account.id(), since, archivedBefore);
+                jdbcTemplate.query(TRANSFERS_SQL.formatted("destination"), (RowCallbackHandler) rs -> entries.add(
+                        entry(rs, false)), account.id(), since, archivedBefore);
+                entries.sort(CHAIN_ORDER);
+                rows.add(reconcile(account, entries, cutoff, checkedAt, totals));
+            }
+            return rows;
+        });
+        writes.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, checkpoints));
+    }
+
+    private Object[] reconcile(AccountState account, List<Entry> entries, LocalDateTime cutoff,
+                               LocalDateTime checkedAt, Totals totals) {
+        Money expected = account.checkpointBalance();
+        Money afterCutoff = Money.ZERO;
+        long verified = 0;
+        for (Entry entry : entries) {
+            if (entry.timestamp().isAfter(cutoff)) {
+                afterCutoff = afterCutoff.plus(entry.delta());
+                continue;
+            }
+            // Striped accounts record no balances, so only their amounts are replayed
+            boolean recorded = !account.striped() && entry.oldBalance() != null && entry.newBalance() != null;
+            if (expected == null) {
+                // No checkpoint yet: the account's first transfer with a recorded balance opens the chain
+                expected = recorded ? entry.oldBalance() : null;
+            } else if (recorded && !entry.oldBalance().equals(expected)) {
+                chainBreak(account, entry, "old balance " + entry.oldBalance() + ", expected " + expected, totals);
+            }
+            if (recorded && !entry.newBalance().equals(entry.oldBalance().plus(entry.delta()))) {
+                chainBreak(account, entry, "new balance " + entry.newBalance() + " after " + entry.delta()
+                        + " from " + entry.oldBalance(), totals);
+            }
+            expected = expected == null ? null : expected.plus(entry.delta());
+            verified++;
+        }
+        Money actual = account.balance().minus(afterCutoff);
+        if (expected == null) {
+            // Never had a transfer, or none recorded a balance (striped): nothing to verify against,
+            // the balance is the baseline
+            expected = actual;
+        }
+        totals.accounts.increment();
+        totals.transfers.add(verified);
+        verifiedTransfers.increment(verified);
+
+        Money drift = actual.minus(expected);
+        if (drift.signum() == 0) {
+            consistentAccounts.increment();
+            return new Object[]{account.id(), actual.toBigDecimal(), cutoff, checkedAt, BigDecimal.ZERO};
+        }
+        driftingAccounts.increment();
+        log.warn("Account {} does not reconcile: balance {} as of {}, transfers add up to {} (drift {})",
+                account.accountNumber(), actual, cutoff, expected, drift);
+        // The checkpoint stays at the last point the account reconciled
+        Money checkpointBalance = account.checkpointBalance();
+        return new Object[]{account.id(), checkpointBalance == null ? null : checkpointBalance.toBigDecimal(),
+                account.asOf(), checkedAt, drift.toBigDecimal()};
+    }
+
+    private void chainBreak(AccountState account, Entry entry, String detail, Totals totals) {
+        totals.chainBreaks.increment();
+        chainBreaks.increment();
+        log.warn("Transfer {} breaks the balance chain of account {}: {}", entry.transferId(), account.accountNumber(), detail);
+    }
+
+    private static Entry entry(ResultSet rs, boolean outgoing) throws SQLException {
+        Money amount = Money.of(rs.getBigDecimal(3));
+        Money delta = outgoing ? Money.ZERO.minus(amount) : amount;
+        Money oldBalance = money(rs.getBigDecimal(4));
+        Money newBalance = money(rs.getBigDecimal(5));
+        if (oldBalance == null && newBalance != null) {
+            // Archived rows keep only the new balance
+            oldBalance = newBalance.minus(delta);
+        }
+        return new Entry(rs.getLong(1), rs.getObject(2, LocalDateTime.class), delta, oldBalance, newBalance);
+    }
+
+    private static Money money(BigDecimal value) {
+        return value == null ? null : Money.of(value);
+    }
+
+    /**
+     * @param balance           current balance, account row plus shards
+     * @param checkpointBalance null if the account has never reconciled
+     */
+    private record AccountState(long id, String accountNumber, boolean striped, Money balance,
+                                Money checkpointBalance, LocalDateTime asOf) {}
+
+    /**
+     * One transfer from one account's side.
+     *
+     * @param delta      negative for outgoing transfers
+     * @param oldBalance null if not recorded (striped account), like {@code newBalance}
+     */
+    private record Entry(long transferId, LocalDateTime timestamp, Money delta, Money oldBalance, Money newBalance) {}
+
+    private record RunState(String status, LocalDateTime startedAt, LocalDateTime finishedAt, LocalDateTime cutoff,
+                            long accountsChecked, long transfersVerified, long chainBreaks, String error) {}
+
+    private static final class Totals {
+
+        private final LongAdder accounts = new LongAdder();
+        private final LongAdder transfers = new LongAdder();
+        private final LongAdder chainBreaks = new LongAdder();
+
+        RunState state(String status, LocalDateTime startedAt, LocalDateTime cutoff, String error) {
+            return new RunState(status, startedAt, LocalDateTime.now(), cutoff,
+                    accounts.sum(), transfers.sum(), chainBreaks.sum(), error);
+        }
+    }
+}
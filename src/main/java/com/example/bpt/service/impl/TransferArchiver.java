@@ -0,0 +1,226 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.repository.TransferArchiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves cold transfer history to {@code transfer_archive}, a whole month at a time, once the month is more than
+ * {@code bpt.transfer.archive.hot-months} behind the current one. {@code transfer} then only ever holds about
+ * {@code hot-months + 1} months, so inserts and recent-history reads cost the same however long the history is;
+ * history and statements read the archive for anything older (see {@link TransferArchiveRepository}).
+ * <p>
+ * For each month past the horizon:
+ * <ol>
+ *     <li>copy its rows into the archive, an hour at a time ({@code insert ignore}, so a copy interrupted
+ *     half-way is simply repeated);</li>
+ *     <li>move the watermark ({@code transfer_archive_watermark}) past it: from then on readers take the month
+ *     from the archive;</li>
+ *     <li>remove it from {@code transfer}: drop its partition when the table is partitioned by month, otherwise
+ *     delete its rows in batches.</li>
+ * </ol>
+ * Every step can be repeated after a failure, and a reader taking the watermark and the rows from one snapshot
+ * sees each transfer exactly once at any point. With {@code partitioned=true} the job also splits partitions
+ * for the coming months off the {@code pmax} catch-all while it is still empty, which is instant.
+ */
+@Slf4j
+@Component
+public class TransferArchiver {
+
+    private static final int WATERMARK_ID = 1;
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String COPY_SQL = "insert ignore into transfer_archive (id, source_account_id, "
+            + "destination_account_id, amount, source_new_balance, destination_new_balance, timestamp, performed_by) "
+            + "select id, source_account_id, destination_account_id, amount, source_new_balance, "
+            + "destination_new_balance, timestamp, performed_by from transfer where timestamp >= ? and timestamp < ?";
+
+    /** Like COPY_SQL, but only reads (and writes) the rows the archive does not have yet. */
+    private static final String COPY_MISSING_SQL = COPY_SQL
+            + " and not exists (select 1 from transfer_archive a where a.id = transfer.id)";
+
+    /** Range scan on idx_transfer_timestamp. */
+    private static final String DELETE_SQL = "delete from transfer where timestamp < ? limit ?";
+
+    private static final String PARTITIONS_SQL = "select partition_name from information_schema.partitions "
+            + "where table_schema = database() and table_name = 'transfer' and partition_name is not null";
+
+    private final TransferProperties.Archive properties;
+    private final TransferArchiveRepository archiveRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter archivedRows;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TransferArchiver(TransferProperties properties, TransferArchiveRepository archiveRepository,
+                            DataSource dataSource, PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties.getArchive();
+        this.archiveRepository = archiveRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archivedRows = Counter.builder("bpt.transfer.archived")
+                .description("Transfers moved to transfer_archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${bpt.transfer.archive.cron:0 0 3 * * *}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            archive();
+        }
+    }
+
+    /**
+     * Archives every month past the retention horizon; does nothing while another run is in progress.
+     *
+     * @return the number of transfers copied to the archive
+     */
+    public long archive() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return archive(YearMonth.now());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long archive(YearMonth current) {
+        // Step 1: Partitions for this month and the coming ones
+        if (properties.isPartitioned()) {
+            createPartitions(current);
+        }
+
+        // Step 2: Copy each month past the horizon to the archive and move the watermark past it
+        LocalDateTime horizon = current.minusMonths(properties.getHotMonths()).atDay(1).atStartOfDay();
+        LocalDateTime watermark = archiveRepository.findArchivedBefore().orElse(null);
+        LocalDateTime start = watermark;
+        if (start == null) {
+            LocalDateTime oldest = jdbcTemplate.queryForObject("select min(timestamp) from transfer", LocalDateTime.class);
+            start = oldest == null ? null : YearMonth.from(oldest).atDay(1).atStartOfDay();
+        }
+        long copied = 0;
+        while (start != null && !start.plusMonths(1).isAfter(horizon)) {
+            LocalDateTime end = start.plusMonths(1);
+            long rows = copy(COPY_SQL, start, end);
+            setWatermark(end);
+            watermark = end;
+            copied += rows;
+            archivedRows.increment(rows);
+            log.info("Archived {} transfers of {}", rows, YearMonth.from(start));
+            start = end;
+        }
+
+        // Step 3: Remove everything below the watermark from the hot table (also what an earlier run left behind)
+        if (watermark != null) {
+            copied += purge(watermark);
+        }
+        return copied;
+    }
+
+    /**
+     * Rows that arrived below the watermark after their hour was archived (normally there are none) are copied
+     * before everything below it is removed: an hour at a time again, and only ids missing from the archive.
+     *
+     * @return the number of such late rows
+     */
+    private long purge(LocalDateTime watermark) {
+        LocalDateTime oldest = jdbcTemplate.queryForObject("select min(timestamp) from transfer where timestamp < ?",
+                LocalDateTime.class, watermark);
+        long late = oldest == null ? 0 : copy(COPY_MISSING_SQL, oldest.truncatedTo(ChronoUnit.HOURS), watermark);
+        archivedRows.increment(late);
+        if (properties.isPartitioned()) {
+            dropPartitions(watermark);
+        }
+        long deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_SQL, watermark, properties.getDeleteBatchSize());
+        } while (deleted >= properties.getDeleteBatchSize());
+        return late;
+    }
+
+    /**
+     * One transaction per hour keeps each one small, whatever the month's volume.
+     */
+    private long copy(String sql, LocalDateTime start, LocalDateTime end) {
+        long rows = 0;
+        for (LocalDateTime hour = start; hour.isBefore(end); hour = hour.plusHours(1)) {
+            LocalDateTime from = hour;
+            LocalDateTime to = hour.plusHours(1).isAfter(end) ? end : hour.plusHours(1);
+            rows += transactionTemplate.execute(status -> jdbcTemplate.update(sql, from, to));
+        }
+        return rows;
+    }
+
+    private void setWatermark(LocalDateTime archivedBefore) {
+        if (jdbcTemplate.update("update transfer_archive_watermark set archived_before = ? where id = ?",
+                archivedBefore, WATERMARK_ID) == 0) {
+            try {
+                jdbcTemplate.update("insert into transfer_archive_watermark (id, archived_before) values (?, ?)",
+                        WATERMARK_ID, archivedBefore);
+            } catch (DuplicateKeyException e) {
+                // A concurrent run created the row first; it archives the same months
+                jdbcTemplate.update("update transfer_archive_watermark set archived_before = ? where id = ?",
+                        archivedBefore, WATERMARK_ID);
+            }
+        }
+    }
+
+    private void createPartitions(YearMonth current) {
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(PARTITIONS_SQL, String.class));
+        for (int i = 0; i <= properties.getPremadeMonths(); i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = month.format(PARTITION_NAME);
+            if (!existing.contains(name)) {
+                jdbcTemplate.execute("alter table transfer reorganize partition pmax into (partition " + name
+                        + " values less than ('" + month.plusMonths(1).atDay(1) + "'), "
+                        + "partition pmax values less than (maxvalue))");
+                log.info("Created partition {} of transfer", name);
+            }
+        }
+    }
+
+    /**
+     * Drops the monthly partitions that end at or before the watermark, all in one statement.
+     */
+    private void dropPartitions(LocalDateTime watermark) {
+        List<String> archived = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class)) {
+            try {
+                YearMonth month = YearMonth.parse(name, PARTITION_NAME);
+                if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(watermark)) {
+                    archived.add(name);
+                }
+            } catch (DateTimeParseException e) {
+                // pmax, or a partition not made by this job: its archived rows are deleted instead
+            }
+        }
+        if (!archived.isEmpty()) {
+            jdbcTemplate.execute("alter table transfer drop partition " + String.join(", ", archived));
+            log.info("Dropped partitions {} of transfer", archived);
+        }
+    }
+}
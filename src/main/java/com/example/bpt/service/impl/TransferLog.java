@@ -0,0 +1,74 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.model.Money;
+import com.example.bpt.model.Transfer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emits exactly one log event per transfer attempt, with its fields as key/value pairs so that structured
+ * (JSON) logging renders them as separate attributes. Events are sampled, see {@code bpt.transfer.logging.*}.
+ */
+@Slf4j
+@Component
+public class TransferLog {
+
+    private final TransferProperties.Logging settings;
+
+    public TransferLog(TransferProperties properties) {
+        this.settings = properties.getLogging();
+    }
+
+    public void completed(Transfer transfer, long elapsedNanos) {
+        if (!log.isInfoEnabled() || !sampled(settings.getSampleRate())) {
+            return;
+        }
+        completed(transfer.getId(), transfer.getSourceAccount().getAccountNumber(),
+                transfer.getDestinationAccount().getAccountNumber(), transfer.getAmount(), elapsedNanos);
+    }
+
+    public void completed(TransferResponse transfer, long elapsedNanos) {
+        if (!log.isInfoEnabled() || !sampled(settings.getSampleRate())) {
+            return;
+        }
+        completed(transfer.transferId(), transfer.sourceAccount(), transfer.destinationAccount(), transfer.amount(),
+                elapsedNanos);
+    }
+
+    private void completed(Long id, String source, String destination, Money amount, long elapsedNanos) {
+        log.atInfo()
+                .setMessage("Transfer completed")
+                .addKeyValue("transfer.id", id)
+                .addKeyValue("transfer.source", source)
+                .addKeyValue("transfer.destination", destination)
+                .addKeyValue("transfer.amount", amount)
+                .addKeyValue("transfer.outcome", TransferMetrics.Outcome.SUCCESS.tag())
+                .addKeyValue("transfer.duration_ms", TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .log();
+    }
+
+    public void failed(TransferRequest request, RuntimeException e, long elapsedNanos) {
+        if (!log.isInfoEnabled() || !sampled(settings.getFailureSampleRate())) {
+            return;
+        }
+        log.atInfo()
+                .setMessage("Transfer failed: {}")
+                .addArgument(e.getMessage())
+                .addKeyValue("transfer.source", request.sourceAccount())
+                .addKeyValue("transfer.destination", request.destinationAccount())
+                .addKeyValue("transfer.amount", request.amount())
+                .addKeyValue("transfer.outcome", TransferMetrics.Outcome.of(e).tag())
+                .addKeyValue("transfer.duration_ms", TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .log();
+    }
+
+    private static boolean sampled(double rate) {
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.exception.InsufficientFundsException;
+import com.example.bpt.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for a transfer attempt and for each of its stages, tagged by outcome.
+ * <ul>
+ *     <li>{@code bpt.transfer} - one sample per attempt (a retried request records one per attempt)</li>
+ *     <li>{@code bpt.transfer.stage} - one sample per stage executed, tagged with {@code stage}</li>
+ * </ul>
+ * A stage that fails is recorded with the failure outcome; the stages after it are not recorded.
+ * Both are published with percentile histograms (see {@code management.metrics.distribution.*}).
+ */
+@Component
+public class TransferMetrics {
+
+    public enum Stage {
+        VALIDATION, ACCOUNT_LOOKUP, FUNDS_CHECK, BALANCE_UPDATE, TRANSFER_INSERT, EVENT_PUBLISH;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Outcome {
+        SUCCESS, INSUFFICIENT_FUNDS, NOT_FOUND, LOCK_TIMEOUT, CONFLICT, INVALID_REQUEST, ERROR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+
+        public String tag() {
+            return tag;
+        }
+
+        public static Outcome of(Throwable e) {
+            if (e instanceof InsufficientFundsException) {
+                return INSUFFICIENT_FUNDS;
+            }
+            if (e instanceof ResourceNotFoundException) {
+                return NOT_FOUND;
+            }
+            if (e instanceof PessimisticLockingFailureException) {
+                return LOCK_TIMEOUT;
+            }
+            if (e instanceof OptimisticLockingFailureException) {
+                return CONFLICT;
+            }
+            if (e instanceof IllegalArgumentException) {
+                return INVALID_REQUEST;
+            }
+            return ERROR;
+        }
+    }
+
+    private final EnumMap<Outcome, Timer> transferTimers = new EnumMap<>(Outcome.class);
+    private final EnumMap<Stage, EnumMap<Outcome, Timer>> stageTimers = new EnumMap<>(Stage.class);
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        // All tag combinations are registered up front, so the hot path is two array lookups per sample
+        for (Outcome outcome : Outcome.values()) {
+            transferTimers.put(outcome, Timer.builder("bpt.transfer")
+                    .description("Transfer attempts")
+                    .tag("outcome", outcome.tag)
+                    .register(meterRegistry));
+        }
+        for (Stage stage : Stage.values()) {
+            EnumMap<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                timers.put(outcome, Timer.builder("bpt.transfer.stage")
+                        .description("Transfer stages")
+                        .tag("stage", stage.tag)
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry));
+            }
+            stageTimers.put(stage, timers);
+        }
+    }
+
+    /**
+     * Starts timing a transfer attempt; call {@link Attempt#stage} as each stage begins, then exactly one of
+     * {@link Attempt#success()} or {@link Attempt#failure(RuntimeException)}.
+     */
+    public Attempt begin() {
+        return new Attempt();
+    }
+
+    public final class Attempt {
+
+        private final long started = System.nanoTime();
+        private Stage stage;
+        private long stageStarted;
+
+        private Attempt() {
+        }
+
+        public long elapsedNanos() {
+            return System.nanoTime() - started;
+        }
+
+        /**
+         * Closes the running stage (as successful) and starts the next one.
+         */
+        public void stage(Stage next) {
+            long now = System.nanoTime();
+            if (stage != null) {
+                record(stageTimers.get(stage), Outcome.SUCCESS, stageStarted, now);
+            }
+            stage = next;
+            stageStarted = now;
+        }
+
+        public void success() {
+            long now = System.nanoTime();
+            if (stage != null) {
+                record(stageTimers.get(stage), Outcome.SUCCESS, stageStarted, now);
+            }
+            record(transferTimers, Outcome.SUCCESS, started, now);
+        }
+
+        /**
+         * Records the running stage and the attempt with the outcome derived from {@code e}.
+         */
+        public void failure(RuntimeException e) {
+            long now = System.nanoTime();
+            Outcome outcome = Outcome.of(e);
+            if (stage != null) {
+                record(stageTimers.get(stage), outcome, stageStarted, now);
+            }
+            record(transferTimers, outcome, started, now);
+        }
+    }
+
+    private static void record(EnumMap<Outcome, Timer> timers, Outcome outcome, long started, long ended) {
+        timers.get(outcome).record(ended - started, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.event.TransferCompletedEvent;
+import com.example.bpt.kafka.TransferEventProducer;
+import com.example.bpt.model.OutboxEvent;
+import com.example.bpt.model.Transfer;
+import com.example.bpt.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes {@link TransferCompletedEvent}s into the transactional outbox. The rows commit or roll back
+ * together with the transfer itself; {@link com.example.bpt.kafka.TransferOutboxRelay} publishes them.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransferOutboxWriter {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(Transfer transfer) {
+        outboxEventRepository.save(toOutboxEvent(transfer));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<Transfer> transfers) {
+        List<OutboxEvent> events = new ArrayList<>(transfers.size());
+        for (Transfer transfer : transfers) {
+            events.add(toOutboxEvent(transfer));
+        }
+        outboxEventRepository.saveAll(events);
+    }
+
+    private OutboxEvent toOutboxEvent(Transfer transfer) {
+        TransferCompletedEvent event = new TransferCompletedEvent(
+                transfer.getId(),
+                transfer.getSourceAccount().getAccountNumber(),
+                transfer.getDestinationAccount().getAccountNumber(),
+                transfer.getAmount().toBigDecimal(),
+                transfer.getTimestamp()
+        );
+        try {
+            return OutboxEvent.builder()
+                    .topic(TransferEventProducer.TOPIC)
+                    .payload(objectMapper.writeValueAsString(event))
+                    .createdAt(LocalDateTime.now())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize transfer event for transfer " + transfer.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.RateLimitProperties;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.exception.RateLimitExceededException;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.projection.AccountKey;
+import com.example.bpt.util.AccountNumberResult;
+import com.example.bpt.util.AccountUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Transfer velocity limits (count and amount per sliding window) per source account, by account tier, and per
+ * user owning the source account. Checked before a transfer reaches the transfer service, so a runaway client
+ * is turned away without a database round trip (apart from the account key, which is cached).
+ * <p>
+ * Each account and user has its own counters, updated with atomic adds and no lock; a window rolls over with a
+ * single compare-and-set. The window slides by weighting the previous window's totals by the share of it that
+ * still overlaps the sliding window, so only two buckets are kept per key. A check adds first and takes the
+ * addition back when it went over a limit, so concurrent checks can never admit more than the limit together.
+ * Amount sums saturate at {@code Long.MAX_VALUE} instead of overflowing into admitting negative totals.
+ * <p>
+ * Only transfers that run should count: the caller gets a {@link Permit} and gives back what was not executed
+ * (a rejected submission, a failed transfer or batch item).
+ * <p>
+ * Requests that cannot be attributed (malformed, unknown source account, invalid amount) are not counted; the
+ * transfer service rejects them.
+ */
+@Component
+public class TransferRateLimiter {
+
+    private final boolean enabled;
+    private final Duration window;
+    private final long windowNanos;
+    private final Limit defaultLimit;
+    private final Map<String, Limit> accountLimits = new HashMap<>();
+    private final Limit userLimit;
+
+    private final AccountCache accountCache;
+    private final AccountRepository accountRepository;
+    private final Cache<String, SlidingWindow> accountWindows;
+    private final Cache<Long, SlidingWindow> userWindows;
+
+    private final Counter accountRejections;
+    private final Counter userRejections;
+
+    public TransferRateLimiter(RateLimitProperties properties, AccountCache accountCache,
+                               AccountRepository accountRepository, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.window = properties.getWindow();
+        this.windowNanos = window.toNanos();
+        this.accountCache = accountCache;
+        this.accountRepository = accountRepository;
+
+        Map<String, Limit> tiers = new HashMap<>();
+        properties.getTiers().forEach((tier, limit) -> tiers.put(tier, Limit.of(limit)));
+        this.defaultLimit = tiers.getOrDefault(properties.getDefaultTier(), Limit.UNLIMITED);
+        properties.getAccountTiers().forEach((accountNumber, tier) -> {
+            if (!tiers.containsKey(tier)) {
+                throw new IllegalStateException("Unknown rate limit tier '" + tier + "' for account " + accountNumber);
+            }
+            accountLimits.put(AccountUtils.normalizeAccountNumber(accountNumber), tiers.get(tier));
+        });
+        this.userLimit = Limit.of(properties.getUser());
+
+        this.accountWindows = Caffeine.newBuilder().maximumSize(properties.getMaxTrackedKeys()).build();
+        this.userWindows = Caffeine.newBuilder().maximumSize(properties.getMaxTrackedKeys()).build();
+
+        this.accountRejections = Counter.builder("bpt.transfer.throttled")
+                .description("Transfers rejected by a velocity limit")
+                .tag("scope", "account")
+                .register(meterRegistry);
+        this.userRejections = Counter.builder("bpt.transfer.throttled")
+                .description("Transfers rejected by a velocity limit")
+                .tag("scope", "user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts the transfer against its source account and user.
+     *
+     * @return the permit to release if the transfer does not run after all
+     * @throws RateLimitExceededException if either limit would be exceeded; nothing is counted then
+     */
+    public Permit acquire(TransferRequest request) {
+        if (!enabled) {
+            return new Permit();
+        }
+        AccountKey key = attribute(request);
+        if (key == null) {
+            return new Permit();
+        }
+        long amount = request.amount().minorUnits();
+        Usage accountUsage = new Usage();
+        accountUsage.add(amount);
+        Usage userUsage = new Usage();
+        userUsage.add(amount);
+        return acquire(Map.of(key.accountNumber(), accountUsage), Map.of(key.ownerId(), userUsage));
+    }
+
+    /**
+     * Counts all transfers of a batch, or none of them if any limit would be exceeded.
+     *
+     * @return the permit to release the items that do not run from
+     * @throws RateLimitExceededException if a limit would be exceeded
+     */
+    public Permit acquire(List<TransferRequest> requests) {
+        if (!enabled || requests == null) {
+            return new Permit();
+        }
+
+        // Step 1: Add up the batch per source account and per user, so every key is checked once
+        Map<String, Usage> byAccount = new LinkedHashMap<>();
+        Map<Long, Usage> byUser = new LinkedHashMap<>();
+        for (TransferRequest request : requests) {
+            AccountKey key = attribute(request);
+            if (key != null) {
+                long amount = request.amount().minorUnits();
+                byAccount.computeIfAbsent(key.accountNumber(), accountNumber -> new Usage()).add(amount);
+                byUser.computeIfAbsent(key.ownerId(), ownerId -> new Usage()).add(amount);
+            }
+        }
+
+        // Step 2: Count each key, taking everything back on the first one over its limit
+        return acquire(byAccount, byUser);
+    }
+
+    /**
+     * @return the source account of the request, or null if it cannot be attributed
+     */
+    private AccountKey attribute(TransferRequest request) {
+        if (request == null || request.amount() == null || request.amount().signum() <= 0) {
+            return null;
+        }
+        AccountNumberResult number = AccountUtils.parseAccountNumber(request.sourceAccount());
+        if (!number.isValid()) {
+            return null;
+        }
+        return accountCache.key(number.normalized(), accountRepository::findKeyByAccountNumber).orElse(null);
+    }
+
+    private Permit acquire(Map<String, Usage> byAccount, Map<Long, Usage> byUser) {
+        long now = System.nanoTime();
+        long index = Math.floorDiv(now, windowNanos);
+        long elapsed = Math.floorMod(now, windowNanos);
+        double previousWeight = 1.0 - (double) elapsed / windowNanos;
+        Permit permit = new Permit();
+        for (Map.Entry<String, Usage> entry : byAccount.entrySet()) {
+            Bucket bucket = window(accountWindows, entry.getKey()).bucket(index);
+            Limit limit = accountLimits.getOrDefault(entry.getKey(), defaultLimit);
+            Acquired acquired = tryAcquire(bucket, limit, entry.getValue(), previousWeight, permit);
+            if (acquired == null) {
+                accountRejections.increment();
+                throw exceeded("Transfer limit exceeded for source account " + entry.getKey(), elapsed);
+            }
+            permit.accounts.put(entry.getKey(), acquired);
+        }
+        for (Map.Entry<Long, Usage> entry : byUser.entrySet()) {
+            Bucket bucket = window(userWindows, entry.getKey()).bucket(index);
+            Acquired acquired = tryAcquire(bucket, userLimit, entry.getValue(), previousWeight, permit);
+            if (acquired == null) {
+                userRejections.increment();
+                throw exceeded("Transfer limit exceeded for the owner of the source account", elapsed);
+            }
+            permit.users.put(entry.getKey(), acquired);
+        }
+        return permit;
+    }
+
+    private static <K> SlidingWindow window(Cache<K, SlidingWindow> windows, K key) {
+        // Plain lookup first: get(key, loader) is a compute, noticeably slower on the hit path
+        SlidingWindow window = windows.getIfPresent(key);
+        return window != null ? window : windows.get(key, k -> new SlidingWindow());
+    }
+
+    /**
+     * @return what was counted, or null (with everything in the permit released) if a limit would be exceeded
+     */
+    private static Acquired tryAcquire(Bucket bucket, Limit limit, Usage usage, double previousWeight,
+                                       Permit permit) {
+        if (usage.amount > limit.maxAmount()) {
+            // Over the limit on its own: do not count it at all, so a bucket only saturates when it is unlimited
+            permit.release();
+            return null;
+        }
+        long transfers = bucket.transfers.addAndGet(usage.transfers);
+        long amount = bucket.amount.accumulateAndGet(usage.amount, TransferRateLimiter::saturatedAdd);
+        Acquired acquired = new Acquired(bucket, usage);
+
+        Bucket previous = bucket.previous;
+        if (previous != null) {
+            transfers += (long) Math.ceil(previous.transfers.get() * previousWeight);
+            amount = saturatedAdd(amount, (long) Math.ceil(previous.amount.get() * previousWeight));
+        }
+        if (transfers > limit.maxTransfers() || amount > limit.maxAmount()) {
+            acquired.release();
+            permit.release();
+            return null;
+        }
+        return acquired;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        // Overflow only when both operands have the same sign and the sum has the other one
+        if (((a ^ sum) & (b ^ sum)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return sum;
+    }
+
+    private RateLimitExceededException exceeded(String message, long elapsedNanos) {
+        // The previous window's weight starts dropping once the current window ends
+        Duration retryAfter = Duration.ofNanos(windowNanos - elapsedNanos);
+        return new RateLimitExceededException(message + " (per " + window + "), retry later", retryAfter);
+    }
+
+    /**
+     * @param maxAmount in minor units
+     */
+    private record Limit(long maxTransfers, long maxAmount) {
+
+        static final Limit UNLIMITED = new Limit(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        static Limit of(RateLimitProperties.Limit limit) {
+            return new Limit(
+                    limit.getMaxTransfers() > 0 ? limit.getMaxTransfers() : Long.MAX_VALUE,
+                    limit.getMaxAmount() != null ? Money.of(limit.getMaxAmount()).minorUnits() : Long.MAX_VALUE);
+        }
+    }
+
+    private static final class Usage {
+
+        private long transfers;
+        private long amount;
+
+        void add(long amount) {
+            this.transfers++;
+            this.amount = saturatedAdd(this.amount, amount);
+        }
+    }
+
+    /**
+     * What a successful {@link #acquire} counted; give back what does not run, so it stops counting against the
+     * limits. Meant for the request thread that acquired it, and not thread-safe.
+     */
+    public final class Permit {
+
+        private final Map<String, Acquired> accounts = new HashMap<>();
+        private final Map<Long, Acquired> users = new HashMap<>();
+
+        private Permit() {
+        }
+
+        /**
+         * Gives back one transfer of the acquired batch (or the acquired transfer itself).
+         */
+        public void release(TransferRequest request) {
+            if (accounts.isEmpty()) {
+                return;
+            }
+            AccountKey key = attribute(request);
+            if (key == null) {
+                return;
+            }
+            long amount = request.amount().minorUnits();
+            Acquired account = accounts.get(key.accountNumber());
+            if (account != null) {
+                account.release(1, amount);
+            }
+            Acquired user = users.get(key.ownerId());
+            if (user != null) {
+                user.release(1, amount);
+            }
+        }
+
+        /**
+         * Gives back everything not given back yet.
+         */
+        public void release() {
+            accounts.values().forEach(Acquired::release);
+            accounts.clear();
+            users.values().forEach(Acquired::release);
+            users.clear();
+        }
+    }
+
+    /**
+     * The usage counted into one bucket, less what was given back since.
+     */
+    private record Acquired(Bucket bucket, Usage usage) {
+
+        void release() {
+            release(usage.transfers, usage.amount);
+        }
+
+        void release(long transfers, long amount) {
+            // Never give back more than was counted, e.g. for a request released twice
+            transfers = Math.min(transfers, usage.transfers);
+            amount = Math.min(amount, usage.amount);
+            bucket.transfers.addAndGet(-transfers);
+            bucket.amount.addAndGet(-amount);
+            usage.transfers -= transfers;
+            usage.amount -= amount;
+        }
+    }
+
+    /**
+     * The current bucket of one key; replaced (never locked) when the window rolls over.
+     */
+    private static final class SlidingWindow {
+
+        private final AtomicReference<Bucket> current = new AtomicReference<>(new Bucket(Long.MIN_VALUE, null));
+
+        Bucket bucket(long index) {
+            Bucket bucket = current.get();
+            while (bucket.index < index) {
+                Bucket next = new Bucket(index, bucket.index == index - 1 ? bucket : null);
+                if (current.compareAndSet(bucket, next)) {
+                    // Only the latest two windows count, so do not keep a chain of older ones alive
+                    bucket.previous = null;
+                    return next;
+                }
+                bucket = current.get();
+            }
+            // A concurrent check with a later clock reading may already have moved on; count into its bucket
+            return bucket;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final long index;
+        private final AtomicLong transfers = new AtomicLong();
+        private final AtomicLong amount = new AtomicLong();
+        private volatile Bucket previous;
+
+        Bucket(long index, Bucket previous) {
+            this.index = index;
+            this.previous = previous;
+        }
+    }
+}
@@ -1,28 +1,49 @@
 package com.example.bpt.service.impl;
 
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.BatchTransferItemResult;
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
 import com.example.bpt.dto.TransferRequest;
 import com.example.bpt.dto.TransferResponse;
-import com.example.bpt.event.TransferCompletedEvent;
-import com.example.bpt.kafka.TransferEventProducer;
 import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
 import com.example.bpt.model.Transfer;
+import com.example.bpt.model.User;
 import com.example.bpt.repository.AccountRepository;
 import com.example.bpt.repository.TransferRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.repository.projection.AccountBalance;
+import com.example.bpt.repository.projection.AccountKey;
 import com.example.bpt.service.TransferService;
 import com.example.bpt.util.AccountUtils;
-import jakarta.validation.constraints.DecimalMin;
-import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
+import com.example.bpt.exception.InsufficientFundsException;
 import com.example.bpt.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Slf4j
+@ConditionalOnProperty(name = "bpt.transfer.engine", havingValue = "database", matchIfMissing = true)
 public class TransferServiceImpl implements TransferService {
 
     @Autowired
@@ -30,35 +51,293 @@ public class TransferServiceImpl implements TransferService {
     @Autowired
     private  TransferRepository transferRepository;
     @Autowired
-    private TransferEventProducer transferEventProducer;
+    private UserRepository userRepository;
+    @Autowired
+    private TransferOutboxWriter transferOutboxWriter;
+    @Autowired
+    private IdempotencyCompletionWriter idempotencyCompletionWriter;
+    @Autowired
+    private TransferProperties transferProperties;
+    @Autowired
+    private AccountContentionTracker contentionTracker;
+    @Autowired
+    private BalanceShardService balanceShardService;
+    @Autowired
+    private TransferMetrics transferMetrics;
+    @Autowired
+    private TransferLog transferLog;
+    @Autowired
+    private AccountCache accountCache;
 
+    /**
+     * Runs in its own transaction per attempt. Deadlocks, lock-wait timeouts and optimistic version
+     * conflicts roll the attempt back and are retried with jittered exponential backoff
+     * (retry advice is applied outside the transaction).
+     */
     @Override
     @Transactional
+    @Retryable(
+            retryFor = {PessimisticLockingFailureException.class, OptimisticLockingFailureException.class},
+            maxAttemptsExpression = "${bpt.transfer.retry.max-attempts:3}",
+            backoff = @Backoff(
+                    delayExpression = "${bpt.transfer.retry.initial-delay-ms:25}",
+                    multiplierExpression = "${bpt.transfer.retry.multiplier:2}",
+                    maxDelayExpression = "${bpt.transfer.retry.max-delay-ms:250}",
+                    random = true))
     public TransferResponse transferFunds(TransferRequest request) {
 
-        log.info("Initiating transfer from {} to {} amount {}",
-                request.sourceAccount(), request.destinationAccount(), request.amount());
+        TransferMetrics.Attempt attempt = transferMetrics.begin();
+        try {
+            // Step 1: Validate request format and business rules (e.g., positive amount, distinct accounts)
+            attempt.stage(TransferMetrics.Stage.VALIDATION);
+            validateRequest(request);
+
+            // Step 2: Normalize the account numbers (malformed input is rejected here, before any query),
+            // then retrieve source and destination accounts. Rows are locked in account number order,
+            // unless optimistic mode is on and neither account is currently hot. Striped destinations are
+            // never locked: their credits go to balance shards
+            String sourceNumber = AccountUtils.parseAccountNumber(request.sourceAccount()).orElseThrow();
+            String destinationNumber = AccountUtils.parseAccountNumber(request.destinationAccount()).orElseThrow();
+            if (useConditionalUpdate(sourceNumber, destinationNumber)) {
+                // Steps 2-5 without account entities; the funds check is part of the debit UPDATE
+                Transfer transfer = transferByConditionalUpdate(sourceNumber, destinationNumber, request.amount(), attempt);
+                TransferResponse response = complete(transfer);
+                recordAfterCommit(request, transfer, attempt);
+                return response;
+            }
+            attempt.stage(TransferMetrics.Stage.ACCOUNT_LOOKUP);
+            boolean optimistic = useOptimisticLocking(sourceNumber, destinationNumber);
+            AccountPair accounts = loadAccounts(sourceNumber, destinationNumber, !optimistic);
+            Account source = accounts.source();
+            Account destination = accounts.destination();
+
+            // Step 3: Ensure the source account has sufficient balance for this transaction
+            attempt.stage(TransferMetrics.Stage.FUNDS_CHECK);
+            validateFunds(source, request.amount());
+
+            // Step 4: Apply balance changes and flush them, so lock and version failures surface in this stage
+            attempt.stage(TransferMetrics.Stage.BALANCE_UPDATE);
+            try {
+                updateBalances(source, destination, request.amount(), accounts.creditInPlace());
+                accountRepository.flush();
+                accountCache.evictBalancesAfterCommit(List.of(source, destination));
+                if (optimistic) {
+                    contentionTracker.recordSuccess(sourceNumber);
+                    contentionTracker.recordSuccess(destinationNumber);
+                }
+            } catch (OptimisticLockingFailureException e) {
+                contentionTracker.recordConflict(sourceNumber);
+                contentionTracker.recordConflict(destinationNumber);
+                throw e;
+            }
 
-        // Step 1: Validate request format and business rules (e.g., positive amount, distinct accounts)
-        validateRequest(request);
+            // Step 5: Persist the transfer record and queue its Kafka event for audit/tracking
+            Transfer transfer = recordTransfer(source, destination, request.amount(), accounts.creditInPlace(), attempt);
 
-        // Step 2: Retrieve and verify source and destination accounts
-        Account source = findAccount(request.sourceAccount(), "source");
-        Account destination = findAccount(request.destinationAccount(), "destination");
+            // Step 6: Return response object containing transfer summary, stored for its Idempotency-Key if any.
+            // The attempt counts as completed once it commits; nothing may fail after this registration, or
+            // the failure would be recorded twice
+            TransferResponse response = complete(transfer);
+            recordAfterCommit(request, transfer, attempt);
+            return response;
+        } catch (RuntimeException e) {
+            attempt.failure(e);
+            transferLog.failed(request, e, attempt.elapsedNanos());
+            throw e;
+        }
+
+    }
+
+    @Override
+    @Transactional
+    @Retryable(
+            retryFor = {PessimisticLockingFailureException.class, OptimisticLockingFailureException.class},
+            maxAttemptsExpression = "${bpt.transfer.retry.max-attempts:3}",
+            backoff = @Backoff(
+                    delayExpression = "${bpt.transfer.retry.initial-delay-ms:25}",
+                    multiplierExpression = "${bpt.transfer.retry.multiplier:2}",
+                    maxDelayExpression = "${bpt.transfer.retry.max-delay-ms:250}",
+                    random = true))
+    public BatchTransferResponse transferBatch(BatchTransferRequest request) {
+        List<TransferRequest> items = request.transfers() == null ? List.of() : request.transfers();
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one transfer");
+        }
+        if (items.size() > transferProperties.getBatch().getMaxSize()) {
+            throw new IllegalArgumentException("Batch exceeds the maximum of "
+                    + transferProperties.getBatch().getMaxSize() + " transfers");
+        }
+        log.debug("Initiating batch of {} transfers (atomic: {})", items.size(), request.atomic());
+
+        // Step 1: Validate and normalize every item before any account is touched
+        BatchTransferItemResult[] results = new BatchTransferItemResult[items.size()];
+        List<BatchItem> pending = new ArrayList<>(items.size());
+        for (int index = 0; index < items.size(); index++) {
+            TransferRequest item = items.get(index);
+            try {
+                validateRequest(item);
+                String sourceNumber = AccountUtils.parseAccountNumber(item.sourceAccount()).orElseThrow();
+                String destinationNumber = AccountUtils.parseAccountNumber(item.destinationAccount()).orElseThrow();
+                if (sourceNumber.equals(destinationNumber)) {
+                    throw new IllegalArgumentException("Source and destination accounts cannot be the same");
+                }
+                pending.add(new BatchItem(index, sourceNumber, destinationNumber, item.amount()));
+            } catch (RuntimeException e) {
+                results[index] = failBatchItem(index, e, request.atomic());
+            }
+        }
+
+        // Step 2: Load every referenced account in one query, locked in account number order
+        BatchAccounts accounts = loadBatchAccounts(pending);
 
-        // Step 3: Ensure the source account has sufficient balance for this transaction
-        validateFunds(source, request.amount());
+        // Step 3 + 4: Check funds and apply balance changes in memory, item by item in request order
+        List<Transfer> transfers = new ArrayList<>(pending.size());
+        List<Integer> transferIndexes = new ArrayList<>(pending.size());
+        Map<Account, String> shardKeys = new HashMap<>();
+        for (BatchItem item : pending) {
+            try {
+                Account source = requireAccount(accounts.byNumber(), item.sourceNumber(), "source");
+                Account destination = requireAccount(accounts.byNumber(), item.destinationNumber(), "destination");
+                validateFunds(source, item.amount());
 
-        // Step 4: Apply balance changes atomically in memory (database persistence occurs in this transaction)
-        updateBalances(source, destination, request.amount());
+                source.setBalance(source.getBalance().minus(item.amount()));
+                if (accounts.creditInPlace().containsKey(destination)) {
+                    accounts.creditInPlace().merge(destination, item.amount(), Money::plus);
+                    shardKeys.putIfAbsent(destination, source.getAccountNumber());
+                } else {
+                    destination.setBalance(destination.getBalance().plus(item.amount()));
+                }
 
-        // Step 5: Persist the transfer record and emit Kafka event for audit/tracking
-        Transfer transfer = recordTransfer(source, destination, request.amount());
-        log.info("Transfer completed successfully. ID: {}", transfer.getId());
+                transfers.add(newTransfer(source, destination, item.amount(),
+                        recordedBalance(source), recordedBalance(destination), source.getOwner()));
+                transferIndexes.add(item.index());
+            } catch (RuntimeException e) {
+                results[item.index()] = failBatchItem(item.index(), e, request.atomic());
+            }
+        }
 
-        // Step 6: Return response object containing transfer summary
-        return mapToResponse(transfer);
+        // Step 5: Persist all transfer rows and their outbox events as JDBC batches
+        // (account rows are flushed by dirty checking)
+        transfers = transferRepository.saveAll(transfers);
+        transferRepository.flush();
 
+        // Credits to unlocked (striped) destinations are coalesced into one shard update per account, picked by
+        // the first source crediting it, so concurrent batches into the same account spread over its shards.
+        // Only now that the rows are inserted: their foreign key checks share-lock the destination rows, and
+        // shard locks are always taken after the account row lock
+        accounts.creditInPlace().forEach((account, credited) -> {
+            if (credited.signum() > 0) {
+                balanceShardService.credit(account, credited, shardKeys.get(account));
+            }
+        });
+        accountCache.evictBalancesAfterCommit(accounts.byNumber().values());
+        transferOutboxWriter.appendAll(transfers);
+        for (int i = 0; i < transfers.size(); i++) {
+            Transfer transfer = transfers.get(i);
+            results[transferIndexes.get(i)] = BatchTransferItemResult.success(transferIndexes.get(i), mapToResponse(transfer));
+        }
+
+        // Step 6: Return per-item results in request order
+        log.info("Batch completed: {} succeeded, {} failed", transfers.size(), items.size() - transfers.size());
+        return new BatchTransferResponse(transfers.size(), items.size() - transfers.size(), Arrays.asList(results));
+    }
+
+    private BatchTransferItemResult failBatchItem(int index, RuntimeException e, boolean atomic) {
+        if (atomic) {
+            // All-or-nothing: abort (and roll back) the whole batch on the first failing item
+            if (e instanceof ResourceNotFoundException) {
+                throw new ResourceNotFoundException("Batch item " + index + ": " + e.getMessage());
+            }
+            throw new IllegalArgumentException("Batch item " + index + ": " + e.getMessage(), e);
+        }
+        return BatchTransferItemResult.failure(index, e.getMessage());
+    }
+
+    private BatchAccounts loadBatchAccounts(List<BatchItem> items) {
+        Set<String> sourceNumbers = new HashSet<>();
+        Set<String> allNumbers = new HashSet<>();
+        for (BatchItem item : items) {
+            sourceNumbers.add(item.sourceNumber());
+            allNumbers.add(item.sourceNumber());
+            allNumbers.add(item.destinationNumber());
+        }
+
+        // Striped accounts that only receive money in this batch stay unlocked; everything else is locked
+        Set<String> unlockedNumbers = new HashSet<>();
+        for (String number : allNumbers) {
+            if (!sourceNumbers.contains(number) && balanceShardService.isStriped(number)) {
+                unlockedNumbers.add(number);
+            }
+        }
+        Set<String> lockedNumbers = new HashSet<>(allNumbers);
+        lockedNumbers.removeAll(unlockedNumbers);
+
+        Map<String, Account> byNumber = new HashMap<>();
+        if (!lockedNumbers.isEmpty()) {
+            for (Account account : accountRepository.lockByAccountNumbersOrdered(lockedNumbers)) {
+                byNumber.put(account.getAccountNumber(), account);
+                if (balanceShardService.isStriped(account)) {
+                    // We hold the row lock, so fold the shards in and treat it like any other account
+                    balanceShardService.sweepInto(account);
+                }
+            }
+        }
+
+        Map<Account, Money> creditInPlace = new HashMap<>();
+        if (!unlockedNumbers.isEmpty()) {
+            for (Account account : accountRepository.findByAccountNumberIn(unlockedNumbers)) {
+                byNumber.put(account.getAccountNumber(), account);
+                creditInPlace.put(account, Money.ZERO);
+            }
+        }
+        return new BatchAccounts(byNumber, creditInPlace);
+    }
+
+    private record BatchItem(int index, String sourceNumber, String destinationNumber, Money amount) {}
+
+    /**
+     * @param byNumber        every loaded account by normalized number
+     * @param creditInPlace   unlocked striped destinations with the amount credited to them so far
+     */
+    private record BatchAccounts(Map<String, Account> byNumber,
+                                 Map<Account, Money> creditInPlace) {}
+
+    /**
+     * Records the attempt as a success (metrics and transfer log) once its transaction has committed, or as a
+     * failure if the commit does not go through. Recorded at once when no transaction is synchronized.
+     */
+    private void recordAfterCommit(TransferRequest request, Transfer transfer, TransferMetrics.Attempt attempt) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            attempt.success();
+            transferLog.completed(transfer, attempt.elapsedNanos());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                attempt.success();
+                transferLog.completed(transfer, attempt.elapsedNanos());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    TransactionSystemException e = new TransactionSystemException("Transfer transaction did not commit");
+                    attempt.failure(e);
+                    transferLog.failed(request, e, attempt.elapsedNanos());
+                }
+            }
+        });
+    }
+
+    /**
+     * Maps the transfer to its response and, within the transfer's transaction, stores that response for the
+     * Idempotency-Key the request runs under (if any).
+     */
+    private TransferResponse complete(Transfer transfer) {
+        TransferResponse response = mapToResponse(transfer);
+        idempotencyCompletionWriter.complete(response);
+        return response;
     }
 
     private TransferResponse mapToResponse(Transfer transfer) {
@@ -72,59 +351,221 @@ public class TransferServiceImpl implements TransferService {
         );
     }
 
-    private Transfer recordTransfer(Account source, Account destination, @NotNull @DecimalMin(value = "0.01", message = "Transfer amount must be positive") BigDecimal amount) {
-        // Build a Transfer entity capturing before/after balance states for both accounts
-        Transfer transfer = Transfer.builder()
+    private Transfer recordTransfer(Account source, Account destination, Money amount,
+                                    boolean creditInPlace, TransferMetrics.Attempt attempt) {
+        attempt.stage(TransferMetrics.Stage.TRANSFER_INSERT);
+        Money sourceNewBalance = recordedBalance(source);
+        Money destinationNewBalance = creditInPlace ? null : recordedBalance(destination);
+        Transfer transfer = insertTransfer(source, destination, amount, sourceNewBalance, destinationNewBalance,
+                source.getOwner());
+        if (creditInPlace) {
+            // Hot destination: credit one balance shard instead of the contended account row. Only after the
+            // INSERT, whose foreign key check share-locks the destination row, so the shard lock is taken after
+            // the account row lock like everywhere else (rebalancing locks the row, then its shards)
+            balanceShardService.credit(destination, amount, source.getAccountNumber());
+        }
+        return publishTransfer(transfer, attempt);
+    }
+
+    /**
+     * The balance recorded on the transfer for one side, or null for a striped account: its credits land on
+     * shards without its row lock, so concurrent transfers cannot record balances that chain (history shows
+     * no balance for them).
+     */
+    private Money recordedBalance(Account account) {
+        return balanceShardService.isStriped(account) ? null : account.getBalance();
+    }
+
+    /**
+     * A Transfer entity capturing before/after balance states for both accounts (null where not recorded).
+     */
+    private static Transfer newTransfer(Account source, Account destination, Money amount, Money sourceNewBalance,
+                                        Money destinationNewBalance, User performedBy) {
+        return Transfer.builder()
                 .sourceAccount(source)
                 .destinationAccount(destination)
                 .amount(amount)
-                .sourceOldBalance(source.getBalance().add(amount))
-                .sourceNewBalance(source.getBalance())
-                .destinationOldBalance(destination.getBalance().subtract(amount))
-                .destinationNewBalance(destination.getBalance())
+                .sourceOldBalance(sourceNewBalance == null ? null : sourceNewBalance.plus(amount))
+                .sourceNewBalance(sourceNewBalance)
+                .destinationOldBalance(destinationNewBalance == null ? null : destinationNewBalance.minus(amount))
+                .destinationNewBalance(destinationNewBalance)
                 .timestamp(LocalDateTime.now())
-                .performedBy(source.getOwner()) // Audit: which user initiated the transfer
+                .performedBy(performedBy) // Audit: which user initiated the transfer
                 .build();
+    }
+
+    private Transfer insertTransfer(Account source, Account destination, Money amount, Money sourceNewBalance,
+                                    Money destinationNewBalance, User performedBy) {
+        Transfer transfer = newTransfer(source, destination, amount, sourceNewBalance, destinationNewBalance, performedBy);
 
-        // Persist transfer record for audit and history tracking
+        // Persist transfer record for audit and history tracking (flushed per stage, so each INSERT is
+        // timed where it belongs instead of at commit)
         transfer = transferRepository.save(transfer);
+        transferRepository.flush();
+        return transfer;
+    }
 
-        // Attempt to publish Kafka event (non-blocking; failure is logged but ignored)
-        try {
-            transferEventProducer.sendTransferCompletedEvent(
-                    new TransferCompletedEvent(
-                            source.getAccountNumber(),
-                            destination.getAccountNumber(),
-                            amount,
-                            LocalDateTime.now()
-                    )
-            );
-        } catch (Exception e) {
-            log.error("Failed to send Kafka event for transfer ID {}: {}", transfer.getId(), e.getMessage());
+    private Transfer publishTransfer(Transfer transfer, TransferMetrics.Attempt attempt) {
+        // Queue the Kafka event in the transactional outbox; it commits (or rolls back) with the transfer
+        // and is published asynchronously by the outbox relay
+        attempt.stage(TransferMetrics.Stage.EVENT_PUBLISH);
+        transferOutboxWriter.append(transfer);
+        transferRepository.flush();
+        return transfer;
+    }
+
+    /**
+     * Lean write path: the accounts are addressed by their cached ids and never loaded as entities. The debit
+     * is a conditional UPDATE that only matches while the balance covers the amount, so the funds check
+     * cannot race with concurrent writers; the credit is a plain in-place UPDATE. New balances and versions are
+     * read back in one query (MySQL has no UPDATE ... RETURNING).
+     */
+    private Transfer transferByConditionalUpdate(String sourceNumber, String destinationNumber, Money amount,
+                                                 TransferMetrics.Attempt attempt) {
+        attempt.stage(TransferMetrics.Stage.ACCOUNT_LOOKUP);
+        if (sourceNumber.equals(destinationNumber)) {
+            throw new IllegalArgumentException("Source and destination accounts cannot be the same");
         }
+        AccountKey sourceKey = requireKey(sourceNumber, "source");
+        AccountKey destinationKey = requireKey(destinationNumber, "destination");
 
-        return transfer;
+        // Each UPDATE takes its row lock; issuing them in account number order (the order the entity path
+        // locks in) keeps A->B and B->A transfers from deadlocking
+        attempt.stage(TransferMetrics.Stage.BALANCE_UPDATE);
+        if (sourceNumber.compareTo(destinationNumber) < 0) {
+            debit(sourceKey, amount);
+            credit(destinationKey, amount);
+        } else {
+            credit(destinationKey, amount);
+            debit(sourceKey, amount);
+        }
+
+        Map<Long, AccountBalance> balances = new HashMap<>();
+        accountRepository.findBalancesByIdIn(List.of(sourceKey.id(), destinationKey.id()))
+                .forEach(balance -> balances.put(balance.id(), balance));
+        Account source = accountStub(sourceKey, balances.get(sourceKey.id()));
+        Account destination = accountStub(destinationKey, balances.get(destinationKey.id()));
+        accountCache.evictBalancesAfterCommit(List.of(source, destination));
+
+        Transfer transfer = insertTransfer(source, destination, amount, source.getBalance(), destination.getBalance(),
+                userRepository.getReferenceById(sourceKey.ownerId()));
+        return publishTransfer(transfer, attempt);
+    }
+
+    private void debit(AccountKey account, Money amount) {
+        if (accountRepository.debitIfSufficient(account.id(), amount.toBigDecimal()) == 0) {
+            throw new InsufficientFundsException("Insufficient funds on source account");
+        }
+    }
+
+    private void credit(AccountKey account, Money amount) {
+        if (accountRepository.credit(account.id(), amount.toBigDecimal()) == 0) {
+            throw new ResourceNotFoundException("destination account not found: " + account.accountNumber());
+        }
     }
 
-    private void updateBalances(Account source, Account destination, @NotNull @DecimalMin(value = "0.01", message = "Transfer amount must be positive") BigDecimal amount) {
-        source.setBalance(source.getBalance().subtract(amount));
-        destination.setBalance(destination.getBalance().add(amount));
+    private AccountKey requireKey(String accountNumber, String type) {
+        return accountCache.key(accountNumber, accountRepository::findKeyByAccountNumber)
+                .orElseThrow(() -> new ResourceNotFoundException(type + " account not found: " + accountNumber));
+    }
+
+    /**
+     * Detached stand-in for a row just updated by id; carries the version so Hibernate treats it as an existing
+     * row when the transfer references it.
+     */
+    private static Account accountStub(AccountKey key, AccountBalance balance) {
+        return Account.builder()
+                .id(key.id())
+                .accountNumber(key.accountNumber())
+                .balance(balance.balance())
+                .version(balance.version())
+                .build();
+    }
+
+    private boolean useConditionalUpdate(String sourceNumber, String destinationNumber) {
+        return transferProperties.getWritePath() == TransferProperties.WritePath.CONDITIONAL_UPDATE
+                && !balanceShardService.isStriped(sourceNumber)
+                && !balanceShardService.isStriped(destinationNumber);
+    }
+
+    private void updateBalances(Account source, Account destination, Money amount,
+                                boolean creditInPlace) {
+        source.setBalance(source.getBalance().minus(amount));
         accountRepository.save(source);
-        accountRepository.save(destination);
+        // A hot destination is credited through its balance shards once the transfer row is in (recordTransfer)
+        if (!creditInPlace) {
+            destination.setBalance(destination.getBalance().plus(amount));
+            accountRepository.save(destination);
+        }
     }
 
-    private void validateFunds(Account source, @NotNull @DecimalMin(value = "0.01", message = "Transfer amount must be positive") BigDecimal amount) {
-        if (source.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient funds on source account");
+    private void validateFunds(Account source, Money amount) {
+        if (source.getBalance().isLessThan(amount) && balanceShardService.isStriped(source)) {
+            // Credits may still sit in balance shards; pull them into the account row before deciding
+            balanceShardService.sweepInto(source);
+        }
+        if (source.getBalance().isLessThan(amount)) {
+            throw new InsufficientFundsException("Insufficient funds on source account");
         }
     }
 
     public Account findAccount(String accountNumber, String type) {
         String normalized = AccountUtils.normalizeAccountNumber(accountNumber);
-        return accountRepository.findByAccountNumber(normalized)
+        // The number -> id mapping never changes, so it is cached and the row is read by primary key
+        return accountCache.key(normalized, accountRepository::findKeyByAccountNumber)
+                .flatMap(key -> accountRepository.findById(key.id()))
                 .orElseThrow(() -> new ResourceNotFoundException(type + " account not found: " + normalized));
     }
 
+    private boolean useOptimisticLocking(String sourceNumber, String destinationNumber) {
+        return transferProperties.getConcurrencyMode() == TransferProperties.ConcurrencyMode.OPTIMISTIC
+                && !contentionTracker.isContended(sourceNumber)
+                && !contentionTracker.isContended(destinationNumber);
+    }
+
+    private AccountPair loadAccounts(String sourceNumber, String destinationNumber, boolean lock) {
+        if (sourceNumber.equals(destinationNumber)) {
+            throw new IllegalArgumentException("Source and destination accounts cannot be the same");
+        }
+
+        Map<String, Account> accounts = new HashMap<>();
+        boolean creditInPlace = false;
+        if (!lock) {
+            accountRepository.findByAccountNumberIn(List.of(sourceNumber, destinationNumber))
+                    .forEach(account -> accounts.put(account.getAccountNumber(), account));
+        } else if (balanceShardService.isStriped(destinationNumber)) {
+            // Only the source row is locked; the destination is credited through its shards
+            accountRepository.lockByAccountNumbersOrdered(List.of(sourceNumber))
+                    .forEach(account -> accounts.put(account.getAccountNumber(), account));
+            accountRepository.findByAccountNumberIn(List.of(destinationNumber))
+                    .forEach(account -> accounts.put(account.getAccountNumber(), account));
+            creditInPlace = true;
+        } else {
+            // A single ordered SELECT ... FOR UPDATE: A->B and B->A transfers request the row locks
+            // in the same order, so they queue behind each other instead of deadlocking
+            accountRepository.lockByAccountNumbersOrdered(List.of(sourceNumber, destinationNumber))
+                    .forEach(account -> accounts.put(account.getAccountNumber(), account));
+        }
+
+        Account source = requireAccount(accounts, sourceNumber, "source");
+        Account destination = requireAccount(accounts, destinationNumber, "destination");
+        return new AccountPair(source, destination, creditInPlace || balanceShardService.isStriped(destination));
+    }
+
+    private Account requireAccount(Map<String, Account> accounts, String accountNumber, String type) {
+        Account account = accounts.get(accountNumber);
+        if (account == null) {
+            throw new ResourceNotFoundException(type + " account not found: " + accountNumber);
+        }
+        return account;
+    }
+
+    /**
+     * @param creditInPlace the destination is striped, so it is credited through a balance shard
+     *                      (or an atomic in-place UPDATE) rather than through its entity
+     */
+    private record AccountPair(Account source, Account destination, boolean creditInPlace) {}
+
     private void validateRequest(TransferRequest request) {
         if (request.sourceAccount() == null || request.destinationAccount() == null) {
             throw new IllegalArgumentException("Source and destination account are required");
@@ -132,7 +573,10 @@ public class TransferServiceImpl implements TransferService {
         if (request.sourceAccount().equals(request.destinationAccount())) {
             throw new IllegalArgumentException("Source and destination accounts cannot be the same");
         }
-        if (request.amount().compareTo(BigDecimal.ZERO) <= 0) {
+        if (request.amount() == null) {
+            throw new IllegalArgumentException("Transfer amount is required");
+        }
+        if (request.amount().signum() <= 0) {
             throw new IllegalArgumentException("Transfer amount must be greater than zero");
         }
     }
@@ -0,0 +1,265 @@
+package com.example.bpt.service.impl;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.StatementFormat;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferHistoryItem;
+import com.example.bpt.model.Money;
+import com.example.bpt.util.TransferCursor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams an account's transfers to an output stream, newest first, in the same order and with the same
+ * cursor as the paginated history.
+ * <p>
+ * Rows are read with plain JDBC through a forward-only cursor ({@code bpt.transfer.export.fetch-size}) and
+ * written as they arrive, so memory stays flat however long the statement is. No entities are loaded.
+ * Each row carries its own cursor: a client whose download broke off passes the last one it received to
+ * continue right after it. Outside a transaction the rows are read on read-only connections, so a configured
+ * read replica serves the export.
+ * <p>
+ * Transfers older than the archive watermark are read from {@code transfer_archive} once the hot rows are
+ * written. Outside a transaction the watermark and the rows are not read from one snapshot: an export that
+ * overlaps the archiver removing a month from {@code transfer} can miss that month's rows.
+ */
+@Component
+public class TransferStatementExporter {
+
+    private static final String COLUMNS = "t.id, t.timestamp, c.account_number, t.amount, ";
+    private static final String RANGE = " and t.timestamp >= ? and (t.timestamp < ? or (t.timestamp = ? and t.id < ?)) "
+            + "order by t.timestamp desc, t.id desc";
+
+    /** Range scan on idx_transfer_source_history. */
+    private static final String OUTGOING_SQL = "select " + COLUMNS + "t.source_new_balance from transfer t "
+            + "join account c on c.id = t.destination_account_id where t.source_account_id = ?" + RANGE;
+
+    /** Range scan on idx_transfer_destination_history. */
+    private static final String INCOMING_SQL = "select " + COLUMNS + "t.destination_new_balance from transfer t "
+            + "join account c on c.id = t.source_account_id where t.destination_account_id = ?" + RANGE;
+
+    /** Range scan on idx_transfer_archive_source_history. */
+    private static final String ARCHIVED_OUTGOING_SQL = "select " + COLUMNS + "t.source_new_balance from transfer_archive t "
+            + "join account c on c.id = t.destination_account_id where t.source_account_id = ?" + RANGE;
+
+    /** Range scan on idx_transfer_archive_destination_history. */
+    private static final String ARCHIVED_INCOMING_SQL = "select " + COLUMNS + "t.destination_new_balance from transfer_archive t "
+            + "join account c on c.id = t.source_account_id where t.destination_account_id = ?" + RANGE;
+
+    private static final String WATERMARK_SQL = "select archived_before from transfer_archive_watermark";
+
+    private static final Comparator<TransferHistoryItem> NEWEST_FIRST = Comparator
+            .comparing(TransferHistoryItem::timestamp)
+            .thenComparing(TransferHistoryItem::transferId)
+            .reversed();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readOnlyJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public TransferStatementExporter(DataSource dataSource, ObjectMapper objectMapper, TransferProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getExport().getFetchSize());
+        this.readOnlyJdbcTemplate = new JdbcTemplate(new ReadOnlyDataSource(dataSource));
+        this.readOnlyJdbcTemplate.setFetchSize(properties.getExport().getFetchSize());
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every transfer of the account from {@code since} (inclusive) up to, and excluding, {@code before}.
+     * The stream is flushed but not closed.
+     */
+    public void export(long accountId, TransferDirection direction, LocalDateTime since, TransferCursor before,
+                       StatementFormat format, OutputStream out) throws IOException {
+        StatementWriter writer = format == StatementFormat.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+
+        // Hot rows from the archive watermark on, archived rows below it: every transfer exactly once, newest first
+        LocalDateTime archivedBefore = template().queryForList(WATERMARK_SQL, LocalDateTime.class).stream()
+                .findFirst().orElse(null);
+        if (archivedBefore == null || before.timestamp().isAfter(archivedBefore)) {
+            LocalDateTime hotSince = archivedBefore != null && since.isBefore(archivedBefore) ? archivedBefore : since;
+            write(OUTGOING_SQL, INCOMING_SQL, accountId, direction, hotSince, before, writer);
+        }
+        if (archivedBefore != null && since.isBefore(archivedBefore)) {
+            TransferCursor archiveBefore = before.timestamp().isBefore(archivedBefore)
+                    ? before : new TransferCursor(archivedBefore, Long.MIN_VALUE);
+            write(ARCHIVED_OUTGOING_SQL, ARCHIVED_INCOMING_SQL, accountId, direction, since, archiveBefore, writer);
+        }
+        writer.finish();
+    }
+
+    private void write(String outgoingSql, String incomingSql, long accountId, TransferDirection direction,
+                       LocalDateTime since, TransferCursor before, StatementWriter writer) throws IOException {
+        // ALL reads both directions over two connections, each in index order, and merges them here
+        try (Stream<TransferHistoryItem> outgoing = direction == TransferDirection.INCOMING
+                ? Stream.empty() : query(outgoingSql, TransferDirection.OUTGOING, accountId, since, before);
+             Stream<TransferHistoryItem> incoming = direction == TransferDirection.OUTGOING
+                     ? Stream.empty() : query(incomingSql, TransferDirection.INCOMING, accountId, since, before)) {
+
+            Iterator<TransferHistoryItem> a = outgoing.iterator();
+            Iterator<TransferHistoryItem> b = incoming.iterator();
+            TransferHistoryItem nextA = a.hasNext() ? a.next() : null;
+            TransferHistoryItem nextB = b.hasNext() ? b.next() : null;
+
+            while (nextA != null || nextB != null) {
+                if (nextB == null || (nextA != null && NEWEST_FIRST.compare(nextA, nextB) <= 0)) {
+                    writer.write(nextA);
+                    nextA = a.hasNext() ? a.next() : null;
+                } else {
+                    writer.write(nextB);
+                    nextB = b.hasNext() ? b.next() : null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lazily mapped rows backed by an open result set; closing the stream releases the connection.
+     */
+    private Stream<TransferHistoryItem> query(String sql, TransferDirection direction, long accountId,
+                                              LocalDateTime since, TransferCursor before) {
+        RowMapper<TransferHistoryItem> mapper = (rs, rowNum) -> new TransferHistoryItem(
+                rs.getLong(1),
+                direction,
+                rs.getString(3),
+                Money.of(rs.getBigDecimal(4)),
+                rs.getBigDecimal(5) == null ? null : Money.of(rs.getBigDecimal(5)),
+                rs.getObject(2, LocalDateTime.class));
+        return template().queryForStream(sql, mapper,
+                accountId, since, before.timestamp(), before.timestamp(), before.id());
+    }
+
+    /**
+     * Inside a transaction, read through it; otherwise on read-only connections of their own.
+     */
+    private JdbcTemplate template() {
+        return TransactionSynchronizationManager.isActualTransactionActive() ? jdbcTemplate : readOnlyJdbcTemplate;
+    }
+
+    private static String cursorOf(TransferHistoryItem item) {
+        return new TransferCursor(item.timestamp(), item.transferId()).encode();
+    }
+
+    /**
+     * Marks connections read-only before their first statement, which routes them to the replica pool
+     * (see {@link com.example.bpt.config.ReadReplicaConfig}).
+     */
+    private static final class ReadOnlyDataSource extends DelegatingDataSource {
+
+        ReadOnlyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            connection.setReadOnly(true);
+            return connection;
+        }
+    }
+
+    private interface StatementWriter {
+
+        void write(TransferHistoryItem item) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * None of the values can contain a comma, quote or line break, so fields are written unquoted; a balance
+     * that was not recorded is an empty field.
+     */
+    private static final class CsvWriter implements StatementWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            writer.write("transfer_id,timestamp,direction,counterparty_account,amount,balance_after,cursor\n");
+        }
+
+        @Override
+        public void write(TransferHistoryItem item) throws IOException {
+            writer.write(Long.toString(item.transferId()));
+            writer.write(',');
+            writer.write(item.timestamp().toString());
+            writer.write(',');
+            writer.write(item.direction().name());
+            writer.write(',');
+            writer.write(item.counterpartyAccount());
+            writer.write(',');
+            writer.write(item.amount().toString());
+            writer.write(',');
+            if (item.balanceAfter() != null) {
+                writer.write(item.balanceAfter().toString());
+            }
+            writer.write(',');
+            writer.write(cursorOf(item));
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * One JSON object per line, written field by field with a single generator.
+     */
+    private final class NdjsonWriter implements StatementWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by the newline written after each object, not Jackson's default space
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(TransferHistoryItem item) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("transferId", item.transferId());
+            generator.writeStringField("timestamp", item.timestamp().toString());
+            generator.writeStringField("direction", item.direction().name());
+            generator.writeStringField("counterpartyAccount", item.counterpartyAccount());
+            generator.writeFieldName("amount");
+            generator.writeNumber(item.amount().toString());
+            generator.writeFieldName("balanceAfter");
+            if (item.balanceAfter() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(item.balanceAfter().toString());
+            }
+            generator.writeStringField("cursor", cursorOf(item));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+}
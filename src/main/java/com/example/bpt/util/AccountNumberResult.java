@@ -0,0 +1,31 @@
+package com.example.bpt.util;
+
+/**
+ * Outcome of {@link AccountUtils#parseAccountNumber(String)}: either a normalized account number or the reason
+ * the input was rejected.
+ */
+public record AccountNumberResult(String normalized, String error) {
+
+    public static AccountNumberResult valid(String normalized) {
+        return new AccountNumberResult(normalized, null);
+    }
+
+    public static AccountNumberResult invalid(String error) {
+        return new AccountNumberResult(null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    /**
+     * @return the normalized account number
+     * @throws IllegalArgumentException with the validation error if the input was invalid
+     */
+    public String orElseThrow() {
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        return normalized;
+    }
+}
@@ -2,34 +2,159 @@ package com.example.bpt.util;
 
 public class AccountUtils {
 
+    private static final int BANK_CODE_LENGTH = 3;
+    private static final int BODY_LENGTH = 13;
+    private static final int CONTROL_LENGTH = 2;
+    private static final int NORMALIZED_LENGTH = BANK_CODE_LENGTH + 1 + BODY_LENGTH + 1 + CONTROL_LENGTH;
+    private static final String LONG_MAX = String.valueOf(Long.MAX_VALUE);
+
     /**
             * Normalizes account number to standard format.
             * Example:
             * Input: 205-52131-68 → Output: 205-000052131-68
+            * <p>
+            * Input that does not have the {@code ddd-d+-dd} shape is returned unchanged.
+            * Single pass over the characters, no regex and no intermediate strings; an already
+            * normalized number is returned as-is without allocating.
             */
     public static String normalizeAccountNumber(String accountNumber) {
-        if (accountNumber == null || !accountNumber.contains("-")) {
+        if (accountNumber == null) {
+            return null;
+        }
+        int bodyStart = BANK_CODE_LENGTH + 1;
+        int bodyEnd = scan(accountNumber, true);
+        if (bodyEnd < 0) {
             return accountNumber;
         }
+        int significantStart = skipLeadingZeros(accountNumber, bodyStart, bodyEnd);
+        checkFitsInLong(accountNumber, significantStart, bodyEnd, bodyStart);
 
-        String[] parts = accountNumber.split("-");
-        if (parts.length != 3) {
-            return accountNumber; // invalid structure, skip normalization
+        if (bodyEnd - bodyStart == BODY_LENGTH && accountNumber.length() == NORMALIZED_LENGTH) {
+            return accountNumber; // already normalized
         }
+        return build(accountNumber, significantStart, bodyEnd, bodyEnd - significantStart);
+    }
 
-        String bankCode = parts[0];
-        String middlePart = parts[1];
-        String controlDigits = parts[2];
+    /**
+     * Strict variant of {@link #normalizeAccountNumber(String)}: instead of echoing invalid input back,
+     * reports why it is not a valid account number.
+     * Accepts exactly {@code ddd-d{1,13}-dd} (at most 13 significant digits in the body).
+     */
+    public static AccountNumberResult parseAccountNumber(String accountNumber) {
+        if (accountNumber == null || accountNumber.isEmpty()) {
+            return AccountNumberResult.invalid("Account number is required");
+        }
+        int bodyEnd = scan(accountNumber, false);
+        if (bodyEnd < 0) {
+            return AccountNumberResult.invalid("Account number must have the format ddd-ddddddddddddd-dd: " + accountNumber);
+        }
+        int bodyStart = BANK_CODE_LENGTH + 1;
+        int significantStart = skipLeadingZeros(accountNumber, bodyStart, bodyEnd);
+        int significant = bodyEnd - significantStart;
+        if (significant > BODY_LENGTH) {
+            return AccountNumberResult.invalid("Account number body exceeds " + BODY_LENGTH + " digits: " + accountNumber);
+        }
+        if (bodyEnd - bodyStart == BODY_LENGTH && accountNumber.length() == NORMALIZED_LENGTH) {
+            return AccountNumberResult.valid(accountNumber);
+        }
+        return AccountNumberResult.valid(build(accountNumber, significantStart, bodyEnd, significant));
+    }
 
-        // Validate that all parts are numeric
-        if (!bankCode.matches("\\d{3}") || !middlePart.matches("\\d+") || !controlDigits.matches("\\d{2}")) {
-            return accountNumber;
+    /**
+     * Checks the {@code ddd-d+-dd} shape in one pass.
+     *
+     * @param allowTrailingHyphens accept (and ignore) trailing '-' characters, as {@code String.split} used to
+     * @return index just past the body digits, or -1 if the shape does not match
+     */
+    private static int scan(String value, boolean allowTrailingHyphens) {
+        int length = value.length();
+        if (length < NORMALIZED_LENGTH - BODY_LENGTH + 1) {
+            return -1;
+        }
+        for (int i = 0; i < BANK_CODE_LENGTH; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return -1;
+            }
+        }
+        if (value.charAt(BANK_CODE_LENGTH) != '-') {
+            return -1;
+        }
+
+        int bodyEnd = BANK_CODE_LENGTH + 1;
+        while (bodyEnd < length && isDigit(value.charAt(bodyEnd))) {
+            bodyEnd++;
+        }
+        if (bodyEnd == BANK_CODE_LENGTH + 1 || bodyEnd + 1 + CONTROL_LENGTH > length || value.charAt(bodyEnd) != '-') {
+            return -1;
+        }
+
+        int controlStart = bodyEnd + 1;
+        for (int i = controlStart; i < controlStart + CONTROL_LENGTH; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return -1;
+            }
+        }
+        for (int i = controlStart + CONTROL_LENGTH; i < length; i++) {
+            if (!allowTrailingHyphens || value.charAt(i) != '-') {
+                return -1;
+            }
         }
+        return bodyEnd;
+    }
 
-        // Pad middle part with zeros on the left to reach 13 digits
-        String paddedMiddle = String.format("%013d", Long.parseLong(middlePart));
+    private static String build(String value, int significantStart, int bodyEnd, int significant) {
+        int bodyStart = BANK_CODE_LENGTH + 1;
+        int padding = Math.max(0, BODY_LENGTH - Math.max(significant, 1));
+        int digits = Math.max(significant, 1);
+        char[] out = new char[BANK_CODE_LENGTH + 1 + padding + digits + 1 + CONTROL_LENGTH];
+
+        value.getChars(0, bodyStart, out, 0);
+        int pos = bodyStart;
+        for (int i = 0; i < padding; i++) {
+            out[pos++] = '0';
+        }
+        if (significant == 0) {
+            out[pos++] = '0';
+        } else {
+            value.getChars(significantStart, bodyEnd, out, pos);
+            pos += significant;
+        }
+        out[pos++] = '-';
+        value.getChars(bodyEnd + 1, bodyEnd + 1 + CONTROL_LENGTH, out, pos);
+        return new String(out);
+    }
+
+    private static int skipLeadingZeros(String value, int from, int to) {
+        int i = from;
+        while (i < to && value.charAt(i) == '0') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * The previous implementation parsed the body with Long.parseLong; keep rejecting the same inputs.
+     */
+    private static void checkFitsInLong(String value, int significantStart, int bodyEnd, int bodyStart) {
+        int significant = bodyEnd - significantStart;
+        if (significant > LONG_MAX.length()
+                || (significant == LONG_MAX.length() && compareDigits(value, significantStart, LONG_MAX) > 0)) {
+            throw new NumberFormatException("For input string: \"" + value.substring(bodyStart, bodyEnd) + "\"");
+        }
+    }
+
+    private static int compareDigits(String value, int offset, String other) {
+        for (int i = 0; i < other.length(); i++) {
+            int diff = value.charAt(offset + i) - other.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
 
-        return bankCode + "-" + paddedMiddle + "-" + controlDigits;
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
 }
@@ -0,0 +1,38 @@
+package com.example.bpt.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in an account's transfer history: the ({@code timestamp}, {@code id}) of the last row
+ * returned. History is ordered newest first, so the next page holds the rows strictly before this position.
+ * Clients receive it as an opaque URL-safe string.
+ */
+public record TransferCursor(LocalDateTime timestamp, long id) {
+
+    private static final String VERSION = "1";
+
+    public String encode() {
+        String raw = VERSION + '|' + timestamp + '|' + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static TransferCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !parts[0].equals(VERSION)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new TransferCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bpt;
+
+import com.example.bpt.config.AccountCacheProperties;
+import com.example.bpt.dto.AccountBalanceResponse;
+import com.example.bpt.exception.ResourceNotFoundException;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.projection.AccountBalanceView;
+import com.example.bpt.repository.projection.AccountKey;
+import com.example.bpt.service.impl.AccountCache;
+import com.example.bpt.service.impl.AccountServiceImpl;
+import com.example.bpt.service.impl.BalanceShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AccountServiceImplTest {
+
+    private static final String NUMBER = "205-0000001234567-68";
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private BalanceShardService balanceShardService;
+
+    @Spy
+    private AccountCache accountCache = new AccountCache(new AccountCacheProperties(), new SimpleMeterRegistry());
+
+    @InjectMocks
+    private AccountServiceImpl accountService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(accountRepository.findKeyByAccountNumber(NUMBER)).thenReturn(Optional.of(new AccountKey(1L, NUMBER, 7L)));
+    }
+
+    @Test
+    void testGetBalance_RepeatedReadsAreServedFromCache() {
+        when(accountRepository.findBalanceById(1L))
+                .thenReturn(Optional.of(new AccountBalanceView(Money.parse("1000"), 3L, 0)));
+
+        AccountBalanceResponse first = accountService.getBalance("205-1234567-68");
+        AccountBalanceResponse second = accountService.getBalance(NUMBER);
+
+        assertEquals(new AccountBalanceResponse(NUMBER, Money.parse("1000")), first);
+        assertEquals(first, second);
+        verify(accountRepository, times(1)).findKeyByAccountNumber(NUMBER);
+        verify(accountRepository, times(1)).findBalanceById(1L);
+    }
+
+    @Test
+    void testGetBalance_CommittedTransferEvictsAndStaleReadCannotRepopulate() {
+        when(accountRepository.findBalanceById(1L))
+                .thenReturn(Optional.of(new AccountBalanceView(Money.parse("1000"), 3L, 0)))
+                .thenReturn(Optional.of(new AccountBalanceView(Money.parse("800"), 4L, 0)));
+        accountService.getBalance(NUMBER);
+
+        // A transfer commits version 4 (no transaction in this test, so the eviction is immediate)
+        Account committed = Account.builder().id(1L).accountNumber(NUMBER).balance(Money.parse("800")).version(4L).build();
+        accountCache.evictBalancesAfterCommit(List.of(committed));
+        // A reader that loaded the row before that commit must not put version 3 back
+        accountCache.putBalance(1L, Money.parse("1000"), 3L);
+
+        assertEquals(Money.parse("800"), accountService.getBalance(NUMBER).balance());
+        assertEquals(Money.parse("800"), accountService.getBalance(NUMBER).balance());
+        verify(accountRepository, times(2)).findBalanceById(1L);
+    }
+
+    @Test
+    void testGetBalance_StripedAccountIsAggregatedAndNotCached() {
+        when(accountRepository.findBalanceById(1L))
+                .thenReturn(Optional.of(new AccountBalanceView(Money.parse("1000"), 3L, 4)));
+        when(accountRepository.aggregateBalance(1L)).thenReturn(new BigDecimal("1250.00"));
+
+        assertEquals(Money.parse("1250"), accountService.getBalance(NUMBER).balance());
+        assertEquals(Money.parse("1250"), accountService.getBalance(NUMBER).balance());
+        verify(accountRepository, times(2)).aggregateBalance(1L);
+    }
+
+    @Test
+    void testGetBalance_UnknownAccountIsNotCached() {
+        when(accountRepository.findKeyByAccountNumber("205-0000000000009-68")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> accountService.getBalance("205-9-68"));
+        assertThrows(ResourceNotFoundException.class, () -> accountService.getBalance("205-9-68"));
+        verify(accountRepository, times(2)).findKeyByAccountNumber("205-0000000000009-68");
+    }
+}
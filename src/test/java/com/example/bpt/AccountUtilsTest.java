@@ -0,0 +1,52 @@
+package com.example.bpt;
+
+import com.example.bpt.util.AccountNumberResult;
+import com.example.bpt.util.AccountUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountUtilsTest {
+
+    @Test
+    void testNormalizeAccountNumber_PadsBody() {
+        assertEquals("205-0000001234567-68", AccountUtils.normalizeAccountNumber("205-1234567-68"));
+        assertEquals("205-0000001234567-68", AccountUtils.normalizeAccountNumber("205-000000000001234567-68"));
+        assertEquals("205-0000000000000-68", AccountUtils.normalizeAccountNumber("205-0-68"));
+    }
+
+    @Test
+    void testNormalizeAccountNumber_ReturnsNormalizedInputAsIs() {
+        String normalized = "205-0000001234567-68";
+        assertSame(normalized, AccountUtils.normalizeAccountNumber(normalized));
+    }
+
+    @Test
+    void testNormalizeAccountNumber_KeepsLegacyBehaviourForInvalidInput() {
+        assertNull(AccountUtils.normalizeAccountNumber(null));
+        assertEquals("2051234567", AccountUtils.normalizeAccountNumber("2051234567"));
+        assertEquals("205-12x4567-68", AccountUtils.normalizeAccountNumber("205-12x4567-68"));
+        assertEquals("20-1234567-68", AccountUtils.normalizeAccountNumber("20-1234567-68"));
+        assertEquals("205-1234567-6", AccountUtils.normalizeAccountNumber("205-1234567-6"));
+        // String.split dropped trailing empty parts, so trailing hyphens were tolerated
+        assertEquals("205-0000001234567-68", AccountUtils.normalizeAccountNumber("205-1234567-68--"));
+        // Long.parseLong overflowed on bodies beyond 19 significant digits
+        assertThrows(NumberFormatException.class,
+                () -> AccountUtils.normalizeAccountNumber("205-99999999999999999999-68"));
+    }
+
+    @Test
+    void testParseAccountNumber_ReportsInvalidInput() {
+        AccountNumberResult valid = AccountUtils.parseAccountNumber("205-1234567-68");
+        assertTrue(valid.isValid());
+        assertEquals("205-0000001234567-68", valid.normalized());
+
+        assertFalse(AccountUtils.parseAccountNumber(null).isValid());
+        assertFalse(AccountUtils.parseAccountNumber("205-1234567-68--").isValid());
+        assertFalse(AccountUtils.parseAccountNumber("205-12345678901234-68").isValid());
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> AccountUtils.parseAccountNumber("205-12x4567-68").orElseThrow());
+        assertEquals("Account number must have the format ddd-ddddddddddddd-dd: 205-12x4567-68", ex.getMessage());
+    }
+}
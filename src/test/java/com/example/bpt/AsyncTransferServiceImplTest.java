@@ -0,0 +1,175 @@
+package com.example.bpt;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.AsyncTransferStatus;
+import com.example.bpt.dto.BatchTransferItemResult;
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.exception.InsufficientFundsException;
+import com.example.bpt.exception.ResourceNotFoundException;
+import com.example.bpt.exception.TransferQueueFullException;
+import com.example.bpt.model.Money;
+import com.example.bpt.service.TransferService;
+import com.example.bpt.service.impl.AsyncTransferServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AsyncTransferServiceImplTest {
+
+    private static final String A = "205-0000000000001-68";
+    private static final String B = "205-0000000000002-68";
+
+    @Mock
+    private TransferService transferService;
+
+    private final TransferProperties properties = new TransferProperties();
+
+    private AsyncTransferServiceImpl asyncTransferService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.getAsync().setWorkers(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (asyncTransferService != null) {
+            asyncTransferService.stop();
+        }
+    }
+
+    @Test
+    void testSubmit_QueuedTransfersRunAsOneBatch() throws Exception {
+        // Hold the worker in its first batch so the next submissions queue up behind it
+        CountDownLatch release = new CountDownLatch(1);
+        when(transferService.transferBatch(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return succeedAll(invocation.getArgument(0));
+        });
+        start();
+
+        AsyncTransferStatus first = asyncTransferService.submit(request(A, B, "1.00"));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(transferService).transferBatch(any()));
+        AsyncTransferStatus second = asyncTransferService.submit(request(A, B, "2.00"));
+        AsyncTransferStatus third = asyncTransferService.submit(request(B, A, "3.00"));
+        assertEquals("PENDING", asyncTransferService.status(second.id()).status());
+        release.countDown();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> "SUCCESS".equals(asyncTransferService.status(third.id()).status()));
+        assertEquals("SUCCESS", asyncTransferService.status(first.id()).status());
+        assertEquals(Money.parse("2.00"), asyncTransferService.status(second.id()).transfer().amount());
+
+        ArgumentCaptor<BatchTransferRequest> batches = ArgumentCaptor.forClass(BatchTransferRequest.class);
+        verify(transferService, times(2)).transferBatch(batches.capture());
+        assertEquals(2, batches.getAllValues().get(1).transfers().size());
+        assertFalse(batches.getAllValues().get(1).atomic());
+    }
+
+    @Test
+    void testSubmit_FullQueueIsRejectedWithRetryAfter() throws Exception {
+        properties.getAsync().setQueueCapacity(1);
+        properties.getAsync().setRetryAfter(Duration.ofSeconds(2));
+        CountDownLatch release = new CountDownLatch(1);
+        when(transferService.transferBatch(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return succeedAll(invocation.getArgument(0));
+        });
+        start();
+
+        asyncTransferService.submit(request(A, B, "1.00"));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(transferService).transferBatch(any()));
+        asyncTransferService.submit(request(A, B, "2.00"));
+
+        TransferQueueFullException rejected = assertThrows(TransferQueueFullException.class,
+                () -> asyncTransferService.submit(request(A, B, "3.00")));
+        assertEquals(Duration.ofSeconds(2), rejected.getRetryAfter());
+        assertThrows(IllegalArgumentException.class, () -> asyncTransferService.submit(request(A, "205-x-68", "1.00")));
+        assertThrows(ResourceNotFoundException.class, () -> asyncTransferService.status("unknown"));
+        release.countDown();
+    }
+
+    @Test
+    void testStop_FailsSubmissionsLeftBehindByExitedWorkers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(transferService.transferBatch(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            // The worker exits after this batch, like one that saw the service stopping before a late offer
+            Thread.currentThread().interrupt();
+            return succeedAll(invocation.getArgument(0));
+        });
+        start();
+
+        AsyncTransferStatus first = asyncTransferService.submit(request(A, B, "1.00"));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(transferService).transferBatch(any()));
+        AsyncTransferStatus late = asyncTransferService.submit(request(A, B, "2.00"));
+        release.countDown();
+        asyncTransferService.stop();
+
+        assertEquals("SUCCESS", asyncTransferService.status(first.id()).status());
+        assertEquals("FAILED", asyncTransferService.status(late.id()).status());
+        assertThrows(TransferQueueFullException.class, () -> asyncTransferService.submit(request(A, B, "3.00")));
+    }
+
+    @Test
+    void testExecute_FailedBatchFallsBackToSingleTransfers() {
+        when(transferService.transferBatch(any())).thenThrow(new PessimisticLockingFailureException("lock wait timeout"));
+        when(transferService.transferFunds(any())).thenAnswer(invocation -> {
+            TransferRequest request = invocation.getArgument(0);
+            if (request.amount().equals(Money.parse("9.00"))) {
+                throw new InsufficientFundsException("Insufficient funds");
+            }
+            return response(request);
+        });
+        start();
+
+        AsyncTransferStatus ok = asyncTransferService.submit(request(A, B, "1.00"));
+        AsyncTransferStatus failed = asyncTransferService.submit(request(A, B, "9.00"));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> "FAILED".equals(asyncTransferService.status(failed.id()).status()));
+        assertEquals("Insufficient funds", asyncTransferService.status(failed.id()).error());
+        assertEquals("SUCCESS", asyncTransferService.status(ok.id()).status());
+    }
+
+    private void start() {
+        asyncTransferService = new AsyncTransferServiceImpl(transferService, properties, new SimpleMeterRegistry());
+        asyncTransferService.start();
+    }
+
+    private static TransferRequest request(String source, String destination, String amount) {
+        return new TransferRequest(source, destination, Money.parse(amount));
+    }
+
+    private static TransferResponse response(TransferRequest request) {
+        return new TransferResponse(1L, request.sourceAccount(), request.destinationAccount(), request.amount(),
+                "SUCCESS", LocalDateTime.now());
+    }
+
+    private static BatchTransferResponse succeedAll(BatchTransferRequest batch) {
+        List<BatchTransferItemResult> results = new ArrayList<>();
+        for (int i = 0; i < batch.transfers().size(); i++) {
+            results.add(BatchTransferItemResult.success(i, response(batch.transfers().get(i))));
+        }
+        return new BatchTransferResponse(results.size(), 0, results);
+    }
+}
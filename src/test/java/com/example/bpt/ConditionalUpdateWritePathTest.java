@@ -0,0 +1,87 @@
+package com.example.bpt;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.exception.InsufficientFundsException;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.model.Transfer;
+import com.example.bpt.model.User;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.TransferRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.service.TransferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.example.bpt.TestAccounts.account;
+import static com.example.bpt.TestAccounts.owner;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@code bpt.transfer.write-path=CONDITIONAL_UPDATE} against H2: the UPDATE statements, the balance read-back
+ * and the transfer insert that references the accounts without loading them. The write path is read per
+ * transfer, so the test switches it on the shared default context instead of booting its own.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ConditionalUpdateWritePathTest {
+
+    private static final String A = "205-0000000000081-68";
+    private static final String B = "205-0000000000082-68";
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private TransferProperties transferProperties;
+
+    @BeforeEach
+    void setUp() {
+        transferProperties.setWritePath(TransferProperties.WritePath.CONDITIONAL_UPDATE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferProperties.setWritePath(TransferProperties.WritePath.ENTITY);
+    }
+
+    @Test
+    void testTransfers_DebitOnlyWhileFundsSuffice() {
+        User owner = owner(userRepository, "conditional");
+        accountRepository.saveAll(List.of(account(A, owner), account(B, owner)));
+
+        TransferResponse response = transferService.transferFunds(new TransferRequest(B, A, Money.parse("60.00")));
+        assertThrows(InsufficientFundsException.class,
+                () -> transferService.transferFunds(new TransferRequest(B, A, Money.parse("40.01"))));
+        transferService.transferFunds(new TransferRequest(B, A, Money.parse("40.00")));
+
+        assertEquals(Money.parse("200.00"), accountRepository.findByAccountNumber(A).orElseThrow().getBalance());
+        Account b = accountRepository.findByAccountNumber(B).orElseThrow();
+        assertEquals(Money.ZERO, b.getBalance());
+        assertEquals(2, b.getVersion());
+
+        Transfer first = transferRepository.findById(response.transferId()).orElseThrow();
+        assertEquals(Money.parse("100.00"), first.getSourceOldBalance());
+        assertEquals(Money.parse("40.00"), first.getSourceNewBalance());
+        assertEquals(Money.parse("100.00"), first.getDestinationOldBalance());
+        assertEquals(Money.parse("160.00"), first.getDestinationNewBalance());
+        assertEquals(owner.getId(), first.getPerformedBy().getId());
+    }
+}
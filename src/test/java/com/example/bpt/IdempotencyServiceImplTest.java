@@ -0,0 +1,210 @@
+package com.example.bpt;
+
+import com.example.bpt.config.IdempotencyProperties;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.exception.IdempotencyConflictException;
+import com.example.bpt.model.IdempotencyRecord;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.IdempotencyRecordRepository;
+import com.example.bpt.service.impl.IdempotencyCompletionWriter;
+import com.example.bpt.service.impl.IdempotencyServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyServiceImplTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private IdempotencyCompletionWriter completionWriter;
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    private final TransferRequest request =
+            new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("200"));
+
+    private final TransferResponse response = new TransferResponse(
+            1L, "205-0000001234567-68", "205-0000007654321-68", Money.parse("200"), "SUCCESS", LocalDateTime.now());
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        completionWriter = new IdempotencyCompletionWriter(repository, objectMapper);
+        idempotencyService = new IdempotencyServiceImpl(repository, objectMapper, completionWriter, transactionManager, new IdempotencyProperties());
+    }
+
+    @Test
+    void testExecute_RepeatedKeyReturnsStoredResponse() {
+        AtomicInteger executions = new AtomicInteger();
+
+        TransferResponse first = idempotencyService.execute("key-1", request, () -> {
+            executions.incrementAndGet();
+            return response;
+        });
+        TransferResponse second = idempotencyService.execute("key-1", request, () -> {
+            executions.incrementAndGet();
+            return response;
+        });
+
+        assertEquals(1, executions.get());
+        assertSame(first, second);
+        // Claim + completion only; the retry is served from the in-process cache
+        verify(repository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+        verify(repository, times(1)).complete(eq("key-1"), anyString());
+        verify(repository, never()).findById(anyString());
+    }
+
+    @Test
+    void testExecute_ConcurrentDuplicatesWaitForInFlightResult() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<TransferResponse> original = executor.submit(() -> idempotencyService.execute("key-2", request, () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return response;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<TransferResponse> duplicate = executor.submit(() -> idempotencyService.execute("key-2", request, () -> {
+                executions.incrementAndGet();
+                return response;
+            }));
+            release.countDown();
+
+            assertSame(response, original.get(5, TimeUnit.SECONDS));
+            assertSame(response, duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_KeyCompletedOnAnotherInstance() throws Exception {
+        when(repository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        IdempotencyRecord stored = IdempotencyRecord.builder()
+                .key("key-3")
+                .requestHash(hashOf("key-3"))
+                .status(IdempotencyRecord.Status.COMPLETED)
+                .response(objectMapper.writeValueAsString(response))
+                .build();
+        when(repository.findById("key-3")).thenReturn(Optional.of(stored));
+
+        TransferResponse result = idempotencyService.execute("key-3", request, () -> fail("must not execute again"));
+
+        assertEquals(response.transferId(), result.transferId());
+        assertEquals(response.amount(), result.amount());
+    }
+
+    @Test
+    void testExecute_KeyReusedWithDifferentRequest() {
+        idempotencyService.execute("key-4", request, () -> response);
+
+        TransferRequest other = new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("999"));
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("key-4", other, () -> response));
+    }
+
+    @Test
+    void testExecute_SameRequestFormattedDifferentlyIsNotAConflict() {
+        AtomicInteger executions = new AtomicInteger();
+        idempotencyService.execute("key-7", request, () -> {
+            executions.incrementAndGet();
+            return response;
+        });
+
+        TransferRequest padded = new TransferRequest("205-0000001234567-68", "205-0000007654321-68",
+                Money.parse("200.00"));
+        TransferResponse result = idempotencyService.execute("key-7", padded, () -> {
+            executions.incrementAndGet();
+            return response;
+        });
+
+        assertEquals(1, executions.get());
+        assertSame(response, result);
+    }
+
+    @Test
+    void testExecute_FailureReleasesClaim() {
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute("key-5", request, () -> {
+            throw new IllegalArgumentException("Insufficient funds on source account");
+        }));
+
+        verify(repository).deleteById("key-5");
+        TransferResponse retried = idempotencyService.execute("key-5", request, () -> response);
+        assertSame(response, retried);
+    }
+
+    @Test
+    void testExecute_CompletionCommitsWithTheTransfer() {
+        TransferResponse result = idempotencyService.execute("key-6", request, () -> {
+            // What the transfer transaction does: complete the bound claim, then commit
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                completionWriter.complete(response);
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            return response;
+        });
+
+        assertSame(response, result);
+        // Written once, inside the transfer transaction; no separate completion afterwards
+        verify(repository, times(1)).complete(eq("key-6"), anyString());
+    }
+
+    /**
+     * Captures the request hash the service stores for a key by letting it claim a fresh key once.
+     */
+    private String hashOf(String key) {
+        IdempotencyRecordRepository capturing = mock(IdempotencyRecordRepository.class);
+        IdempotencyServiceImpl service = new IdempotencyServiceImpl(capturing, objectMapper,
+                new IdempotencyCompletionWriter(capturing, objectMapper), transactionManager, new IdempotencyProperties());
+        service.execute(key, request, () -> response);
+        return mockingDetails(capturing).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("saveAndFlush"))
+                .map(invocation -> ((IdempotencyRecord) invocation.getArgument(0)).getRequestHash())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.bpt;
+
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.engine.InMemoryTransferService;
+import com.example.bpt.engine.TransferSequencer;
+import com.example.bpt.exception.InsufficientFundsException;
+import com.example.bpt.exception.ResourceNotFoundException;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.service.TransferService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.example.bpt.TestAccounts.accounts;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-memory engine ({@code bpt.transfer.engine=in-memory}) end to end on H2: transfers, batches, the
+ * asynchronous flush to the tables, and recovery of unflushed transfers from the write-ahead log.
+ * Each test boots its own application, since recovery needs a second one on the same database and WAL.
+ */
+public class InMemoryTransferEngineTest {
+
+    private static final String A = "205-0000000000001-68";
+    private static final String B = "205-0000000000002-68";
+    private static final String C = "205-0000000000003-68";
+
+    @TempDir
+    private Path walDirectory;
+
+    @Test
+    void testTransferFunds_AppliedInMemoryAndFlushedToTables() {
+        try (ConfigurableApplicationContext context = startEngine("engine-transfers")) {
+            seedAccounts(context);
+            TransferService transferService = context.getBean(TransferService.class);
+            assertInstanceOf(InMemoryTransferService.class, transferService);
+
+            TransferResponse first = transferService.transferFunds(new TransferRequest(A, B, Money.parse("30.00")));
+            TransferResponse second = transferService.transferFunds(new TransferRequest("205-2-68", "205-1-68", Money.parse("5.50")));
+            assertEquals(first.transferId() + 1, second.transferId());
+            assertEquals(A, first.sourceAccount());
+            assertEquals(Money.parse("5.50"), second.amount());
+
+            assertThrows(InsufficientFundsException.class,
+                    () -> transferService.transferFunds(new TransferRequest(A, B, Money.parse("1000.00"))));
+            assertThrows(ResourceNotFoundException.class,
+                    () -> transferService.transferFunds(new TransferRequest(A, "205-0000000000099-68", Money.parse("1.00"))));
+            assertThrows(IllegalArgumentException.class,
+                    () -> transferService.transferFunds(new TransferRequest(A, B, Money.ZERO)));
+
+            // Nothing reaches the tables until the flush
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(new BigDecimal("100.00"), balanceOf(jdbcTemplate, A));
+            context.getBean(TransferSequencer.class).flush();
+
+            assertEquals(new BigDecimal("75.50"), balanceOf(jdbcTemplate, A));
+            assertEquals(new BigDecimal("124.50"), balanceOf(jdbcTemplate, B));
+            assertEquals(2, jdbcTemplate.queryForObject("select count(*) from transfer", Integer.class));
+            assertEquals(new BigDecimal("70.00"), jdbcTemplate.queryForObject(
+                    "select source_new_balance from transfer where id = ?", BigDecimal.class, first.transferId()));
+            assertEquals(2, jdbcTemplate.queryForObject("select count(*) from transfer_outbox", Integer.class));
+        }
+    }
+
+    @Test
+    void testTransferBatch_AtomicFailureAppliesNothing() {
+        try (ConfigurableApplicationContext context = startEngine("engine-batches")) {
+            seedAccounts(context);
+            TransferService transferService = context.getBean(TransferService.class);
+
+            List<TransferRequest> transfers = List.of(
+                    new TransferRequest(A, B, Money.parse("60.00")),
+                    new TransferRequest(C, A, Money.parse("10.00")),
+                    new TransferRequest(A, C, Money.parse("60.00")));
+            assertThrows(IllegalArgumentException.class,
+                    () -> transferService.transferBatch(new BatchTransferRequest(transfers, true)));
+
+            BatchTransferResponse partial = transferService.transferBatch(new BatchTransferRequest(transfers, false));
+            assertEquals(2, partial.succeeded());
+            assertEquals("FAILED", partial.results().get(2).status());
+
+            context.getBean(TransferSequencer.class).flush();
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(new BigDecimal("50.00"), balanceOf(jdbcTemplate, A));
+            assertEquals(new BigDecimal("160.00"), balanceOf(jdbcTemplate, B));
+            assertEquals(new BigDecimal("90.00"), balanceOf(jdbcTemplate, C));
+            assertEquals(2, jdbcTemplate.queryForObject("select count(*) from transfer", Integer.class));
+        }
+    }
+
+    @Test
+    void testRecovery_ReplaysUnflushedTransfersFromWriteAheadLog() {
+        // The first instance commits transfers to its WAL and is never flushed, as if it had crashed
+        ConfigurableApplicationContext crashed = startEngine("engine-recovery");
+        try {
+            seedAccounts(crashed);
+            TransferService transferService = crashed.getBean(TransferService.class);
+            transferService.transferFunds(new TransferRequest(A, B, Money.parse("30.00")));
+            TransferResponse last = transferService.transferFunds(new TransferRequest(B, C, Money.parse("12.25")));
+
+            try (ConfigurableApplicationContext restarted = startEngine("engine-recovery")) {
+                JdbcTemplate jdbcTemplate = restarted.getBean(JdbcTemplate.class);
+                assertEquals(0, jdbcTemplate.queryForObject("select count(*) from transfer", Integer.class));
+
+                // Replayed balances are in memory right away, and reach the tables with the next flush
+                TransferService recovered = restarted.getBean(TransferService.class);
+                assertThrows(InsufficientFundsException.class,
+                        () -> recovered.transferFunds(new TransferRequest(A, C, Money.parse("70.01"))));
+                TransferResponse next = recovered.transferFunds(new TransferRequest(A, C, Money.parse("70.00")));
+                assertEquals(last.transferId() + 1, next.transferId());
+
+                restarted.getBean(TransferSequencer.class).flush();
+                assertEquals(new BigDecimal("0.00"), balanceOf(jdbcTemplate, A));
+                assertEquals(new BigDecimal("117.75"), balanceOf(jdbcTemplate, B));
+                assertEquals(new BigDecimal("182.25"), balanceOf(jdbcTemplate, C));
+                assertEquals(3, jdbcTemplate.queryForObject("select count(*) from transfer", Integer.class));
+            }
+        } finally {
+            crashed.close();
+        }
+    }
+
+    private ConfigurableApplicationContext startEngine(String database) {
+        return new SpringApplicationBuilder(BptApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--bpt.transfer.engine=in-memory",
+                        "--bpt.engine.wal-directory=" + walDirectory,
+                        "--bpt.engine.wal-segment-size=64KB",
+                        // Flushed by the tests only
+                        "--bpt.engine.flush-interval-ms=3600000",
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=update");
+    }
+
+    private static void seedAccounts(ConfigurableApplicationContext context) {
+        accounts(context.getBean(UserRepository.class), context.getBean(AccountRepository.class), "engine", A, B, C);
+    }
+
+    private static BigDecimal balanceOf(JdbcTemplate jdbcTemplate, String number) {
+        return jdbcTemplate.queryForObject("select balance from account where account_number = ?", BigDecimal.class, number);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bpt;
+
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void testArithmetic_IsExactAndChecksTheColumnRange() {
+        Money balance = Money.parse("1000.10");
+
+        assertEquals(Money.parse("999.99"), balance.minus(Money.parse("0.11")));
+        assertEquals(Money.parse("1000.20"), balance.plus(Money.ofMinor(10)));
+        assertTrue(Money.parse("-0.01").isLessThan(Money.ZERO));
+        assertEquals(new BigDecimal("1000.10"), balance.toBigDecimal());
+        assertEquals("-1234.05", Money.parse("-1234.05").toString());
+
+        Money max = Money.ofMinor(Money.MAX_MINOR_UNITS);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.parse("0.001"));
+    }
+
+    @Test
+    void testJson_RoundTripsExactly() throws Exception {
+        TransferRequest request = objectMapper.readValue(
+                "{\"sourceAccount\":\"a\",\"destinationAccount\":\"b\",\"amount\":0.1}", TransferRequest.class);
+        assertEquals(Money.ofMinor(10), request.amount());
+        assertEquals(Money.parse("12.50"), objectMapper.readValue("\"12.5\"", Money.class));
+
+        TransferResponse response = new TransferResponse(1L, "a", "b", Money.parse("9999999999999999.99"),
+                "SUCCESS", LocalDateTime.of(2025, 1, 1, 12, 0));
+        assertTrue(objectMapper.writeValueAsString(response).contains("\"amount\":9999999999999999.99"));
+    }
+
+    @Test
+    void testJson_RejectsSubCentAndOutOfRangeAmounts() {
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("12.345", Money.class));
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("1e30", Money.class));
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("\"ten\"", Money.class));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bpt;
+
+import com.example.bpt.config.ReplicaLagMonitor;
+import com.example.bpt.dto.StatementFormat;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.service.AccountService;
+import com.example.bpt.service.TransferService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.example.bpt.TestAccounts.accounts;
+import static com.example.bpt.TestAccounts.owner;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read/write routing on two H2 databases. The "replica" is a second database that only changes when the test
+ * copies the primary over (SCRIPT / RUNSCRIPT), so whatever a read returns shows which database served it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "bpt.datasource.replica.enabled=true",
+        "bpt.datasource.replica.url=jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "bpt.datasource.replica.driver-class-name=org.h2.Driver",
+        "bpt.datasource.replica.username=sa",
+        "bpt.datasource.replica.password=",
+        "bpt.datasource.replica.max-lag=5s",
+        // Checked by the test only
+        "bpt.datasource.replica.check-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+public class ReadReplicaRoutingTest {
+
+    private static final String A = "205-0000000000071-68";
+    private static final String B = "205-0000000000072-68";
+    private static final String CSV_HEADER = "transfer_id,timestamp,direction,counterparty_account,amount,balance_after,cursor";
+
+    @TempDir
+    private Path snapshotDirectory;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testReadOnlyTransactions_UseReplicaUntilItLagsBehind() throws Exception {
+        accounts(userRepository, accountRepository, "routing", A, B);
+        replicaLagMonitor.check();
+        replicate();
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isReplicaAvailable());
+
+        // Written to the primary only
+        transferService.transferFunds(new TransferRequest(A, B, Money.parse("30.00")));
+        owner(userRepository, "late");
+
+        // Read-only work sees the replica's snapshot
+        assertEquals(Money.parse("100.00"), accountService.getBalance(A).balance());
+        assertTrue(accountService.getTransfers(A, TransferDirection.ALL, null, null, null, 10).items().isEmpty());
+        assertTrue(userRepository.findByUsername("routing").isPresent());
+        assertTrue(userRepository.findByUsername("late").isEmpty());
+        assertEquals(List.of(CSV_HEADER), export(A));
+
+        // Too far behind: reads fall back to the primary
+        new JdbcTemplate(replicaDataSource).update("update replica_heartbeat set beat_at = ?",
+                LocalDateTime.now().minusMinutes(1));
+        replicaLagMonitor.check();
+        assertFalse(replicaLagMonitor.isReplicaAvailable());
+        assertEquals(0.0, meterRegistry.get("bpt.datasource.replica.available").gauge().value());
+        assertTrue(meterRegistry.get("bpt.datasource.replica.lag").gauge().value() >= 60);
+
+        assertEquals(Money.parse("70.00"), accountService.getBalance(A).balance());
+        assertEquals(1, accountService.getTransfers(A, TransferDirection.ALL, null, null, null, 10).items().size());
+        assertTrue(userRepository.findByUsername("late").isPresent());
+        assertEquals(2, export(A).size());
+
+        // Caught up again
+        replicate();
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isReplicaAvailable());
+        assertEquals(Money.parse("130.00"), accountService.getBalance(B).balance());
+    }
+
+    private List<String> export(String accountNumber) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        accountService.exportTransfers(accountNumber, StatementFormat.CSV, null, null, null, null).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    /**
+     * Replaces the replica's contents with a copy of the primary.
+     */
+    private void replicate() {
+        String snapshot = snapshotDirectory.resolve("snapshot-" + System.nanoTime() + ".sql").toString();
+        new JdbcTemplate(primaryDataSource).execute("script to '" + snapshot + "'");
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("drop all objects");
+        replica.execute("runscript from '" + snapshot + "'");
+    }
+}
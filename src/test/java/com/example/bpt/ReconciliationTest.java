@@ -0,0 +1,137 @@
+package com.example.bpt;
+
+import com.example.bpt.dto.ReconciliationReport;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.dto.TransferResponse;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.BalanceCheckpoint;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.BalanceCheckpointRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.service.ReconciliationService;
+import com.example.bpt.service.TransferService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.example.bpt.TestAccounts.accounts;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reconciliation;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "bpt.reconciliation.settle=0s",
+        "bpt.reconciliation.chunk-size=2"
+})
+@ActiveProfiles("test")
+public class ReconciliationTest {
+
+    private static final String A = "205-0000000000091-68";
+    private static final String B = "205-0000000000092-68";
+    private static final String C = "205-0000000000093-68";
+    private static final String D = "205-0000000000094-68";
+    private static final String E = "205-0000000000095-68";
+    private static final String F = "205-0000000000096-68";
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testRun_ReplaysOnlyNewTransfersAndReportsDrift() {
+        List<Account> accounts = accounts(userRepository, accountRepository, "reconciliation", A, B, C);
+        Long b = accounts.get(1).getId();
+        transfer(A, B, "30.00");
+        transfer(B, C, "10.00");
+        transfer(C, A, "5.00");
+
+        // First run: every transfer from both sides, all consistent, checkpoints written
+        ReconciliationReport first = reconciliationService.run();
+        assertEquals("COMPLETED", first.status());
+        assertEquals(3, first.accountsChecked());
+        assertEquals(6, first.transfersVerified());
+        assertEquals(0, first.chainBreaks());
+        assertTrue(first.drifts().isEmpty());
+        BalanceCheckpoint checkpoint = checkpointRepository.findById(b).orElseThrow();
+        assertEquals(Money.parse("120.00"), checkpoint.getBalance());
+        assertEquals(first.cutoff(), checkpoint.getAsOf());
+
+        // Nothing new: nothing to do
+        assertEquals(0, reconciliationService.run().accountsChecked());
+
+        // Only the accounts of the new transfer are replayed; B's balance was changed behind the log's back
+        transfer(A, B, "1.00");
+        jdbcTemplate.update("update account set balance = balance + 7 where id = ?", b);
+        ReconciliationReport drifted = reconciliationService.run();
+        assertEquals(2, drifted.accountsChecked());
+        assertEquals(2, drifted.transfersVerified());
+        assertEquals(1, drifted.drifts().size());
+        assertEquals(B, drifted.drifts().get(0).accountNumber());
+        assertEquals(Money.parse("7.00"), drifted.drifts().get(0).drift());
+        assertEquals(Money.parse("120.00"), drifted.drifts().get(0).checkpointBalance());
+        assertEquals(1.0, meterRegistry.get("bpt.reconciliation.drift.accounts").gauge().value());
+
+        // Drifting accounts are checked again until they reconcile
+        jdbcTemplate.update("update account set balance = balance - 7 where id = ?", b);
+        ReconciliationReport repaired = reconciliationService.run();
+        assertEquals(1, repaired.accountsChecked());
+        assertTrue(repaired.drifts().isEmpty());
+        assertEquals(Money.parse("121.00"), checkpointRepository.findById(b).orElseThrow().getBalance());
+
+        // A transfer row whose recorded balances do not continue the chain
+        TransferResponse tampered = transfer(B, C, "2.00");
+        jdbcTemplate.update("update transfer set source_old_balance = 500, source_new_balance = 498 where id = ?",
+                tampered.transferId());
+        ReconciliationReport broken = reconciliationService.run();
+        assertEquals(1, broken.chainBreaks());
+        assertTrue(broken.drifts().isEmpty());
+        assertEquals(1.0, meterRegistry.get("bpt.reconciliation.chain.breaks").counter().count());
+    }
+
+    @Test
+    void testRun_PartlyFailedRunLeavesItsAccountsForTheNextRun() {
+        List<Account> accounts = accounts(userRepository, accountRepository, "reconciliation-partial", D, E, F);
+        Long d = accounts.get(0).getId();
+        Long f = accounts.get(2).getId();
+        transfer(D, E, "10.00");
+        assertEquals("COMPLETED", reconciliationService.run().status());
+
+        // A run that failed part way: D's chunk committed its checkpoint, the chunk with E and F did not
+        transfer(E, F, "5.00");
+        jdbcTemplate.update("update balance_checkpoint set as_of = ?, checked_at = ? where account_id = ?",
+                LocalDateTime.now(), LocalDateTime.now(), d);
+
+        ReconciliationReport next = reconciliationService.run();
+        assertEquals("COMPLETED", next.status());
+        assertEquals(2, next.accountsChecked());
+        assertEquals(Money.parse("105.00"), checkpointRepository.findById(f).orElseThrow().getBalance());
+        assertEquals(next.cutoff(), checkpointRepository.findReconciledBefore().orElseThrow());
+    }
+
+    private TransferResponse transfer(String source, String destination, String amount) {
+        return transferService.transferFunds(new TransferRequest(source, destination, Money.parse(amount)));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.bpt;
+
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.model.Transfer;
+import com.example.bpt.model.User;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.TransferRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.service.AccountService;
+import com.example.bpt.service.TransferService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.example.bpt.TestAccounts.account;
+import static com.example.bpt.TestAccounts.accountNumber;
+import static com.example.bpt.TestAccounts.owner;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exact number of SQL statements per operation, so a fetch plan that regresses into N+1 selects (or an eager
+ * association that sneaks back in) fails the build. Counted by Hibernate's statistics, which see every statement
+ * issued through JPA, native queries included.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement-count;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        // Regions of their own, apart from any other test context in this JVM
+        "spring.jpa.properties.hibernate.cache.region_prefix=statement-count"
+})
+@ActiveProfiles("test")
+public class SqlStatementCountTest {
+
+    /** Account numbers are cached for the life of the context, so every test gets fresh ones. */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger(200);
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private TransferProperties transferProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User owner;
+    private String a;
+    private String b;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        int base = SEQUENCE.getAndAdd(2);
+        owner = owner(userRepository, "count" + base);
+        a = accountNumber(base);
+        b = accountNumber(base + 1);
+        accountRepository.saveAll(List.of(account(a, owner), account(b, owner)));
+        // Ids for the next transfers and outbox events are already allocated, so no sequence call is counted
+        transferService.transferFunds(new TransferRequest(a, b, Money.parse("1.00")));
+    }
+
+    @Test
+    void testTransferFunds_EntityPath() {
+        // Lock both accounts, update both (one batch), insert transfer, insert outbox event
+        assertEquals(4, statements(() -> transferService.transferFunds(new TransferRequest(b, a, Money.parse("2.00")))));
+    }
+
+    @Test
+    void testTransferFunds_ConditionalUpdatePath() {
+        transferProperties.setWritePath(TransferProperties.WritePath.CONDITIONAL_UPDATE);
+        try {
+            // Debit, credit, read both balances back, insert transfer, insert outbox event; the performer is a
+            // reference, not a select. The first transfer also looks up both account keys
+            assertEquals(7, statements(() -> transferService.transferFunds(new TransferRequest(b, a, Money.parse("2.00")))));
+            assertEquals(5, statements(() -> transferService.transferFunds(new TransferRequest(b, a, Money.parse("2.00")))));
+        } finally {
+            transferProperties.setWritePath(TransferProperties.WritePath.ENTITY);
+        }
+    }
+
+    @Test
+    void testLoadTransfer_AssociationsStayLazyUnlessAsked() {
+        Long id = transferService.transferFunds(new TransferRequest(a, b, Money.parse("3.00"))).transferId();
+
+        // The transfer row only; foreign keys are available from the proxies
+        assertEquals(1, statements(() -> {
+            Transfer transfer = transferRepository.findById(id).orElseThrow();
+            assertEquals(owner.getId(), transfer.getPerformedBy().getId());
+            return transfer;
+        }));
+
+        // Both accounts in the same select
+        assertEquals(1, statements(() -> {
+            Transfer transfer = transferRepository.findWithAccountsById(id).orElseThrow();
+            assertEquals(a, transfer.getSourceAccount().getAccountNumber());
+            assertEquals(b, transfer.getDestinationAccount().getAccountNumber());
+            return transfer;
+        }));
+    }
+
+    @Test
+    void testLoadUser_ServedFromSecondLevelCache() {
+        entityManagerFactory.getCache().evictAll();
+
+        assertEquals(1, statements(() -> userRepository.findById(owner.getId()).orElseThrow()));
+        assertEquals(0, statements(() -> userRepository.findById(owner.getId()).orElseThrow()));
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+
+        // An account's lazy owner resolves from the cache as well
+        assertEquals(1, statements(() -> transactionTemplate.execute(status ->
+                accountRepository.findByAccountNumber(a).orElseThrow().getOwner().getUsername())));
+    }
+
+    @Test
+    void testReads_BalanceAndHistory() {
+        // Account key, then balance; afterwards both are cached
+        assertEquals(2, statements(() -> accountService.getBalance(a)));
+        assertEquals(0, statements(() -> accountService.getBalance(a)));
+
+        // Outgoing and incoming page; a short page also reads the archive watermark
+        assertEquals(3, statements(() -> accountService.getTransfers(a, TransferDirection.ALL, null, null, null, 10)));
+    }
+
+    private long statements(Supplier<?> operation) {
+        statistics.clear();
+        operation.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bpt;
+
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.model.User;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.UserRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Users and accounts for the tests that run against a database.
+ */
+final class TestAccounts {
+
+    static final Money OPENING_BALANCE = Money.parse("100.00");
+
+    private TestAccounts() {
+    }
+
+    /**
+     * Normalized number of the {@code n}-th test account, e.g. {@code 205-0000000000007-68}.
+     */
+    static String accountNumber(int n) {
+        return "205-%013d-68".formatted(n);
+    }
+
+    static Account account(String number, User owner) {
+        return account(number, owner, OPENING_BALANCE);
+    }
+
+    static Account account(String number, User owner, Money balance) {
+        return Account.builder().accountNumber(number).balance(balance).owner(owner).build();
+    }
+
+    /**
+     * Saves a user; the e-mail address is derived from the (unique) username.
+     */
+    static User owner(UserRepository userRepository, String username) {
+        return userRepository.save(User.builder().username(username).email(username + "@example.com").build());
+    }
+
+    /**
+     * Saves one owner and an account holding {@link #OPENING_BALANCE} for each number, in order.
+     */
+    static List<Account> accounts(UserRepository userRepository, AccountRepository accountRepository,
+                                  String username, String... numbers) {
+        User owner = owner(userRepository, username);
+        return accountRepository.saveAll(Arrays.stream(numbers).map(number -> account(number, owner)).toList());
+    }
+}
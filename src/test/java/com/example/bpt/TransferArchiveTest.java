@@ -0,0 +1,180 @@
+package com.example.bpt;
+
+import com.example.bpt.dto.ReconciliationReport;
+import com.example.bpt.dto.StatementFormat;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferHistoryItem;
+import com.example.bpt.dto.TransferHistoryResponse;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.TransferArchiveRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.service.AccountService;
+import com.example.bpt.service.ReconciliationService;
+import com.example.bpt.service.TransferService;
+import com.example.bpt.service.impl.TransferArchiver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.bpt.TestAccounts.accounts;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "bpt.transfer.archive.hot-months=1",
+        "bpt.transfer.archive.delete-batch-size=2"
+})
+@ActiveProfiles("test")
+public class TransferArchiveTest {
+
+    private static final String A = "205-0000000000101-68";
+    private static final String B = "205-0000000000102-68";
+
+    @Autowired
+    private TransferArchiver transferArchiver;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferArchiveRepository archiveRepository;
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Both tests share the database; each starts with nothing archived. */
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("delete from transfer_archive_watermark");
+    }
+
+    @Test
+    void testArchive_MovesColdMonthsAndHistorySpansBothTables() throws Exception {
+        accounts(userRepository, accountRepository, "archive", A, B);
+        // Five transfers: three months ago (x2), two months ago, last month (still hot), now
+        LocalDateTime thisMonth = YearMonth.now().atDay(1).atStartOfDay();
+        List<LocalDateTime> at = List.of(thisMonth.minusMonths(3).plusDays(2), thisMonth.minusMonths(3).plusDays(5),
+                thisMonth.minusMonths(2).plusHours(7), thisMonth.minusMonths(1).plusDays(10), LocalDateTime.now());
+        for (int i = 0; i < at.size(); i++) {
+            long id = transferService.transferFunds(i % 2 == 0
+                    ? new TransferRequest(A, B, Money.parse((i + 1) + ".00"))
+                    : new TransferRequest(B, A, Money.parse((i + 1) + ".00"))).transferId();
+            jdbcTemplate.update("update transfer set timestamp = ? where id = ?", at.get(i), id);
+        }
+        List<String> before = export();
+        List<Long> pagedBefore = pageThrough(2);
+        // Reconciled up to the first transfer only, so the next reconciliation has to replay archived ones
+        for (String number : List.of(A, B)) {
+            Account account = accountRepository.findByAccountNumber(number).orElseThrow();
+            jdbcTemplate.update("insert into balance_checkpoint (account_id, balance, as_of, checked_at, drift) "
+                    + "values (?, ?, ?, ?, 0)", account.getId(), number.equals(A) ? 99 : 101, at.getFirst(), at.getFirst());
+        }
+
+        // Months before last month leave the hot table; the watermark marks where the archive ends
+        assertEquals(3, transferArchiver.archive());
+        assertEquals(2, count("transfer"));
+        assertEquals(3, count("transfer_archive"));
+        assertEquals(thisMonth.minusMonths(1), archiveRepository.findArchivedBefore().orElseThrow());
+
+        // History and statements read on into the archive, unchanged, with the cursor crossing over
+        assertEquals(pagedBefore, pageThrough(2));
+        assertEquals(5, pagedBefore.size());
+        assertEquals(before, export());
+        TransferHistoryItem oldest = accountService.getTransfers(A, TransferDirection.OUTGOING, null, null, null, 10)
+                .items().getLast();
+        assertEquals(Money.parse("1.00"), oldest.amount());
+        assertEquals(B, oldest.counterpartyAccount());
+        assertEquals(Money.parse("99.00"), oldest.balanceAfter());
+        assertEquals(at.getFirst(), oldest.timestamp());
+        assertEquals(1, accountService.getTransfers(A, TransferDirection.ALL, at.get(2), at.get(3), null, 10)
+                .items().size());
+
+        // Nothing left to archive
+        assertEquals(0, transferArchiver.archive());
+        assertEquals(2, count("transfer"));
+
+        // Reconciliation replays the archived part of the history since the checkpoints, too
+        ReconciliationReport reconciled = reconciliationService.run();
+        assertEquals("COMPLETED", reconciled.status());
+        assertEquals(0, reconciled.chainBreaks());
+        assertTrue(reconciled.drifts().isEmpty());
+    }
+
+    @Test
+    void testArchive_RemovesHotCopiesLeftBehindByAnInterruptedRun() {
+        accounts(userRepository, accountRepository, "interrupted", "205-0000000000103-68", "205-0000000000104-68");
+        LocalDateTime cold = YearMonth.now().minusMonths(6).atDay(1).atStartOfDay();
+        long id = transferService.transferFunds(
+                new TransferRequest("205-0000000000103-68", "205-0000000000104-68", Money.parse("5.00"))).transferId();
+        jdbcTemplate.update("update transfer set timestamp = ? where id = ?", cold, id);
+        // Copied and past the watermark, but never removed from transfer
+        jdbcTemplate.update("insert into transfer_archive (id, source_account_id, destination_account_id, amount, "
+                + "source_new_balance, destination_new_balance, timestamp, performed_by) select id, source_account_id, "
+                + "destination_account_id, amount, source_new_balance, destination_new_balance, timestamp, performed_by "
+                + "from transfer where id = ?", id);
+        jdbcTemplate.update("merge into transfer_archive_watermark (id, archived_before) key (id) values (1, ?)",
+                cold.plusMonths(1));
+        // Committed below the watermark after its hour had been copied
+        long late = transferService.transferFunds(
+                new TransferRequest("205-0000000000103-68", "205-0000000000104-68", Money.parse("1.00"))).transferId();
+        jdbcTemplate.update("update transfer set timestamp = ? where id = ?", cold.plusHours(1), late);
+
+        // Read from the archive only: no duplicate, and the late row is not visible yet
+        assertEquals(1, accountService.getTransfers("205-0000000000103-68", TransferDirection.ALL, null, null, null, 10)
+                .items().size());
+
+        // Only the late row is copied; both leave the hot table
+        assertEquals(1, transferArchiver.archive());
+        for (long transferId : List.of(id, late)) {
+            assertEquals(0, (long) jdbcTemplate.queryForObject("select count(*) from transfer where id = ?", Long.class, transferId));
+            assertEquals(1, (long) jdbcTemplate.queryForObject("select count(*) from transfer_archive where id = ?", Long.class, transferId));
+        }
+    }
+
+    private List<Long> pageThrough(int pageSize) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransferHistoryResponse page = accountService.getTransfers(A, TransferDirection.ALL, null, null, cursor, pageSize);
+            page.items().forEach(item -> ids.add(item.transferId()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<String> export() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        accountService.exportTransfers(A, StatementFormat.CSV, null, null, null, null).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " t join account a "
+                + "on a.id = t.source_account_id where a.account_number in (?, ?)", Long.class, A, B);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.bpt;
+
+import com.example.bpt.event.TransferCompletedEvent;
+import com.example.bpt.kafka.TransferEventProducer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ledger projection end to end against an embedded broker: batch consumption, idempotent writes and
+ * dead-lettering of poison records. Events are produced in the binary format, next to a JSON-looking poison record.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.listener.auto-startup=true",
+        "spring.kafka.producer.value-serializer=com.example.bpt.kafka.TransferEventBinarySerializer",
+        "bpt.ledger.retry-initial-interval=50ms"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 2, topics = {TransferEventProducer.TOPIC, TransferEventProducer.TOPIC + ".DLT"})
+public class TransferEventConsumerTest {
+
+    private static final String DLT = TransferEventProducer.TOPIC + ".DLT";
+
+    @Autowired
+    private KafkaTemplate<String, TransferCompletedEvent> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testConsume_ProjectsEventsOnceAndDeadLettersPoisonRecords() throws Exception {
+        LocalDateTime at = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<TransferCompletedEvent> events = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            events.add(new TransferCompletedEvent(id, "205-000000000000" + (id % 3) + "-68",
+                    "205-0000000000009-68", BigDecimal.valueOf(id * 10), at.plusSeconds(id)));
+        }
+
+        for (TransferCompletedEvent event : events.subList(0, 3)) {
+            kafkaTemplate.send(TransferEventProducer.TOPIC, event.sourceAccount(), event);
+        }
+        // Unreadable payload, an event without a transfer id, and a redelivered duplicate
+        try (Producer<String, byte[]> raw = new DefaultKafkaProducerFactory<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new ByteArraySerializer()).createProducer()) {
+            raw.send(new ProducerRecord<>(TransferEventProducer.TOPIC, "205-0000000000001-68",
+                    "{not json".getBytes(StandardCharsets.UTF_8))).get();
+        }
+        kafkaTemplate.send(TransferEventProducer.TOPIC, "205-0000000000002-68",
+                new TransferCompletedEvent(null, "205-0000000000002-68", "205-0000000000009-68", BigDecimal.ONE, at));
+        kafkaTemplate.send(TransferEventProducer.TOPIC, events.get(0).sourceAccount(), events.get(0));
+        for (TransferCompletedEvent event : events.subList(3, 6)) {
+            kafkaTemplate.send(TransferEventProducer.TOPIC, event.sourceAccount(), event);
+        }
+        kafkaTemplate.flush();
+
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertEquals(12, jdbcTemplate.queryForObject("select count(*) from ledger_entry", Integer.class)));
+
+        // Debit and credit per event, duplicates ignored
+        assertEquals(0, jdbcTemplate.queryForObject("select sum(amount) from ledger_entry", BigDecimal.class).signum());
+        assertEquals(new BigDecimal("210.00"), jdbcTemplate.queryForObject(
+                "select sum(amount) from ledger_entry where account_number = '205-0000000000009-68'", BigDecimal.class));
+
+        List<ConsumerRecord<String, byte[]>> deadLetters = consumeDeadLetters(2);
+        assertTrue(deadLetters.stream().anyMatch(record ->
+                new String(record.value(), StandardCharsets.UTF_8).equals("{not json")));
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertEquals(2.0, meterRegistry.get("bpt.ledger.dead.letters").counter().count()));
+        assertTrue(meterRegistry.get("bpt.ledger.events").counter().count() >= 6);
+        assertNotNull(meterRegistry.find("kafka.consumer.fetch.manager.records.lag.max").meter());
+    }
+
+    private List<ConsumerRecord<String, byte[]>> consumeDeadLetters(int expected) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-reader", "false", broker);
+        List<ConsumerRecord<String, byte[]>> received = new ArrayList<>();
+        try (Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(consumer, DLT);
+            await().atMost(Duration.ofSeconds(30)).until(() -> {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(200));
+                records.forEach(received::add);
+                return received.size() >= expected;
+            });
+        }
+        return received;
+    }
+}
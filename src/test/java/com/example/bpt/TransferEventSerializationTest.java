@@ -0,0 +1,83 @@
+package com.example.bpt;
+
+import com.example.bpt.event.TransferCompletedEvent;
+import com.example.bpt.kafka.TransferEventBinaryFormat;
+import com.example.bpt.kafka.TransferEventBinarySerializer;
+import com.example.bpt.kafka.TransferEventDeserializer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransferEventSerializationTest {
+
+    private static final String TOPIC = "transfer-events";
+
+    private static final TransferCompletedEvent EVENT = new TransferCompletedEvent(1_234_567L,
+            "205-0000001234567-68", "005-0000007654321-09", new BigDecimal("500.00"),
+            LocalDateTime.of(2025, 11, 3, 8, 57, 47, 245_586_500));
+
+    private final TransferEventBinarySerializer binarySerializer = new TransferEventBinarySerializer();
+    private final TransferEventDeserializer deserializer = new TransferEventDeserializer();
+
+    @BeforeEach
+    void setUp() {
+        deserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "com.example.bpt.event",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, TransferCompletedEvent.class.getName()), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deserializer.close();
+    }
+
+    @Test
+    void testBinary_RoundTripsAndIsMuchSmallerThanJson() {
+        byte[] binary = binarySerializer.serialize(TOPIC, EVENT);
+        byte[] json;
+        try (JsonSerializer<TransferCompletedEvent> jsonSerializer = new JsonSerializer<>()) {
+            json = jsonSerializer.serialize(TOPIC, EVENT);
+        }
+
+        assertEquals(EVENT, deserializer.deserialize(TOPIC, new RecordHeaders(), binary));
+        assertTrue(binary.length * 3 < json.length, binary.length + " vs " + json.length + " bytes");
+    }
+
+    @Test
+    void testBinary_RoundTripsUnusualValues() {
+        TransferCompletedEvent unusual = new TransferCompletedEvent(null, "not-an-account-č", null,
+                new BigDecimal("-123456789012345678901234567890.125"), LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1));
+
+        assertEquals(unusual, TransferEventBinaryFormat.decode(TransferEventBinaryFormat.encode(unusual)));
+    }
+
+    @Test
+    void testDeserialize_ReadsJsonWrittenByJsonSerializer() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] json;
+        try (JsonSerializer<TransferCompletedEvent> jsonSerializer = new JsonSerializer<>()) {
+            json = jsonSerializer.serialize(TOPIC, headers, EVENT);
+        }
+
+        assertEquals(EVENT, deserializer.deserialize(TOPIC, headers, json));
+    }
+
+    @Test
+    void testDeserialize_TruncatedBinaryIsRejected() {
+        byte[] binary = binarySerializer.serialize(TOPIC, EVENT);
+
+        assertThrows(SerializationException.class, () ->
+                deserializer.deserialize(TOPIC, new RecordHeaders(), Arrays.copyOf(binary, binary.length - 3)));
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.bpt;
+
+import com.example.bpt.config.AccountCacheProperties;
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.StatementFormat;
+import com.example.bpt.dto.TransferDirection;
+import com.example.bpt.dto.TransferHistoryItem;
+import com.example.bpt.dto.TransferHistoryResponse;
+import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
+import com.example.bpt.model.Transfer;
+import com.example.bpt.model.User;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.TransferRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.service.impl.AccountCache;
+import com.example.bpt.service.impl.AccountServiceImpl;
+import com.example.bpt.service.impl.BalanceShardService;
+import com.example.bpt.service.impl.TransferStatementExporter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.bpt.TestAccounts.account;
+import static com.example.bpt.TestAccounts.accountNumber;
+import static com.example.bpt.TestAccounts.owner;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset pagination and statement export of account history against a real (H2) database.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AccountServiceImpl.class, AccountCache.class, TransferStatementExporter.class, SimpleMeterRegistry.class, ObjectMapper.class})
+@EnableConfigurationProperties({AccountCacheProperties.class, TransferProperties.class})
+public class TransferHistoryTest {
+
+    @Autowired
+    private AccountServiceImpl accountService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @MockitoBean
+    private BalanceShardService balanceShardService;
+
+    /** The account key cache outlives each test's rollback, so every test gets fresh account numbers. */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private Account a;
+    private Account b;
+    private Account c;
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        int base = SEQUENCE.getAndAdd(3);
+        User owner = owner(userRepository, "owner" + base);
+        a = accountRepository.save(account(accountNumber(base + 1), owner, Money.parse("1000")));
+        b = accountRepository.save(account(accountNumber(base + 2), owner, Money.parse("1000")));
+        c = accountRepository.save(account(accountNumber(base + 3), owner, Money.parse("1000")));
+
+        // 10 transfers touching A, alternating direction, two per second (so timestamps tie), plus noise between B and C
+        for (int i = 0; i < 10; i++) {
+            LocalDateTime at = start.plusSeconds(i / 2);
+            transferRepository.save(i % 2 == 0 ? transfer(a, b, i, at) : transfer(c, a, i, at));
+            transferRepository.save(transfer(b, c, 100 + i, at));
+        }
+        transferRepository.flush();
+    }
+
+    @Test
+    void testGetTransfers_PagesCoverAllRowsNewestFirstWithoutGapsOrDuplicates() {
+        List<TransferHistoryItem> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TransferHistoryResponse page = accountService.getTransfers(
+                    a.getAccountNumber(), TransferDirection.ALL, null, null, cursor, 3);
+            seen.addAll(page.items());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(10, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            TransferHistoryItem newer = seen.get(i - 1);
+            TransferHistoryItem older = seen.get(i);
+            assertTrue(newer.timestamp().isAfter(older.timestamp())
+                    || (newer.timestamp().equals(older.timestamp()) && newer.transferId() > older.transferId()));
+        }
+        assertEquals(Money.parse("9.00"), seen.get(0).amount());
+        assertEquals(TransferDirection.INCOMING, seen.get(0).direction());
+        assertEquals(c.getAccountNumber(), seen.get(0).counterpartyAccount());
+    }
+
+    @Test
+    void testGetTransfers_FiltersByDirectionAndDateRange() {
+        TransferHistoryResponse outgoing = accountService.getTransfers(
+                a.getAccountNumber(), TransferDirection.OUTGOING, start.plusSeconds(1), start.plusSeconds(4), null, 50);
+
+        assertNull(outgoing.nextCursor());
+        assertEquals(List.of(6L, 4L, 2L), outgoing.items().stream()
+                .map(item -> item.amount().toBigDecimal().longValue())
+                .toList());
+        assertTrue(outgoing.items().stream().allMatch(item -> item.direction() == TransferDirection.OUTGOING));
+    }
+
+    @Test
+    void testGetTransfers_RejectsMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> accountService.getTransfers(
+                a.getAccountNumber(), TransferDirection.ALL, null, null, "not-a-cursor", 10));
+    }
+
+    @Test
+    void testExportTransfers_CsvStreamsWholeHistoryAndResumesFromRowCursor() throws IOException {
+        List<String> lines = export(StatementFormat.CSV, null);
+
+        assertEquals(11, lines.size());
+        assertEquals("transfer_id,timestamp,direction,counterparty_account,amount,balance_after,cursor", lines.get(0));
+        String[] newest = lines.get(1).split(",");
+        assertEquals("2025-01-01T12:00:04", newest[1]);
+        assertEquals("INCOMING", newest[2]);
+        assertEquals(c.getAccountNumber(), newest[3]);
+        assertEquals("9.00", newest[4]);
+
+        // Same rows, same order as paging through the history
+        List<Long> paged = accountService.getTransfers(a.getAccountNumber(), TransferDirection.ALL, null, null, null, 50)
+                .items().stream().map(TransferHistoryItem::transferId).toList();
+        assertEquals(paged, lines.subList(1, 11).stream().map(line -> Long.valueOf(line.split(",")[0])).toList());
+
+        // A download cut off after the fourth row continues with the fifth
+        String cursor = lines.get(4).split(",")[6];
+        List<String> resumed = export(StatementFormat.CSV, cursor);
+        assertEquals(lines.subList(5, 11), resumed.subList(1, resumed.size()));
+    }
+
+    @Test
+    void testExportTransfers_NdjsonWritesOneObjectPerLine() throws IOException {
+        List<String> lines = export(StatementFormat.NDJSON, null);
+
+        assertEquals(10, lines.size());
+        JsonNode newest = new ObjectMapper().readTree(lines.get(0));
+        assertEquals("INCOMING", newest.get("direction").asText());
+        assertTrue(lines.get(0).contains("\"amount\":9.00,"));
+        assertEquals("2025-01-01T12:00:04", newest.get("timestamp").asText());
+        assertFalse(newest.get("cursor").asText().isEmpty());
+    }
+
+    private List<String> export(StatementFormat format, String cursor) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        accountService.exportTransfers(a.getAccountNumber(), format, TransferDirection.ALL, null, null, cursor)
+                .writeTo(out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private static Transfer transfer(Account source, Account destination, long amount, LocalDateTime at) {
+        Money value = Money.ofMinor(amount * 100);
+        return Transfer.builder()
+                .sourceAccount(source)
+                .destinationAccount(destination)
+                .amount(value)
+                .sourceOldBalance(source.getBalance())
+                .sourceNewBalance(source.getBalance().minus(value))
+                .destinationOldBalance(destination.getBalance())
+                .destinationNewBalance(destination.getBalance().plus(value))
+                .timestamp(at)
+                .performedBy(source.getOwner())
+                .build();
+    }
+}
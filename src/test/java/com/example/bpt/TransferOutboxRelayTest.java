@@ -0,0 +1,109 @@
+package com.example.bpt;
+
+import com.example.bpt.config.OutboxProperties;
+import com.example.bpt.kafka.TransferEventProducer;
+import com.example.bpt.kafka.TransferOutboxRelay;
+import com.example.bpt.model.OutboxEvent;
+import com.example.bpt.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TransferOutboxRelayTest {
+
+    private static final String PAYLOAD = "{\"transferId\":1,\"sourceAccountNumber\":\"205-0000001234567-68\","
+            + "\"destinationAccountNumber\":\"205-0000007654321-68\",\"amount\":200.00,"
+            + "\"timestamp\":\"2025-01-01T10:00:00\"}";
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private TransferEventProducer transferEventProducer;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final OutboxProperties properties = new OutboxProperties();
+
+    private TransferOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.setRetryBackoff(Duration.ofSeconds(1));
+        properties.setMaxRetryBackoff(Duration.ofSeconds(5));
+        properties.setMaxAttempts(4);
+        relay = new TransferOutboxRelay(outboxEventRepository, transferEventProducer,
+                new ObjectMapper().findAndRegisterModules(), new TransactionTemplate(transactionManager),
+                properties, new SimpleMeterRegistry());
+        when(transferEventProducer.sendTransferCompletedEvent(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+    }
+
+    @Test
+    void testRelay_FailedSendBacksOffExponentially() {
+        OutboxEvent event = event(0);
+        when(outboxEventRepository.claimPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(event));
+
+        LocalDateTime before = LocalDateTime.now();
+        relay.relay();
+        assertEquals(1, event.getAttempts());
+        assertFalse(event.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+
+        event.setAttempts(2);
+        relay.relay();
+        assertEquals(3, event.getAttempts());
+        assertFalse(event.getNextAttemptAt().isBefore(before.plusSeconds(4)));
+        assertNull(event.getParkedAt());
+        verify(outboxEventRepository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void testRelay_BackoffIsCapped() {
+        OutboxEvent event = event(0);
+        properties.setMaxAttempts(100);
+        event.setAttempts(40);
+        when(outboxEventRepository.claimPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(event));
+
+        relay.relay();
+
+        assertFalse(event.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(5)));
+    }
+
+    @Test
+    void testRelay_ParksEventAfterMaxAttempts() {
+        OutboxEvent event = event(3);
+        when(outboxEventRepository.claimPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(event));
+
+        relay.relay();
+
+        assertEquals(4, event.getAttempts());
+        assertNotNull(event.getParkedAt());
+    }
+
+    private static OutboxEvent event(int attempts) {
+        return OutboxEvent.builder()
+                .id(1L)
+                .topic(TransferEventProducer.TOPIC)
+                .payload(PAYLOAD)
+                .createdAt(LocalDateTime.now())
+                .attempts(attempts)
+                .build();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.bpt;
+
+import com.example.bpt.config.AccountCacheProperties;
+import com.example.bpt.config.RateLimitProperties;
+import com.example.bpt.dto.TransferRequest;
+import com.example.bpt.exception.RateLimitExceededException;
+import com.example.bpt.model.Money;
+import com.example.bpt.repository.AccountRepository;
+import com.example.bpt.repository.projection.AccountKey;
+import com.example.bpt.service.impl.AccountCache;
+import com.example.bpt.service.impl.TransferRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TransferRateLimiterTest {
+
+    private static final String A = "205-0000000000001-68";
+    private static final String B = "205-0000000000002-68";
+    private static final String VIP = "205-0000000000003-68";
+    private static final String OTHER_OWNER = "205-0000000000004-68";
+    private static final String DESTINATION = "205-0000000000009-68";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimitProperties properties = new RateLimitProperties();
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        properties.getTiers().put("standard", limit(3, "100.00"));
+        properties.getTiers().put("vip", limit(10, "10000.00"));
+        properties.getAccountTiers().put("205-3-68", "vip");
+        properties.setUser(limit(5, "10000.00"));
+        stubKey(A, 1L, 10L);
+        stubKey(B, 2L, 10L);
+        stubKey(VIP, 3L, 10L);
+        stubKey(OTHER_OWNER, 4L, 20L);
+    }
+
+    @Test
+    void testAcquire_RejectsOverAccountTierLimits() {
+        TransferRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(request(A, "10.00"));
+        }
+        RateLimitExceededException ex = assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquire(request(A, "10.00")));
+        assertTrue(ex.getMessage().contains(A));
+        assertTrue(ex.getRetryAfter().compareTo(Duration.ZERO) > 0);
+
+        // Amount limit, and a tier with higher limits
+        limiter.acquire(request(B, "60.00"));
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(request(B, "40.01")));
+        limiter.acquire(request(VIP, "500.00"));
+
+        assertEquals(2, meterRegistry.get("bpt.transfer.throttled").tag("scope", "account").counter().count());
+    }
+
+    @Test
+    void testAcquire_LimitsUserAcrossAccounts() {
+        TransferRateLimiter limiter = limiter();
+
+        limiter.acquire(request(A, "1.00"));
+        limiter.acquire(request(A, "1.00"));
+        limiter.acquire(request(B, "1.00"));
+        limiter.acquire(request(VIP, "1.00"));
+        limiter.acquire(request(VIP, "1.00"));
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(request(VIP, "1.00")));
+        limiter.acquire(request(OTHER_OWNER, "1.00"));
+
+        // The rejected transfer was not counted against the account either
+        assertEquals(1, meterRegistry.get("bpt.transfer.throttled").tag("scope", "user").counter().count());
+    }
+
+    @Test
+    void testAcquire_BatchIsAllOrNothing() {
+        TransferRateLimiter limiter = limiter();
+
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(List.of(
+                request(B, "1.00"), request(A, "1.00"), request(A, "1.00"), request(A, "1.00"), request(A, "1.00"))));
+
+        // Nothing of the rejected batch was counted
+        limiter.acquire(List.of(request(A, "1.00"), request(A, "1.00"), request(A, "1.00")));
+        limiter.acquire(request(B, "1.00"));
+    }
+
+    @Test
+    void testRelease_GivesBackTransfersThatDidNotRun() {
+        TransferRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(request(A, "30.00")).release();
+        }
+        // Released twice: still given back only once
+        TransferRateLimiter.Permit permit = limiter.acquire(request(A, "30.00"));
+        permit.release();
+        permit.release();
+
+        limiter.acquire(request(A, "30.00"));
+        limiter.acquire(request(A, "30.00"));
+        limiter.acquire(request(A, "30.00"));
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(request(A, "1.00")));
+    }
+
+    @Test
+    void testRelease_GivesBackFailedBatchItems() {
+        TransferRateLimiter limiter = limiter();
+
+        TransferRequest failed = request(A, "50.00");
+        TransferRateLimiter.Permit permit = limiter.acquire(List.of(request(A, "10.00"), failed, request(B, "1.00")));
+        permit.release(failed);
+
+        // Only the items that ran still count: 1 transfer and 10.00 of A's 3 transfers and 100.00
+        limiter.acquire(request(A, "45.00"));
+        limiter.acquire(request(A, "45.00"));
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(request(A, "0.01")));
+        // And the user's 5 transfers: 4 so far, the failed item not among them
+        limiter.acquire(request(B, "1.00"));
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(request(B, "1.00")));
+    }
+
+    @Test
+    void testAcquire_IgnoresUnattributableRequests() {
+        TransferRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(request("not-an-account", "1.00"));
+            limiter.acquire(request("205-0000000000077-68", "1.00"));
+            limiter.acquire(new TransferRequest(A, DESTINATION, null));
+        }
+        limiter.acquire(request(A, "1.00"));
+    }
+
+    @Test
+    void testAcquire_WindowSlides() {
+        properties.setWindow(Duration.ofMillis(100));
+        TransferRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(request(A, "1.00"));
+        }
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(request(A, "1.00")));
+
+        // Poll off the window period, or every poll can land at the same (still too early) point of a window
+        await().atMost(Duration.ofSeconds(2)).pollInterval(Duration.ofMillis(7))
+                .ignoreException(RateLimitExceededException.class)
+                .untilAsserted(() -> limiter.acquire(request(A, "1.00")));
+    }
+
+    @Test
+    void testAcquire_AmountSumsDoNotOverflow() {
+        properties.setUser(limit(20, "10000.00"));
+        TransferRateLimiter limiter = limiter();
+
+        // Together these overflow a long of minor units; the sum must not wrap around below the limit
+        List<TransferRequest> largest = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            largest.add(request(VIP, "9999999999999999.99"));
+        }
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(largest));
+
+        limiter.acquire(request(VIP, "10000.00"));
+    }
+
+    @Test
+    void testAcquire_DisabledCountsNothing() {
+        properties.setEnabled(false);
+        TransferRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(request(A, "50.00"));
+        }
+        verifyNoInteractions(accountRepository);
+    }
+
+    private TransferRateLimiter limiter() {
+        AccountCache accountCache = new AccountCache(new AccountCacheProperties(), meterRegistry);
+        return new TransferRateLimiter(properties, accountCache, accountRepository, meterRegistry);
+    }
+
+    private void stubKey(String accountNumber, Long id, Long ownerId) {
+        when(accountRepository.findKeyByAccountNumber(accountNumber))
+                .thenReturn(Optional.of(new AccountKey(id, accountNumber, ownerId)));
+    }
+
+    private static TransferRequest request(String source, String amount) {
+        return new TransferRequest(source, DESTINATION, Money.parse(amount));
+    }
+
+    private static RateLimitProperties.Limit limit(long maxTransfers, String maxAmount) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setMaxTransfers(maxTransfers);
+        limit.setMaxAmount(new BigDecimal(maxAmount));
+        return limit;
+    }
+}
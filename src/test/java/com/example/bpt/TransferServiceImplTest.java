@@ -1,19 +1,43 @@
 package com.example.bpt;
 
+import com.example.bpt.config.TransferProperties;
+import com.example.bpt.dto.BatchTransferRequest;
+import com.example.bpt.dto.BatchTransferResponse;
 import com.example.bpt.dto.TransferRequest;
 import com.example.bpt.dto.TransferResponse;
 import com.example.bpt.model.Account;
+import com.example.bpt.model.Money;
 import com.example.bpt.model.Transfer;
+import com.example.bpt.model.User;
 import com.example.bpt.repository.AccountRepository;
 import com.example.bpt.repository.TransferRepository;
+import com.example.bpt.repository.UserRepository;
+import com.example.bpt.repository.projection.AccountBalance;
+import com.example.bpt.repository.projection.AccountKey;
+import com.example.bpt.service.impl.AccountCache;
+import com.example.bpt.service.impl.AccountContentionTracker;
+import com.example.bpt.service.impl.BalanceShardService;
+import com.example.bpt.service.impl.IdempotencyCompletionWriter;
+import com.example.bpt.service.impl.TransferLog;
+import com.example.bpt.service.impl.TransferMetrics;
+import com.example.bpt.service.impl.TransferOutboxWriter;
 import com.example.bpt.service.impl.TransferServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +51,35 @@ public class TransferServiceImplTest {
     @Mock
     private TransferRepository transferRepository;
 
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BalanceShardService balanceShardService;
+
+    @Mock
+    private TransferOutboxWriter transferOutboxWriter;
+
+    @Mock
+    private IdempotencyCompletionWriter idempotencyCompletionWriter;
+
+    @Mock
+    private AccountCache accountCache;
+
+    @Spy
+    private TransferProperties transferProperties = new TransferProperties();
+
+    @Spy
+    private AccountContentionTracker contentionTracker = new AccountContentionTracker(transferProperties);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TransferMetrics transferMetrics = new TransferMetrics(meterRegistry);
+
+    @Spy
+    private TransferLog transferLog = new TransferLog(transferProperties);
+
     @InjectMocks
     private TransferServiceImpl transferService;
 
@@ -39,33 +92,32 @@ public class TransferServiceImplTest {
 
         source = Account.builder()
                 .accountNumber("205-0000001234567-68")
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.parse("1000"))
                 .build();
 
         destination = Account.builder()
                 .accountNumber("205-0000007654321-68")
-                .balance(BigDecimal.valueOf(500))
+                .balance(Money.parse("500"))
                 .build();
     }
 
     @Test
     void testTransferFunds_Success() {
 // given
-        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", BigDecimal.valueOf(200));
+        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("200"));
 
         Account source = Account.builder()
                 .accountNumber("205-0000001234567-68")
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.parse("1000"))
                 .build();
 
         Account destination = Account.builder()
                 .accountNumber("205-0000007654321-68")
-                .balance(BigDecimal.valueOf(500))
+                .balance(Money.parse("500"))
                 .build();
 
-        when(accountRepository.findByAccountNumber(anyString()))
-                .thenReturn(Optional.of(source))
-                .thenReturn(Optional.of(destination));
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection()))
+                .thenReturn(List.of(source, destination));
 
         when(transferRepository.save(any(Transfer.class)))
                 .thenAnswer(invocation -> {
@@ -78,34 +130,65 @@ public class TransferServiceImplTest {
         TransferResponse result = transferService.transferFunds(request);
 
         // then
-        assertEquals(BigDecimal.valueOf(800), source.getBalance());
-        assertEquals(BigDecimal.valueOf(700), destination.getBalance());
+        assertEquals(Money.parse("800"), source.getBalance());
+        assertEquals(Money.parse("700"), destination.getBalance());
         verify(accountRepository, times(2)).save(any(Account.class));
         verify(transferRepository, times(1)).save(any(Transfer.class));
+        verify(transferOutboxWriter, times(1)).append(any(Transfer.class));
         assertNotNull(result);
         assertEquals("205-0000001234567-68", result.sourceAccount());
         assertEquals("205-0000007654321-68", result.destinationAccount());
-        assertEquals(BigDecimal.valueOf(200), result.amount());
+        assertEquals(Money.parse("200"), result.amount());
         assertEquals("SUCCESS", result.status());
+        assertEquals(1, meterRegistry.get("bpt.transfer").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("bpt.transfer.stage")
+                .tags("stage", "event_publish", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void testTransferFunds_SuccessIsRecordedOnlyOnceCommitted() {
+        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("200"));
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection()))
+                .thenReturn(List.of(source, destination));
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            transferService.transferFunds(request);
+            transferService.transferFunds(request);
+            assertEquals(0, meterRegistry.get("bpt.transfer").tag("outcome", "success").timer().count());
+
+            // The first commits, the second fails to commit
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations.subList(0, 1));
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations.subList(0, 1),
+                    TransactionSynchronization.STATUS_COMMITTED);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations.subList(1, 2),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, meterRegistry.get("bpt.transfer").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("bpt.transfer").tag("outcome", "error").timer().count());
     }
 
     @Test
     void testTransferFunds_InsufficientFunds() {
-        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", BigDecimal.valueOf(20000));
+        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("20000"));
 
         Account source = Account.builder()
                 .accountNumber("205-0000001234567-68")
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.parse("1000"))
                 .build();
 
         Account destination = Account.builder()
                 .accountNumber("205-0000007654321-68")
-                .balance(BigDecimal.valueOf(500))
+                .balance(Money.parse("500"))
                 .build();
 
-        when(accountRepository.findByAccountNumber(anyString()))
-                .thenReturn(Optional.of(source))
-                .thenReturn(Optional.of(destination));
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection()))
+                .thenReturn(List.of(source, destination));
 
         // when + then
         Exception ex = assertThrows(IllegalArgumentException.class,
@@ -114,6 +197,228 @@ public class TransferServiceImplTest {
         assertEquals("Insufficient funds on source account", ex.getMessage());
         verify(accountRepository, never()).save(any(Account.class));
         verify(transferRepository, never()).save(any(Transfer.class));
+        verify(transferOutboxWriter, never()).append(any(Transfer.class));
+        assertEquals(1, meterRegistry.get("bpt.transfer").tag("outcome", "insufficient_funds").timer().count());
+        assertEquals(1, meterRegistry.get("bpt.transfer.stage")
+                .tags("stage", "funds_check", "outcome", "insufficient_funds").timer().count());
+        assertEquals(0, meterRegistry.get("bpt.transfer.stage")
+                .tags("stage", "balance_update", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void testTransferFunds_LocksAccountsInAccountNumberOrder() {
+        TransferRequest request = new TransferRequest("205-7654321-68", "205-1234567-68", Money.parse("100"));
+
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection()))
+                .thenReturn(List.of(source, destination));
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransferResponse result = transferService.transferFunds(request);
+
+        // Both rows are locked with one ordered query, regardless of transfer direction
+        verify(accountRepository, times(1)).lockByAccountNumbersOrdered(
+                List.of("205-0000007654321-68", "205-0000001234567-68"));
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+        assertEquals("205-0000007654321-68", result.sourceAccount());
+        assertEquals(Money.parse("400"), destination.getBalance());
+        assertEquals(Money.parse("1100"), source.getBalance());
+    }
+
+    @Test
+    void testTransferFunds_SameAccountAfterNormalization() {
+        TransferRequest request = new TransferRequest("205-1234567-68", "205-0000001234567-68", Money.parse("100"));
+
+        Exception ex = assertThrows(IllegalArgumentException.class,
+                () -> transferService.transferFunds(request));
+
+        assertEquals("Source and destination accounts cannot be the same", ex.getMessage());
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void testTransferFunds_OptimisticConflictsSwitchHotAccountToLocking() {
+        transferProperties.setConcurrencyMode(TransferProperties.ConcurrencyMode.OPTIMISTIC);
+        transferProperties.getContention().setMinSamples(2);
+        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("10"));
+
+        when(accountRepository.findByAccountNumberIn(anyCollection()))
+                .thenReturn(List.of(source, destination));
+        doThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L))
+                .when(accountRepository).flush();
+
+        // Cold accounts are read without row locks; version conflicts propagate to the retry advice
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ObjectOptimisticLockingFailureException.class,
+                    () -> transferService.transferFunds(request));
+        }
+        verify(accountRepository, never()).lockByAccountNumbersOrdered(anyCollection());
+        assertTrue(contentionTracker.isContended("205-0000001234567-68"));
+
+        // Once the conflict rate crosses the threshold the pair is locked pessimistically
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection()))
+                .thenReturn(List.of(source, destination));
+        doNothing().when(accountRepository).flush();
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransferResponse result = transferService.transferFunds(request);
+
+        assertEquals("SUCCESS", result.status());
+        verify(accountRepository, times(1)).lockByAccountNumbersOrdered(anyCollection());
+    }
+
+    @Test
+    void testTransferFunds_StripedDestinationIsCreditedThroughShards() {
+        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("200"));
+
+        when(balanceShardService.isStriped("205-0000007654321-68")).thenReturn(true);
+        when(accountRepository.lockByAccountNumbersOrdered(List.of("205-0000001234567-68")))
+                .thenReturn(List.of(source));
+        when(accountRepository.findByAccountNumberIn(List.of("205-0000007654321-68")))
+                .thenReturn(List.of(destination));
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransferResponse result = transferService.transferFunds(request);
+
+        // The hot destination row is neither locked nor rewritten, and its shard is credited only after the
+        // transfer INSERT has share-locked the row for its foreign key check
+        InOrder inOrder = inOrder(transferRepository, balanceShardService);
+        inOrder.verify(transferRepository).flush();
+        inOrder.verify(balanceShardService).credit(destination, Money.parse("200"), "205-0000001234567-68");
+        verify(accountRepository, never()).save(destination);
+        assertEquals(Money.parse("800"), source.getBalance());
+        assertEquals(Money.parse("500"), destination.getBalance());
+        assertEquals("SUCCESS", result.status());
+
+        // No chained balance can be derived for the striped side without its shard locks
+        ArgumentCaptor<Transfer> saved = ArgumentCaptor.forClass(Transfer.class);
+        verify(transferRepository).save(saved.capture());
+        assertEquals(Money.parse("800"), saved.getValue().getSourceNewBalance());
+        assertNull(saved.getValue().getDestinationOldBalance());
+        assertNull(saved.getValue().getDestinationNewBalance());
+    }
+
+    @Test
+    void testTransferBatch_ReportsPerItemResults() {
+        BatchTransferRequest request = new BatchTransferRequest(List.of(
+                new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("300")),
+                new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("5000")),
+                new TransferRequest("205-7654321-68", "205-1234567-68", Money.parse("100"))
+        ), false);
+
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection()))
+                .thenReturn(List.of(source, destination));
+        when(transferRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchTransferResponse result = transferService.transferBatch(request);
+
+        // One locked load and one batched insert for the whole batch
+        verify(accountRepository, times(1)).lockByAccountNumbersOrdered(anyCollection());
+        verify(transferRepository, times(1)).saveAll(anyList());
+        assertEquals(2, result.succeeded());
+        assertEquals(1, result.failed());
+        assertEquals("FAILED", result.results().get(1).status());
+        assertEquals("Insufficient funds on source account", result.results().get(1).error());
+        assertEquals(Money.parse("800"), source.getBalance());
+        assertEquals(Money.parse("700"), destination.getBalance());
+    }
+
+    @Test
+    void testTransferBatch_StripedDestinationIsCreditedOncePerBatch() {
+        Account payer = Account.builder()
+                .accountNumber("205-0000000000005-68")
+                .balance(Money.parse("1000"))
+                .build();
+        BatchTransferRequest request = new BatchTransferRequest(List.of(
+                new TransferRequest("205-5-68", "205-7654321-68", Money.parse("100")),
+                new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("300"))
+        ), false);
+
+        when(balanceShardService.isStriped("205-0000007654321-68")).thenReturn(true);
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection())).thenReturn(List.of(payer, source));
+        when(accountRepository.findByAccountNumberIn(anyCollection())).thenReturn(List.of(destination));
+        when(transferRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchTransferResponse result = transferService.transferBatch(request);
+
+        // One shard credit for both items, picked by the first payer rather than by the destination itself,
+        // after the transfer rows are inserted
+        InOrder inOrder = inOrder(transferRepository, balanceShardService);
+        inOrder.verify(transferRepository).flush();
+        inOrder.verify(balanceShardService).credit(destination, Money.parse("400"), "205-0000000000005-68");
+        assertEquals(2, result.succeeded());
+        assertEquals(Money.parse("500"), destination.getBalance());
+    }
+
+    @Test
+    void testTransferBatch_AtomicModeAbortsOnFirstFailure() {
+        BatchTransferRequest request = new BatchTransferRequest(List.of(
+                new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("300")),
+                new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("5000"))
+        ), true);
+
+        when(accountRepository.lockByAccountNumbersOrdered(anyCollection()))
+                .thenReturn(List.of(source, destination));
+
+        Exception ex = assertThrows(IllegalArgumentException.class,
+                () -> transferService.transferBatch(request));
+
+        assertEquals("Batch item 1: Insufficient funds on source account", ex.getMessage());
+        verify(transferRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testTransferFunds_ConditionalUpdateDebitsAndCreditsWithoutEntities() {
+        transferProperties.setWritePath(TransferProperties.WritePath.CONDITIONAL_UPDATE);
+        TransferRequest request = new TransferRequest("205-7654321-68", "205-1234567-68", Money.parse("200"));
+        stubKeys();
+        when(accountRepository.debitIfSufficient(2L, new BigDecimal("200.00"))).thenReturn(1);
+        when(accountRepository.credit(1L, new BigDecimal("200.00"))).thenReturn(1);
+        when(accountRepository.findBalancesByIdIn(List.of(2L, 1L))).thenReturn(List.of(
+                new AccountBalance(1L, Money.parse("1200"), 8L),
+                new AccountBalance(2L, Money.parse("300"), 4L)));
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.getReferenceById(20L)).thenReturn(User.builder().id(20L).build());
+
+        TransferResponse result = transferService.transferFunds(request);
+
+        // Row locks in account number order: the destination (lower number) is credited first
+        var inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).credit(1L, new BigDecimal("200.00"));
+        inOrder.verify(accountRepository).debitIfSufficient(2L, new BigDecimal("200.00"));
+        verify(accountRepository, never()).lockByAccountNumbersOrdered(anyCollection());
+        verify(accountRepository, never()).save(any(Account.class));
+
+        verify(transferRepository).save(argThat(transfer ->
+                transfer.getSourceOldBalance().equals(Money.parse("500"))
+                        && transfer.getSourceNewBalance().equals(Money.parse("300"))
+                        && transfer.getDestinationOldBalance().equals(Money.parse("1000"))
+                        && transfer.getDestinationNewBalance().equals(Money.parse("1200"))
+                        && transfer.getPerformedBy().getId().equals(20L)));
+        verify(transferOutboxWriter).append(any(Transfer.class));
+        assertEquals("205-0000007654321-68", result.sourceAccount());
+        assertEquals("205-0000001234567-68", result.destinationAccount());
+    }
+
+    @Test
+    void testTransferFunds_ConditionalUpdateRejectsInsufficientFunds() {
+        transferProperties.setWritePath(TransferProperties.WritePath.CONDITIONAL_UPDATE);
+        TransferRequest request = new TransferRequest("205-1234567-68", "205-7654321-68", Money.parse("5000"));
+        stubKeys();
+        when(accountRepository.debitIfSufficient(1L, new BigDecimal("5000.00"))).thenReturn(0);
+
+        Exception ex = assertThrows(IllegalArgumentException.class,
+                () -> transferService.transferFunds(request));
+
+        assertEquals("Insufficient funds on source account", ex.getMessage());
+        verify(accountRepository, never()).credit(anyLong(), any());
+        verify(transferRepository, never()).save(any(Transfer.class));
+        assertEquals(1, meterRegistry.get("bpt.transfer").tag("outcome", "insufficient_funds").timer().count());
     }
 
+    private void stubKeys() {
+        when(accountCache.key(eq("205-0000001234567-68"), any()))
+                .thenReturn(Optional.of(new AccountKey(1L, "205-0000001234567-68", 10L)));
+        when(accountCache.key(eq("205-0000007654321-68"), any()))
+                .thenReturn(Optional.of(new AccountKey(2L, "205-0000007654321-68", 20L)));
+    }
 }